@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2017 Guus der Kinderen. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.goodbytes.network.utility.eip;
+
+import nl.goodbytes.network.utility.eip.impl.ConfiguredResolver;
+import nl.goodbytes.network.utility.eip.impl.ResponseFormat;
+import nl.goodbytes.network.utility.eip.impl.StandInServer;
+import org.openjdk.jmh.annotations.*;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * Measures a complete resolution, bypassing the cache, by a {@link ResolverService} that uses three local
+ * {@link StandInServer} instances. One of those is slow, another one fails a fraction of all requests. This shows how
+ * each resolution mode copes with degraded web services.
+ *
+ * @author Guus der Kinderen, guus@goodbytes.nl
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+public class EndToEndBenchmark
+{
+    @Param( { "SEQUENTIAL", "HEDGED", "QUORUM" } )
+    public ResolutionMode mode;
+
+    @Param( { "20" } )
+    public long slowLatency;
+
+    @Param( { "0.0", "0.5" } )
+    public double failureRate;
+
+    private final List<StandInServer> servers = new ArrayList<>();
+    private ResolverService service;
+
+    @Setup
+    public void setup() throws Exception
+    {
+        // Injected failures are logged as warnings. Writing those would distort the measurements.
+        ResolverService.LOGGER.setLevel( Level.SEVERE );
+
+        servers.add( new StandInServer( "203.0.113.7", 0, 0 ) );
+        servers.add( new StandInServer( "203.0.113.7", slowLatency, 0 ) );
+        servers.add( new StandInServer( "203.0.113.7", 0, failureRate ) );
+
+        final ResolverServiceBuilder builder = ResolverService.builder()
+            .resolutionMode( mode )
+            .defaultRateLimit( RateLimit.NONE )
+            .hedgeDelay( slowLatency / 2, TimeUnit.MILLISECONDS );
+        for ( final StandInServer server : servers )
+        {
+            builder.addResolver( new ConfiguredResolver( server.getUrl(), ResponseFormat.PLAIN ) );
+        }
+        service = builder.build();
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        for ( final StandInServer server : servers )
+        {
+            server.close();
+        }
+    }
+
+    @Benchmark
+    public InetAddress resolve()
+    {
+        return service.resolve( 0, TimeUnit.MILLISECONDS, 5, TimeUnit.SECONDS );
+    }
+}
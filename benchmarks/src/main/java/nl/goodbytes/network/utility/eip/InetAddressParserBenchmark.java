@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2017 Guus der Kinderen. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.goodbytes.network.utility.eip;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares parsing a web service response with {@link InetAddressParser} against the previous approach of using
+ * {@link InetAddress#getByName(String)} on a String that is decoded from that response.
+ *
+ * @author Guus der Kinderen, guus@goodbytes.nl
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class InetAddressParserBenchmark
+{
+    @Param( { "203.0.113.7", "2001:db8::8a2e:370:7334" } )
+    public String address;
+
+    private byte[] response;
+
+    @Setup
+    public void setup()
+    {
+        response = address.getBytes( StandardCharsets.US_ASCII );
+    }
+
+    @Benchmark
+    public InetAddress parser() throws Exception
+    {
+        return InetAddressParser.parse( response, 0, response.length );
+    }
+
+    @Benchmark
+    public InetAddress getByName() throws Exception
+    {
+        return InetAddress.getByName( new String( response, StandardCharsets.US_ASCII ) );
+    }
+}
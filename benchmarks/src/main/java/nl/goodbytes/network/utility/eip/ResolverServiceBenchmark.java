@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2017 Guus der Kinderen. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.goodbytes.network.utility.eip;
+
+import org.openjdk.jmh.annotations.*;
+
+import nl.goodbytes.network.utility.eip.spi.Resolver;
+
+import java.net.InetAddress;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of obtaining a value from a warm cache of {@link ResolverService}, from one, four and all available
+ * cores, and the cost of ordering the service providers before they are invoked. Run with a different '-t' argument to
+ * measure other thread counts.
+ *
+ * @author Guus der Kinderen, guus@goodbytes.nl
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class ResolverServiceBenchmark
+{
+    private ResolverService service;
+
+    @Setup
+    public void setup() throws Exception
+    {
+        service = ResolverService.getInstance();
+        final InetAddress address = InetAddress.getByAddress( new byte[] { (byte) 192, 0, 2, 1 } );
+        service.update( new Resolution( address, System.currentTimeMillis(), "benchmark" ) );
+    }
+
+    @Benchmark
+    @Threads( 1 )
+    public InetAddress warmCacheSingleThread()
+    {
+        return service.resolve();
+    }
+
+    @Benchmark
+    @Threads( 4 )
+    public InetAddress warmCacheFourThreads()
+    {
+        return service.resolve();
+    }
+
+    @Benchmark
+    @Threads( Threads.MAX )
+    public InetAddress warmCacheAllThreads()
+    {
+        return service.resolve();
+    }
+
+    @Benchmark
+    @Threads( 1 )
+    public List<Resolver> rankResolvers()
+    {
+        return service.getRankedResolvers();
+    }
+}
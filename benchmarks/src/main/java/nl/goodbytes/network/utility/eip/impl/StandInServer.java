@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2017 Guus der Kinderen. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.goodbytes.network.utility.eip.impl;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A local stand-in for a web service that reports an IP address. Latency and failures can be injected, to simulate web
+ * services that are slow or unreliable.
+ *
+ * @author Guus der Kinderen, guus@goodbytes.nl
+ */
+public final class StandInServer implements Closeable
+{
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    /**
+     * Starts a new server on a free port of the loopback interface.
+     *
+     * @param address     The IP address that is reported (cannot be null).
+     * @param latency     The delay, in milliseconds, before each response is sent. Zero for no delay.
+     * @param failureRate The fraction (between 0 and 1) of requests that are answered with an HTTP error.
+     * @throws IOException When the server cannot be started.
+     */
+    public StandInServer( String address, final long latency, final double failureRate ) throws IOException
+    {
+        final byte[] body = ( address + '\n' ).getBytes( StandardCharsets.US_ASCII );
+        server = HttpServer.create( new InetSocketAddress( InetAddress.getLoopbackAddress(), 0 ), 0 );
+        server.setExecutor( executor );
+        server.createContext( "/", new HttpHandler()
+        {
+            @Override
+            public void handle( HttpExchange exchange ) throws IOException
+            {
+                try
+                {
+                    if ( latency > 0 )
+                    {
+                        Thread.sleep( latency );
+                    }
+                }
+                catch ( InterruptedException e )
+                {
+                    Thread.currentThread().interrupt();
+                }
+
+                final boolean fail = ThreadLocalRandom.current().nextDouble() < failureRate;
+                exchange.getResponseHeaders().set( "Content-Type", "text/plain" );
+                exchange.sendResponseHeaders( fail ? 503 : 200, fail ? -1 : body.length );
+                if ( !fail )
+                {
+                    try ( final OutputStream out = exchange.getResponseBody() )
+                    {
+                        out.write( body );
+                    }
+                }
+                exchange.close();
+            }
+        } );
+        server.start();
+    }
+
+    /**
+     * Returns the address at which this server can be reached.
+     *
+     * @return A URL (never null).
+     */
+    public URL getUrl()
+    {
+        try
+        {
+            final InetSocketAddress address = server.getAddress();
+            return new URL( "http", address.getAddress().getHostAddress(), address.getPort(), "/" );
+        }
+        catch ( IOException e )
+        {
+            throw new IllegalStateException( "Unable to construct the URL of the stand-in server.", e );
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        server.stop( 0 );
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2017 Guus der Kinderen. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.goodbytes.network.utility.eip.impl;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of a single {@link URLResolver} invocation against a local {@link StandInServer}, which includes
+ * writing the request, reading and parsing the response over a kept-alive connection. The cost of only parsing a
+ * response is measured separately, for a plain and for a JSON response.
+ *
+ * @author Guus der Kinderen, guus@goodbytes.nl
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class URLResolverBenchmark
+{
+    private StandInServer server;
+    private ConfiguredResolver resolver;
+    private ConfiguredResolver parser;
+    private ConfiguredResolver jsonParser;
+    private byte[] response;
+    private byte[] jsonResponse;
+
+    @Setup
+    public void setup() throws Exception
+    {
+        server = new StandInServer( "203.0.113.7", 0, 0 );
+        resolver = new ConfiguredResolver( server.getUrl(), ResponseFormat.PLAIN );
+        parser = new AmazonResolver();
+        jsonParser = new ConfiguredResolver( server.getUrl(), ResponseFormat.jsonField( "ip" ) );
+        response = "203.0.113.7\n".getBytes( StandardCharsets.US_ASCII );
+        jsonResponse = "{\"country\":\"NL\",\"ip\":\"203.0.113.7\"}".getBytes( StandardCharsets.US_ASCII );
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        server.close();
+    }
+
+    @Benchmark
+    public InetAddress request() throws Exception
+    {
+        return resolver.resolveAddress( 1, TimeUnit.SECONDS );
+    }
+
+    @Benchmark
+    @OutputTimeUnit( TimeUnit.NANOSECONDS )
+    public InetAddress parse() throws Exception
+    {
+        return parser.parse( response );
+    }
+
+    @Benchmark
+    @OutputTimeUnit( TimeUnit.NANOSECONDS )
+    public InetAddress parseJson() throws Exception
+    {
+        return jsonParser.parse( jsonResponse );
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2017 Guus der Kinderen. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.goodbytes.network.utility.eip;
+
+/**
+ * Receives notifications of changes to the resolved IP address.
+ *
+ * @author Guus der Kinderen, guus@goodbytes.nl
+ * @see ResolverService#addAddressChangeListener(AddressChangeListener)
+ * @see NonBlockingResolverService#addAddressChangeListener(AddressChangeListener, java.util.concurrent.Executor)
+ */
+public interface AddressChangeListener
+{
+    /**
+     * Invoked when a resolution produced an IP address that differs from the previously resolved IP address.
+     *
+     * Notifications are delivered in the order in which the resolutions were published, one at a time: the previous IP
+     * address of a notification is the current IP address of the notification that preceded it.
+     *
+     * Unless an executor was provided when registering the listener, this method is invoked by a thread that performed
+     * a resolution, which is not necessarily the resolution that produced the change. Implementations should return
+     * quickly.
+     *
+     * When an executor was provided, the order and the one-at-a-time delivery are retained, even when that executor
+     * uses several threads: notifications are delivered by no more than one task of that executor at a time.
+     * A notification that the executor rejects is delivered by a thread that performed a resolution instead.
+     *
+     * @param previous The previous resolution, or null when no IP address was resolved before.
+     * @param current  The resolution that produced the new IP address (never null).
+     */
+    void addressChanged( Resolution previous, Resolution current );
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2017 Guus der Kinderen. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.goodbytes.network.utility.eip;
+
+import java.net.Inet4Address;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+
+/**
+ * The family of an IP address.
+ *
+ * @author Guus der Kinderen, guus@goodbytes.nl
+ */
+public enum AddressFamily
+{
+    /**
+     * Internet Protocol version 4 addresses.
+     */
+    IPV4,
+
+    /**
+     * Internet Protocol version 6 addresses.
+     */
+    IPV6;
+
+    /**
+     * Checks if an IP address is of this family.
+     *
+     * @param address The address to check (cannot be null).
+     * @return true if the address is of this family, otherwise false.
+     */
+    public boolean matches( InetAddress address )
+    {
+        return this == IPV4 ? address instanceof Inet4Address : address instanceof Inet6Address;
+    }
+
+    /**
+     * Returns the family of an IP address.
+     *
+     * @param address The address for which to return the family (cannot be null).
+     * @return The family of the address (never null).
+     */
+    public static AddressFamily of( InetAddress address )
+    {
+        return address instanceof Inet4Address ? IPV4 : IPV6;
+    }
+}
@@ -0,0 +1,454 @@
+/*
+ * Copyright (c) 2017 Guus der Kinderen. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.goodbytes.network.utility.eip;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+import static nl.goodbytes.network.utility.eip.ResolverService.LOGGER;
+
+/**
+ * Notifies the address change listeners of a {@link ResolverService}, and monitors the IP address while any such
+ * listener is registered: it is periodically resolved again, at an interval that grows while the IP address remains
+ * unchanged, and that is reset to its minimum after a change was detected.
+ *
+ * @author Guus der Kinderen, guus@goodbytes.nl
+ */
+final class AddressMonitor
+{
+    private final ResolverService service;
+    private final List<AddressListenerRegistration> listeners = new CopyOnWriteArrayList<>();
+    private final Queue<AddressChange> pendingChanges = new ArrayDeque<>(); // Guarded by 'this'.
+    private boolean dispatching; // Guarded by 'this'.
+    private volatile long minimumInterval = TimeUnit.MINUTES.toMillis( 1 );
+    private volatile long maximumInterval = TimeUnit.MINUTES.toMillis( 30 );
+    private long interval;
+    private long generation;
+    private ScheduledFuture<?> task;
+    private boolean closed; // Guarded by 'this'.
+
+    /**
+     * @param service The service of which the IP address is monitored (cannot be null).
+     */
+    AddressMonitor( ResolverService service )
+    {
+        this.service = service;
+    }
+
+    /**
+     * Queues a notification of the address change listeners, if the IP address of two resolutions differs. This is to
+     * be invoked while holding the lock under which the service publishes the current resolution, so that
+     * notifications are queued in the order in which the resolutions were published.
+     *
+     * @param previous The resolution that was replaced (can be null).
+     * @param current  The resolution that replaced it (cannot be null).
+     */
+    synchronized void enqueueIfChanged( Resolution previous, Resolution current )
+    {
+        if ( previous == null || !previous.getAddress().equals( current.getAddress() ) )
+        {
+            pendingChanges.add( new AddressChange( previous, current ) );
+        }
+    }
+
+    /**
+     * Notifies the address change listeners of all queued changes, in the order in which they were queued.
+     *
+     * Only one thread dispatches at a time. When another thread is already dispatching, this method returns
+     * immediately, leaving the changes that were queued in the meantime to be dispatched by that thread. This also
+     * applies to changes that are caused by a listener, which are dispatched after that listener returns.
+     */
+    void dispatchChanges()
+    {
+        synchronized ( this )
+        {
+            if ( dispatching )
+            {
+                return;
+            }
+            dispatching = true;
+        }
+
+        boolean drained = false;
+        try
+        {
+            while ( true )
+            {
+                final AddressChange change;
+                synchronized ( this )
+                {
+                    change = pendingChanges.poll();
+                    if ( change == null )
+                    {
+                        dispatching = false;
+                        drained = true;
+                        return;
+                    }
+                }
+                notifyListeners( change );
+            }
+        }
+        finally
+        {
+            if ( !drained )
+            {
+                synchronized ( this )
+                {
+                    dispatching = false;
+                }
+            }
+        }
+    }
+
+    /**
+     * Notifies all registered address change listeners of a change of the IP address.
+     *
+     * @param change The change of the IP address (cannot be null).
+     */
+    private void notifyListeners( final AddressChange change )
+    {
+        LOGGER.fine( "Resolved IP address changed from " + change.previous + " to " + change.current );
+        for ( final AddressListenerRegistration registration : listeners )
+        {
+            registration.enqueue( change );
+        }
+    }
+
+    /**
+     * Registers a listener that is notified, using the provided executor, whenever the resolved IP address changes,
+     * and starts monitoring the IP address, unless it is already being monitored.
+     *
+     * @param listener The listener to register (cannot be null).
+     * @param executor The executor used to notify the listener (cannot be null).
+     */
+    synchronized void addListener( AddressChangeListener listener, Executor executor )
+    {
+        listeners.add( new AddressListenerRegistration( listener, executor ) );
+        start();
+    }
+
+    /**
+     * Removes a previously registered listener, and stops monitoring the IP address after the last listener is
+     * removed. This method has no effect when the listener was not registered.
+     *
+     * @param listener The listener to remove.
+     */
+    synchronized void removeListener( AddressChangeListener listener )
+    {
+        for ( final AddressListenerRegistration registration : listeners )
+        {
+            if ( registration.listener.equals( listener ) )
+            {
+                listeners.remove( registration );
+                registration.cancel();
+            }
+        }
+
+        if ( listeners.isEmpty() )
+        {
+            stop();
+        }
+    }
+
+    /**
+     * Returns the interval at which the IP address is resolved immediately after a change has been detected.
+     *
+     * @param timeUnit The unit in which the returned value is expressed (cannot be null).
+     * @return The minimum monitor interval, positive.
+     */
+    long getMinimumInterval( TimeUnit timeUnit )
+    {
+        return timeUnit.convert( minimumInterval, TimeUnit.MILLISECONDS );
+    }
+
+    /**
+     * Returns the interval at which the IP address is resolved after it remained unchanged for a prolonged period.
+     *
+     * @param timeUnit The unit in which the returned value is expressed (cannot be null).
+     * @return The maximum monitor interval, positive.
+     */
+    long getMaximumInterval( TimeUnit timeUnit )
+    {
+        return timeUnit.convert( maximumInterval, TimeUnit.MILLISECONDS );
+    }
+
+    /**
+     * Defines the interval at which the IP address is resolved while it is monitored.
+     *
+     * @param minimum  The minimum interval. Must be at least one millisecond.
+     * @param maximum  The maximum interval. Cannot be smaller than the minimum interval.
+     * @param timeUnit The unit in which both intervals are expressed (cannot be null).
+     * @see ResolverService#setMonitorInterval(long, long, TimeUnit)
+     */
+    synchronized void setInterval( long minimum, long maximum, TimeUnit timeUnit )
+    {
+        final long minimumMillis = timeUnit.toMillis( minimum );
+        final long maximumMillis = timeUnit.toMillis( maximum );
+        if ( minimumMillis < 1 )
+        {
+            throw new IllegalArgumentException( "Argument 'minimum' must be at least one millisecond." );
+        }
+        if ( maximumMillis < minimumMillis )
+        {
+            throw new IllegalArgumentException( "Argument 'maximum' cannot be smaller than argument 'minimum'." );
+        }
+        minimumInterval = minimumMillis;
+        maximumInterval = maximumMillis;
+        interval = Math.max( minimumMillis, Math.min( maximumMillis, interval ) );
+    }
+
+    /**
+     * Removes all listeners and stops monitoring the IP address, permanently.
+     */
+    synchronized void close()
+    {
+        closed = true;
+        for ( final AddressListenerRegistration registration : listeners )
+        {
+            registration.cancel();
+        }
+        listeners.clear();
+        stop();
+    }
+
+    /**
+     * Starts monitoring the IP address, unless it is already being monitored.
+     */
+    private synchronized void start()
+    {
+        if ( closed || task != null || listeners.isEmpty() )
+        {
+            return;
+        }
+        interval = minimumInterval;
+        schedule( ++this.generation, 0 );
+    }
+
+    /**
+     * Stops monitoring the IP address. This method has no effect when the IP address is not monitored.
+     */
+    private synchronized void stop()
+    {
+        generation++;
+        if ( task != null )
+        {
+            task.cancel( false );
+            task = null;
+        }
+    }
+
+    /**
+     * Schedules the next check of the monitored IP address, unless monitoring has been stopped (or restarted) since.
+     *
+     * @param generation The monitor generation that schedules the check.
+     * @param delay      The delay, in milliseconds, after which the check is to be executed.
+     */
+    private synchronized void schedule( final long generation, long delay )
+    {
+        if ( generation != this.generation )
+        {
+            return;
+        }
+
+        task = ResolverService.scheduler.schedule( new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                check( generation );
+            }
+        }, Math.max( 0, delay ), TimeUnit.MILLISECONDS );
+    }
+
+    /**
+     * Resolves the IP address, unless the cached value is recent enough, and schedules the next check. The resolution
+     * is executed asynchronously, so that the scheduler thread is not blocked.
+     *
+     * @param generation The monitor generation that executes the check.
+     */
+    private void check( final long generation )
+    {
+        final long current;
+        synchronized ( this )
+        {
+            if ( generation != this.generation )
+            {
+                return;
+            }
+            current = interval;
+        }
+
+        final Resolution before = service.getCachedResolution();
+        if ( before != null && !ResolverService.isOlderThan( before, current ) )
+        {
+            schedule( generation, before.getTimestamp() + current - System.currentTimeMillis() );
+            return;
+        }
+
+        LOGGER.finest( "Checking if the monitored IP address changed." );
+        service.refreshAsynchronously().addListener( new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                final Resolution after = service.getCachedResolution();
+                final boolean changed = after != null && after != before
+                    && ( before == null || !before.getAddress().equals( after.getAddress() ) );
+
+                final long next;
+                synchronized ( AddressMonitor.this )
+                {
+                    interval = changed ? minimumInterval : Math.min( maximumInterval, interval * 2 );
+                    next = interval;
+                }
+                schedule( generation, next );
+            }
+        } );
+    }
+
+    /**
+     * A change of the IP address, of which the address change listeners are yet to be notified.
+     */
+    private static final class AddressChange
+    {
+        final Resolution previous;
+        final Resolution current;
+
+        AddressChange( Resolution previous, Resolution current )
+        {
+            this.previous = previous;
+            this.current = current;
+        }
+    }
+
+    /**
+     * An address change listener, paired with the executor that is used to notify it, and the notifications that are
+     * yet to be delivered to it.
+     *
+     * Notifications are delivered one at a time, in the order in which they were queued, irrespective of the number
+     * of threads of the executor: at most one task that delivers the queued notifications is submitted to the executor
+     * at any time. When the executor rejects that task, the notifications are delivered by the thread that queued
+     * them instead, so that no notification is lost.
+     */
+    private static final class AddressListenerRegistration implements Runnable
+    {
+        final AddressChangeListener listener;
+        final Executor executor;
+        private final Queue<AddressChange> queue = new ArrayDeque<>(); // Guarded by 'this'.
+        private boolean scheduled; // Guarded by 'this'.
+        private volatile boolean cancelled;
+
+        AddressListenerRegistration( AddressChangeListener listener, Executor executor )
+        {
+            this.listener = listener;
+            this.executor = executor;
+        }
+
+        /**
+         * Queues a notification, and ensures that a task that delivers it is (or will be) executed.
+         *
+         * @param change The change of which the listener is to be notified (cannot be null).
+         */
+        void enqueue( AddressChange change )
+        {
+            synchronized ( this )
+            {
+                queue.add( change );
+                if ( scheduled )
+                {
+                    return;
+                }
+                scheduled = true;
+            }
+
+            try
+            {
+                executor.execute( this );
+            }
+            catch ( RejectedExecutionException e )
+            {
+                LOGGER.log( Level.FINE, "Executor rejected an address change notification. Delivering it in the "
+                    + "current thread.", e );
+                run();
+            }
+        }
+
+        /**
+         * Prevents notifications that have not been delivered yet from being delivered.
+         */
+        void cancel()
+        {
+            cancelled = true;
+        }
+
+        /**
+         * Delivers all queued notifications, in order.
+         */
+        @Override
+        public void run()
+        {
+            boolean drained = false;
+            try
+            {
+                while ( true )
+                {
+                    final AddressChange change;
+                    synchronized ( this )
+                    {
+                        change = queue.poll();
+                        if ( change == null )
+                        {
+                            scheduled = false;
+                            drained = true;
+                            return;
+                        }
+                    }
+
+                    if ( cancelled )
+                    {
+                        continue;
+                    }
+                    try
+                    {
+                        listener.addressChanged( change.previous, change.current );
+                    }
+                    catch ( RuntimeException e )
+                    {
+                        LOGGER.log( Level.WARNING, "Address change listener threw an exception.", e );
+                    }
+                }
+            }
+            finally
+            {
+                if ( !drained )
+                {
+                    synchronized ( this )
+                    {
+                        scheduled = false;
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2017 Guus der Kinderen. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.goodbytes.network.utility.eip;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Guards the invocation of one service provider.
+ *
+ * After a number of consecutive failures, the breaker opens: the provider is then not invoked at all during a backoff
+ * period. When that period has passed, one probing invocation is allowed. If that probe succeeds, the breaker closes.
+ * If it fails, the breaker opens again, for a backoff period that is twice as long as the previous one (up to a
+ * maximum). A random jitter is applied to each backoff period.
+ *
+ * @author Guus der Kinderen, guus@goodbytes.nl
+ */
+final class CircuitBreaker
+{
+    /**
+     * The number of consecutive failures after which the breaker opens.
+     */
+    private static final int FAILURE_THRESHOLD = 2;
+
+    /**
+     * The backoff period after the breaker opens for the first time.
+     */
+    private static final long INITIAL_BACKOFF = TimeUnit.SECONDS.toNanos( 30 );
+
+    /**
+     * The upper limit of the backoff period.
+     */
+    private static final long MAXIMUM_BACKOFF = TimeUnit.MINUTES.toNanos( 30 );
+
+    private final long initialBackoff;
+    private CircuitBreakerState state = CircuitBreakerState.CLOSED;
+    private int consecutiveFailures;
+    private long backoff;
+    private long openUntil;
+
+    /**
+     * Creates a breaker that, when it opens for the first time, backs off for 30 seconds.
+     */
+    CircuitBreaker()
+    {
+        this( INITIAL_BACKOFF );
+    }
+
+    /**
+     * Creates a breaker with a specific backoff period, which allows for its probing to be tested.
+     *
+     * @param initialBackoff The backoff period after the breaker opens for the first time, in nanoseconds. Must be
+     *                       positive.
+     */
+    CircuitBreaker( long initialBackoff )
+    {
+        if ( initialBackoff <= 0 )
+        {
+            throw new IllegalArgumentException( "Argument 'initialBackoff' must be positive." );
+        }
+        this.initialBackoff = initialBackoff;
+    }
+
+    /**
+     * Checks if an invocation would currently be permitted, without acquiring permission.
+     *
+     * @return true if an invocation is permitted, otherwise false.
+     */
+    synchronized boolean isCallPermitted()
+    {
+        switch ( state )
+        {
+            case CLOSED:
+                return true;
+
+            case OPEN:
+                return System.nanoTime() - openUntil >= 0;
+
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Acquires permission for an invocation. When permission is granted, the outcome of the invocation must be
+     * reported through either {@link #onSuccess()}, {@link #onFailure()} or {@link #onCancelled()}.
+     *
+     * @return true if the invocation is permitted, otherwise false.
+     */
+    synchronized boolean tryAcquire()
+    {
+        if ( !isCallPermitted() )
+        {
+            return false;
+        }
+
+        if ( state == CircuitBreakerState.OPEN )
+        {
+            state = CircuitBreakerState.HALF_OPEN;
+        }
+        return true;
+    }
+
+    /**
+     * Records a successful invocation, closing the breaker.
+     */
+    synchronized void onSuccess()
+    {
+        state = CircuitBreakerState.CLOSED;
+        consecutiveFailures = 0;
+        backoff = 0;
+    }
+
+    /**
+     * Records an invocation that was cancelled before it completed, for example because another service provider
+     * responded first. A cancelled invocation says nothing about the health of the provider: it does not count as a
+     * failure. When the invocation was a probe, the breaker reopens without extending its backoff period, so that the
+     * next invocation probes again.
+     */
+    synchronized void onCancelled()
+    {
+        if ( state == CircuitBreakerState.HALF_OPEN )
+        {
+            state = CircuitBreakerState.OPEN;
+        }
+    }
+
+    /**
+     * Records a failed invocation, opening the breaker if needed.
+     */
+    synchronized void onFailure()
+    {
+        consecutiveFailures++;
+        if ( state == CircuitBreakerState.HALF_OPEN || consecutiveFailures >= FAILURE_THRESHOLD )
+        {
+            backoff = backoff == 0 ? initialBackoff : Math.min( MAXIMUM_BACKOFF, backoff * 2 );
+
+            // Wait at least half of the backoff period, to prevent many instances from probing at the same time.
+            final long jittered = backoff / 2 + ThreadLocalRandom.current().nextLong( backoff / 2 + 1 );
+            openUntil = System.nanoTime() + jittered;
+            state = CircuitBreakerState.OPEN;
+        }
+    }
+
+    /**
+     * Returns the current state of the breaker.
+     *
+     * @return A state (never null).
+     */
+    synchronized CircuitBreakerState getState()
+    {
+        return state;
+    }
+}
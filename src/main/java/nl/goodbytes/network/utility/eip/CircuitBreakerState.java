@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) 2017 Guus der Kinderen. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.goodbytes.network.utility.eip;
+
+/**
+ * The state of the circuit breaker that guards the invocation of a service provider.
+ *
+ * @author Guus der Kinderen, guus@goodbytes.nl
+ */
+public enum CircuitBreakerState
+{
+    /**
+     * The service provider is healthy, and is invoked normally.
+     */
+    CLOSED,
+
+    /**
+     * The service provider recently failed repeatedly, and is not invoked until its backoff period has passed.
+     */
+    OPEN,
+
+    /**
+     * The backoff period of the service provider has passed, and one probing invocation is in progress. Other
+     * invocations are not made until that probe completes.
+     */
+    HALF_OPEN
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2017 Guus der Kinderen. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.goodbytes.network.utility.eip;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * A factory of threads that will not cause a JVM to remain running, by making all of its threads daemon.
+ *
+ * @author Guus der Kinderen, guus@goodbytes.nl
+ */
+class DaemonThreadFactory implements ThreadFactory
+{
+    private final ThreadFactory delegate = Executors.defaultThreadFactory();
+
+    @Override
+    public Thread newThread( Runnable runnable )
+    {
+        final Thread thread = delegate.newThread( runnable );
+        thread.setDaemon( true );
+        return thread;
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2017 Guus der Kinderen. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.goodbytes.network.utility.eip;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A moment in time, after which no more time is to be spent on an operation.
+ *
+ * @author Guus der Kinderen, guus@goodbytes.nl
+ */
+final class Deadline
+{
+    // Large enough to be practically unlimited, small enough to not overflow when added to System.nanoTime().
+    private static final long MAXIMUM_NANOS = Long.MAX_VALUE / 4;
+
+    private final long expiry;
+
+    private Deadline( long expiry )
+    {
+        this.expiry = expiry;
+    }
+
+    /**
+     * Creates a deadline that expires after the provided duration, starting now.
+     *
+     * @param duration The duration after which the deadline expires. Zero or negative values yield an expired deadline.
+     * @param timeUnit The unit in which duration is expressed (cannot be null).
+     * @return A deadline (never null).
+     */
+    static Deadline after( long duration, TimeUnit timeUnit )
+    {
+        final long nanos = Math.max( 0, Math.min( MAXIMUM_NANOS, timeUnit.toNanos( duration ) ) );
+        return new Deadline( System.nanoTime() + nanos );
+    }
+
+    /**
+     * Returns the time that remains before this deadline expires.
+     *
+     * @param timeUnit The unit in which the returned value is expressed (cannot be null).
+     * @return The remaining time, zero when the deadline has expired.
+     */
+    long remaining( TimeUnit timeUnit )
+    {
+        return timeUnit.convert( Math.max( 0, expiry - System.nanoTime() ), TimeUnit.NANOSECONDS );
+    }
+
+    /**
+     * Checks if this deadline has expired.
+     *
+     * @return true when no time remains, otherwise false.
+     */
+    boolean hasExpired()
+    {
+        return expiry - System.nanoTime() <= 0;
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2017 Guus der Kinderen. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.goodbytes.network.utility.eip;
+
+import java.net.InetAddress;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An immutable pair of the IPv4 and the IPv6 address of the host on which the application is executed. Either (or
+ * both) can be absent, for example when the host has no IPv6 connectivity.
+ *
+ * @author Guus der Kinderen, guus@goodbytes.nl
+ * @see ResolverService#resolveDualStack(long, TimeUnit)
+ */
+public final class DualStackAddress
+{
+    private final InetAddress ipv4Address;
+    private final InetAddress ipv6Address;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param ipv4Address The IPv4 address (can be null).
+     * @param ipv6Address The IPv6 address (can be null).
+     */
+    public DualStackAddress( InetAddress ipv4Address, InetAddress ipv6Address )
+    {
+        if ( ipv4Address != null && !AddressFamily.IPV4.matches( ipv4Address ) )
+        {
+            throw new IllegalArgumentException( "Argument 'ipv4Address' must be an IPv4 address." );
+        }
+        if ( ipv6Address != null && !AddressFamily.IPV6.matches( ipv6Address ) )
+        {
+            throw new IllegalArgumentException( "Argument 'ipv6Address' must be an IPv6 address." );
+        }
+        this.ipv4Address = ipv4Address;
+        this.ipv6Address = ipv6Address;
+    }
+
+    /**
+     * Returns the IPv4 address.
+     *
+     * @return An IPv4 address, or null when it could not be resolved.
+     */
+    public InetAddress getIPv4Address()
+    {
+        return ipv4Address;
+    }
+
+    /**
+     * Returns the IPv6 address.
+     *
+     * @return An IPv6 address, or null when it could not be resolved.
+     */
+    public InetAddress getIPv6Address()
+    {
+        return ipv6Address;
+    }
+
+    /**
+     * Returns the address of the provided family.
+     *
+     * @param family The family of the address to return (cannot be null).
+     * @return An IP address, or null when it could not be resolved.
+     */
+    public InetAddress getAddress( AddressFamily family )
+    {
+        return family == AddressFamily.IPV4 ? ipv4Address : ipv6Address;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "IPv4: " + ( ipv4Address == null ? "(none)" : ipv4Address.getHostAddress() )
+            + ", IPv6: " + ( ipv6Address == null ? "(none)" : ipv6Address.getHostAddress() );
+    }
+}
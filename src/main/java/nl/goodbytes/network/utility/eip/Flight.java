@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2017 Guus der Kinderen. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.goodbytes.network.utility.eip;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+
+/**
+ * A resolution that is shared by all callers that require a new value of a {@link Slot} while it is in progress.
+ * Listeners are notified when it completes.
+ *
+ * @author Guus der Kinderen, guus@goodbytes.nl
+ */
+final class Flight extends FutureTask<InetAddress>
+{
+    private final Slot slot;
+    private final List<Runnable> listeners = new ArrayList<>();
+
+    /**
+     * @param service  The service that performs the resolution (cannot be null).
+     * @param slot     The state of the address family that is resolved (cannot be null).
+     * @param deadline The moment at which the resolution must complete (cannot be null).
+     */
+    Flight( final ResolverService service, final Slot slot, final Deadline deadline )
+    {
+        super( new Callable<InetAddress>()
+        {
+            @Override
+            public InetAddress call() throws Exception
+            {
+                return service.refresh( slot, deadline );
+            }
+        } );
+        this.slot = slot;
+    }
+
+    /**
+     * Completes this resolution without invoking any service providers, as if all of them failed.
+     */
+    void reject()
+    {
+        set( slot.getCachedAddress() );
+    }
+
+    /**
+     * Registers a listener that is invoked when this resolution completes, or immediately when it already did.
+     *
+     * @param listener The listener to invoke (cannot be null).
+     */
+    void addListener( Runnable listener )
+    {
+        synchronized ( listeners )
+        {
+            if ( !isDone() )
+            {
+                listeners.add( listener );
+                return;
+            }
+        }
+        listener.run();
+    }
+
+    @Override
+    protected void done()
+    {
+        // Allow new resolutions to start before notifying anyone of the outcome of this one.
+        slot.inFlight.compareAndSet( this, null );
+
+        final List<Runnable> pending;
+        synchronized ( listeners )
+        {
+            pending = new ArrayList<>( listeners );
+            listeners.clear();
+        }
+        for ( final Runnable listener : pending )
+        {
+            listener.run();
+        }
+    }
+}
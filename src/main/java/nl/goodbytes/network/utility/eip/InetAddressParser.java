@@ -0,0 +1,285 @@
+/*
+ * Copyright (c) 2017 Guus der Kinderen. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.goodbytes.network.utility.eip;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+/**
+ * Parses textual representations of IPv4 and IPv6 addresses.
+ *
+ * Unlike {@link InetAddress#getByName(String)}, this implementation never performs a DNS lookup: anything other than
+ * an IP address literal (such as a hostname) is rejected. Leading and trailing whitespace (as commonly found in web
+ * service responses) is ignored. IPv6 zone identifiers are not supported.
+ *
+ * Parsing operates directly on bytes. Parsing a byte array allocates nothing other than the resulting address. Text is
+ * first copied into a byte array, which is an additional allocation.
+ *
+ * @author Guus der Kinderen, guus@goodbytes.nl
+ */
+public final class InetAddressParser
+{
+    private InetAddressParser()
+    {
+    }
+
+    /**
+     * Parses a textual representation of an IP address.
+     *
+     * The text is copied into a byte array before it is parsed. Use {@link #parse(byte[], int, int)} to avoid that
+     * copy.
+     *
+     * @param content The text to parse (can be null).
+     * @return An IP address (never null).
+     * @throws ParseException When the provided content is not an IP address literal.
+     */
+    public static InetAddress parse( CharSequence content ) throws ParseException
+    {
+        if ( content == null )
+        {
+            throw new ParseException( "Unable to parse content: no content." );
+        }
+
+        final byte[] bytes = new byte[ content.length() ];
+        for ( int i = 0; i < bytes.length; i++ )
+        {
+            final char c = content.charAt( i );
+            if ( c > 127 )
+            {
+                throw new ParseException( "Unable to parse content: not an IP address literal." );
+            }
+            bytes[ i ] = (byte) c;
+        }
+        return parse( bytes, 0, bytes.length );
+    }
+
+    /**
+     * Parses a textual, ASCII-encoded representation of an IP address.
+     *
+     * @param content The bytes to parse (cannot be null).
+     * @param offset  The index of the first byte to parse.
+     * @param length  The number of bytes to parse.
+     * @return An IP address (never null).
+     * @throws ParseException When the provided content is not an IP address literal.
+     */
+    public static InetAddress parse( byte[] content, int offset, int length ) throws ParseException
+    {
+        int start = offset;
+        int end = offset + length;
+        while ( start < end && isWhitespace( content[ start ] ) )
+        {
+            start++;
+        }
+        while ( end > start && isWhitespace( content[ end - 1 ] ) )
+        {
+            end--;
+        }
+        if ( start == end )
+        {
+            throw new ParseException( "Unable to parse content: no content." );
+        }
+
+        boolean ipv6 = false;
+        for ( int i = start; i < end; i++ )
+        {
+            if ( content[ i ] == ':' )
+            {
+                ipv6 = true;
+                break;
+            }
+        }
+
+        final byte[] address = new byte[ ipv6 ? 16 : 4 ];
+        final boolean valid = ipv6
+            ? parseIPv6( content, start, end, address )
+            : parseIPv4( content, start, end, address, 0 );
+        if ( !valid )
+        {
+            throw new ParseException( "Unable to parse content: not an IP address literal." );
+        }
+
+        try
+        {
+            return InetAddress.getByAddress( address );
+        }
+        catch ( UnknownHostException e )
+        {
+            throw new ParseException( "Unable to parse content.", e );
+        }
+    }
+
+    /**
+     * Parses dotted-decimal notation (eg: 192.0.2.1) into four bytes of the destination, starting at the provided
+     * index.
+     */
+    private static boolean parseIPv4( byte[] content, int start, int end, byte[] destination, int index )
+    {
+        int position = start;
+        for ( int octet = 0; octet < 4; octet++ )
+        {
+            if ( octet > 0 )
+            {
+                if ( position >= end || content[ position ] != '.' )
+                {
+                    return false;
+                }
+                position++;
+            }
+
+            int value = 0;
+            int digits = 0;
+            while ( position < end && digits < 3 && isDigit( content[ position ] ) )
+            {
+                value = value * 10 + ( content[ position ] - '0' );
+                position++;
+                digits++;
+            }
+            if ( digits == 0 || value > 255 )
+            {
+                return false;
+            }
+            destination[ index + octet ] = (byte) value;
+        }
+        return position == end;
+    }
+
+    /**
+     * Parses colon-hexadecimal notation (eg: 2001:db8::1), optionally ending in dotted-decimal notation, into sixteen
+     * bytes of the destination.
+     */
+    private static boolean parseIPv6( byte[] content, int start, int end, byte[] destination )
+    {
+        int position = start;
+        int groups = 0;
+        int compressedAt = -1;
+
+        if ( content[ position ] == ':' )
+        {
+            if ( end - position < 2 || content[ position + 1 ] != ':' )
+            {
+                return false;
+            }
+            compressedAt = 0;
+            position += 2;
+        }
+
+        while ( position < end )
+        {
+            if ( groups >= 8 )
+            {
+                return false;
+            }
+
+            final int groupStart = position;
+            int value = 0;
+            while ( position < end && position - groupStart < 4 && hexValue( content[ position ] ) >= 0 )
+            {
+                value = ( value << 4 ) | hexValue( content[ position ] );
+                position++;
+            }
+
+            if ( position < end && content[ position ] == '.' )
+            {
+                // The last 32 bits are written in dotted-decimal notation.
+                if ( groups > 6 || !parseIPv4( content, groupStart, end, destination, groups * 2 ) )
+                {
+                    return false;
+                }
+                groups += 2;
+                position = end;
+                break;
+            }
+
+            if ( position == groupStart )
+            {
+                return false;
+            }
+            destination[ groups * 2 ] = (byte) ( value >>> 8 );
+            destination[ groups * 2 + 1 ] = (byte) value;
+            groups++;
+
+            if ( position == end )
+            {
+                break;
+            }
+            if ( content[ position ] != ':' )
+            {
+                return false;
+            }
+            position++;
+
+            if ( position < end && content[ position ] == ':' )
+            {
+                if ( compressedAt >= 0 )
+                {
+                    return false;
+                }
+                compressedAt = groups;
+                position++;
+            }
+            else if ( position == end )
+            {
+                return false;
+            }
+        }
+
+        if ( compressedAt < 0 )
+        {
+            return groups == 8;
+        }
+        if ( groups > 7 )
+        {
+            return false;
+        }
+
+        // Move the groups that follow the '::' to the end, filling the gap with zeroes.
+        final int shift = ( 8 - groups ) * 2;
+        for ( int i = groups * 2 - 1; i >= compressedAt * 2; i-- )
+        {
+            destination[ i + shift ] = destination[ i ];
+            destination[ i ] = 0;
+        }
+        return true;
+    }
+
+    private static boolean isWhitespace( byte b )
+    {
+        return b == ' ' || b == '\t' || b == '\r' || b == '\n';
+    }
+
+    private static boolean isDigit( byte b )
+    {
+        return b >= '0' && b <= '9';
+    }
+
+    private static int hexValue( byte b )
+    {
+        if ( b >= '0' && b <= '9' )
+        {
+            return b - '0';
+        }
+        if ( b >= 'a' && b <= 'f' )
+        {
+            return b - 'a' + 10;
+        }
+        if ( b >= 'A' && b <= 'F' )
+        {
+            return b - 'A' + 10;
+        }
+        return -1;
+    }
+}
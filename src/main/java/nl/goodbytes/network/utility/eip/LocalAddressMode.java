@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2017 Guus der Kinderen. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.goodbytes.network.utility.eip;
+
+/**
+ * Determines how {@link ResolverService} uses globally routable IP addresses that are bound to a network interface of
+ * the host on which the application is executed.
+ *
+ * @author Guus der Kinderen, guus@goodbytes.nl
+ */
+public enum LocalAddressMode
+{
+    /**
+     * Addresses bound to network interfaces are ignored. Service providers are always invoked.
+     */
+    DISABLED,
+
+    /**
+     * When a globally routable address is bound to a network interface, it is used without invoking any service
+     * providers. Service providers are invoked only when no such address is found.
+     */
+    PREFERRED,
+
+    /**
+     * Service providers are always invoked. When the address that they report differs from the globally routable
+     * address(es) of the same family that are bound to network interfaces, a warning is logged. This can reveal
+     * traffic that is routed through a different network than expected.
+     */
+    CROSS_CHECK
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2017 Guus der Kinderen. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.goodbytes.network.utility.eip;
+
+import java.net.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.logging.Level;
+
+import static nl.goodbytes.network.utility.eip.ResolverService.LOGGER;
+
+/**
+ * Finds globally routable IP addresses that are bound to the network interfaces of the host on which the application is
+ * executed. Such an address is, in all likelihood, the public address of the host.
+ *
+ * Addresses that are not routable on the public internet are excluded. For IPv4 that includes private (RFC 1918),
+ * shared (carrier-grade NAT, RFC 6598), loopback, link-local, documentation and reserved ranges, as well as the
+ * deprecated 6to4 relay anycast range (RFC 7526). For IPv6, only global unicast addresses (2000::/3) are considered,
+ * excluding the documentation and Teredo ranges.
+ *
+ * @author Guus der Kinderen, guus@goodbytes.nl
+ */
+final class LocalAddresses
+{
+    private LocalAddresses()
+    {
+    }
+
+    /**
+     * Returns all globally routable addresses that are bound to a network interface that is up.
+     *
+     * @return Resolutions of the addresses, stamped with the current time (never null, possibly empty).
+     */
+    static List<Resolution> findGloballyRoutableAddresses()
+    {
+        final Enumeration<NetworkInterface> interfaces;
+        try
+        {
+            interfaces = NetworkInterface.getNetworkInterfaces();
+        }
+        catch ( SocketException e )
+        {
+            LOGGER.log( Level.FINE, "Unable to enumerate network interfaces.", e );
+            return Collections.emptyList();
+        }
+        if ( interfaces == null )
+        {
+            return Collections.emptyList();
+        }
+
+        final long now = System.currentTimeMillis();
+        final List<Resolution> result = new ArrayList<>();
+        for ( final NetworkInterface networkInterface : Collections.list( interfaces ) )
+        {
+            try
+            {
+                if ( !networkInterface.isUp() || networkInterface.isLoopback() )
+                {
+                    continue;
+                }
+            }
+            catch ( SocketException e )
+            {
+                LOGGER.log( Level.FINE, "Unable to inspect network interface '" + networkInterface.getName() + "'.",
+                            e );
+                continue;
+            }
+
+            for ( final InetAddress address : Collections.list( networkInterface.getInetAddresses() ) )
+            {
+                if ( isGloballyRoutable( address ) )
+                {
+                    final String source = "interface:" + networkInterface.getName();
+                    result.add( new Resolution( stripScope( address ), now, source ) );
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Checks if an IP address is routable on the public internet.
+     *
+     * @param address The address to check (cannot be null).
+     * @return true if the address is globally routable, otherwise false.
+     */
+    static boolean isGloballyRoutable( InetAddress address )
+    {
+        if ( address.isAnyLocalAddress() || address.isLoopbackAddress() || address.isLinkLocalAddress()
+            || address.isSiteLocalAddress() || address.isMulticastAddress() )
+        {
+            return false;
+        }
+
+        final int[] b = new int[ 4 ];
+        final byte[] bytes = address.getAddress();
+        for ( int i = 0; i < b.length; i++ )
+        {
+            b[ i ] = bytes[ i ] & 0xFF;
+        }
+
+        if ( address instanceof Inet4Address )
+        {
+            return b[ 0 ] != 0                                            // 0.0.0.0/8 ("this" network)
+                && !( b[ 0 ] == 100 && ( b[ 1 ] & 0xC0 ) == 64 )          // 100.64.0.0/10 (shared, carrier-grade NAT)
+                && !( b[ 0 ] == 192 && b[ 1 ] == 0 && b[ 2 ] == 0 )       // 192.0.0.0/24 (protocol assignments)
+                && !( b[ 0 ] == 192 && b[ 1 ] == 0 && b[ 2 ] == 2 )       // 192.0.2.0/24 (documentation)
+                && !( b[ 0 ] == 192 && b[ 1 ] == 88 && b[ 2 ] == 99 )     // 192.88.99.0/24 (6to4 relay anycast)
+                && !( b[ 0 ] == 198 && ( b[ 1 ] & 0xFE ) == 18 )          // 198.18.0.0/15 (benchmarking)
+                && !( b[ 0 ] == 198 && b[ 1 ] == 51 && b[ 2 ] == 100 )    // 198.51.100.0/24 (documentation)
+                && !( b[ 0 ] == 203 && b[ 1 ] == 0 && b[ 2 ] == 113 )     // 203.0.113.0/24 (documentation)
+                && b[ 0 ] < 240;                                          // 240.0.0.0/4 (reserved, broadcast)
+        }
+
+        // Global unicast (2000::/3), excluding Teredo (2001::/32) and documentation (2001:db8::/32) addresses.
+        final boolean teredo = b[ 0 ] == 0x20 && b[ 1 ] == 0x01 && b[ 2 ] == 0x00 && b[ 3 ] == 0x00;
+        final boolean documentation = b[ 0 ] == 0x20 && b[ 1 ] == 0x01 && b[ 2 ] == 0x0D && b[ 3 ] == 0xB8;
+        return ( b[ 0 ] & 0xE0 ) == 0x20 && !teredo && !documentation;
+    }
+
+    /**
+     * Selects the globally routable address, bound to a local network interface, that is to be used for a family.
+     * When any family is requested, an IPv4 address is preferred over an IPv6 address.
+     *
+     * @param local  The globally routable addresses bound to local network interfaces (cannot be null).
+     * @param family The family of the address to select, or null for any.
+     * @return An address, or null when there is no suitable address.
+     */
+    static Resolution select( List<Resolution> local, AddressFamily family )
+    {
+        final AddressFamily[] preference = family == null ? AddressFamily.values() : new AddressFamily[] { family };
+        for ( final AddressFamily candidate : preference )
+        {
+            for ( final Resolution resolution : local )
+            {
+                if ( candidate.matches( resolution.getAddress() ) )
+                {
+                    return resolution;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Logs a warning when an address that is reported by a service provider is not among the globally routable
+     * addresses of the same family that are bound to local network interfaces (if there are any).
+     *
+     * @param result The resolution of a service provider (cannot be null).
+     * @param local  The globally routable addresses bound to local network interfaces (cannot be null).
+     */
+    static void crossCheck( Resolution result, List<Resolution> local )
+    {
+        final AddressFamily family = AddressFamily.of( result.getAddress() );
+        final List<InetAddress> candidates = new ArrayList<>();
+        for ( final Resolution resolution : local )
+        {
+            if ( resolution.getAddress().equals( result.getAddress() ) )
+            {
+                return;
+            }
+            if ( family.matches( resolution.getAddress() ) )
+            {
+                candidates.add( resolution.getAddress() );
+            }
+        }
+
+        if ( !candidates.isEmpty() )
+        {
+            LOGGER.warning( "Resolved address " + result + " is not bound to a local network interface, while these "
+                                + "globally routable addresses are: " + candidates );
+        }
+    }
+
+    /**
+     * Returns an address without the scope identifier that is attached to the addresses of network interfaces.
+     */
+    private static InetAddress stripScope( InetAddress address )
+    {
+        if ( !( address instanceof Inet6Address ) || ( (Inet6Address) address ).getScopeId() == 0 )
+        {
+            return address;
+        }
+        try
+        {
+            return InetAddress.getByAddress( address.getAddress() );
+        }
+        catch ( UnknownHostException e )
+        {
+            throw new IllegalStateException( "Unable to copy address " + address, e ); // Cannot happen.
+        }
+    }
+}
@@ -17,7 +17,9 @@
 package nl.goodbytes.network.utility.eip;
 
 import java.net.InetAddress;
-import java.util.concurrent.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * A instance that will resolve the external IP address of the host on which the application is executed.
@@ -31,32 +33,50 @@ import java.util.concurrent.*;
  * This implementation prefers web services that produce faster responses with less failures over others.
  *
  * This is a asynchronous implementation: the thread that invokes the various methods used to resolve the external IP
- * address will not block. Instead, a {@link Future} instance is returned, that can be used to obtain the result later.
+ * address will not block. Instead, a {@link CompletableFuture} is returned, that can be used to obtain the result
+ * later, or to compose further processing that is performed when the result becomes available. Cancelling such a future
+ * does not cancel the web service requests that are being made, as the result of those can be shared by other callers.
+ *
+ * No thread is used on behalf of an individual caller: cached values are returned as completed futures, and all
+ * callers that require a new value share one resolution. The executor that runs such resolutions can be replaced by
+ * {@link #setExecutor(Executor)}. By default, a bounded executor is used: when it is saturated, new resolutions are
+ * rejected and complete with the cached value, rather than causing ever more threads to be created. Executors that use
+ * virtual threads (where available) can be created by {@link ResolverExecutors#newVirtualThreadExecutor(int)}.
+ *
+ * Each instance wraps a {@link ResolverService}, which holds the cache and the configuration. Instances with their own
+ * configuration can be created by using {@link ResolverServiceBuilder#buildNonBlocking()}.
+ *
+ * Instead of repeatedly requesting the IP address to find out if it changed, listeners can be registered that are
+ * notified asynchronously when a change is detected (see
+ * {@link #addAddressChangeListener(AddressChangeListener, Executor)}).
  *
  * @author Guus der Kinderen, guus@goodbytes.nl
  */
-public class NonBlockingResolverService
+public class NonBlockingResolverService implements AutoCloseable
 {
-    private final static ExecutorService executor;
+    private static NonBlockingResolverService instance;
 
-    static
+    private final ResolverService service;
+    private volatile Executor executor;
+
+    /**
+     * Creates a new instance that uses the provided service, and initially the executor of that service.
+     *
+     * @param service The service that is used to resolve the IP address (cannot be null).
+     */
+    public NonBlockingResolverService( ResolverService service )
     {
-        // Ensure that the executor will not cause a JVM to remain running, by making all of its threads daemon.
-        executor = Executors.newCachedThreadPool( new ThreadFactory()
+        if ( service == null )
         {
-            public Thread newThread( Runnable runnable )
-            {
-                final Thread thread = Executors.defaultThreadFactory().newThread( runnable );
-                thread.setDaemon( true );
-                return thread;
-            }
-        } );
+            throw new IllegalArgumentException( "Argument 'service' cannot be null." );
+        }
+        this.service = service;
+        this.executor = service.getExecutor();
     }
 
-    private static NonBlockingResolverService instance;
-
     /**
-     * Returns the singleton instance of this implementation, lazily creating one if needed.
+     * Returns the singleton instance of this implementation, lazily creating one if needed. This instance uses the
+     * singleton instance of {@link ResolverService}.
      *
      * @return An instance (never null)
      */
@@ -64,22 +84,85 @@ public class NonBlockingResolverService
     {
         if ( instance == null )
         {
-            instance = new NonBlockingResolverService();
+            instance = new NonBlockingResolverService( ResolverService.getInstance() );
         }
         return instance;
     }
 
+    /**
+     * Returns the service that is used to resolve the IP address, which can be used to change its configuration.
+     *
+     * @return The service (never null).
+     */
+    public ResolverService getService()
+    {
+        return service;
+    }
+
+    /**
+     * Defines the executor that is used to invoke service providers. The service providers perform blocking network
+     * I/O, which should be taken into account when providing an executor. An unbounded executor can cause a thread to
+     * be created for every resolution that is started while service providers are unresponsive. Suitable, bounded
+     * executors are created by {@link ResolverExecutors}.
+     *
+     * @param executor The executor to use (cannot be null).
+     */
+    public void setExecutor( Executor executor )
+    {
+        if ( executor == null )
+        {
+            throw new IllegalArgumentException( "Argument 'executor' cannot be null." );
+        }
+        this.executor = executor;
+    }
+
+    /**
+     * Registers a listener that is notified, using the executor of this instance, whenever the resolved IP address
+     * changes. While at least one listener is registered, the IP address is monitored.
+     *
+     * @param listener The listener to register (cannot be null).
+     * @see ResolverService#setMonitorInterval(long, long, TimeUnit)
+     */
+    public void addAddressChangeListener( AddressChangeListener listener )
+    {
+        addAddressChangeListener( listener, executor );
+    }
+
+    /**
+     * Registers a listener that is notified, using the provided executor, whenever the resolved IP address changes.
+     * While at least one listener is registered, the IP address is monitored.
+     *
+     * @param listener The listener to register (cannot be null).
+     * @param executor The executor used to notify the listener (cannot be null).
+     * @see ResolverService#setMonitorInterval(long, long, TimeUnit)
+     */
+    public void addAddressChangeListener( AddressChangeListener listener, Executor executor )
+    {
+        service.addAddressChangeListener( listener, executor );
+    }
+
+    /**
+     * Removes a previously registered listener. This method has no effect when the listener was not registered.
+     *
+     * @param listener The listener to remove.
+     */
+    public void removeAddressChangeListener( AddressChangeListener listener )
+    {
+        service.removeAddressChangeListener( listener );
+    }
+
     /**
      * Returns the IP address of the host on which this application is executed, as resolved by one of the service
      * providers, or null if none of the providers were able to resolve the IP address.
      *
-     * Only when a cached response is older than 24 hours is a new execution preferred over the cached response.
+     * Only when a cached response is older than the default maximum age of the service (24 hours, unless configured
+     * otherwise) is a new execution preferred over the cached response.
      *
      * @return A resolved IP address, or null when all of the service providers failed.
      */
-    public Future<InetAddress> resolve()
+    public CompletableFuture<InetAddress> resolve()
     {
-        return resolve( 1, TimeUnit.DAYS );
+        return resolve( service.getMaximumAge( TimeUnit.MILLISECONDS ), TimeUnit.MILLISECONDS );
     }
 
     /**
@@ -93,17 +176,41 @@ public class NonBlockingResolverService
      * @param timeUnit The unit in which duration is expressed (cannot be null).
      * @return A resolved IP address, or null when all of the service providers failed.
      */
-    public Future<InetAddress> resolve( final long duration, final TimeUnit timeUnit )
+    public CompletableFuture<InetAddress> resolve( final long duration, final TimeUnit timeUnit )
     {
-        final Callable<InetAddress> callable = new Callable<InetAddress>()
-        {
-            @Override
-            public InetAddress call() throws Exception
-            {
-                return ResolverService.getInstance().resolve( duration, timeUnit );
-            }
-        };
+        return resolve( duration, timeUnit, service.getTimeout( TimeUnit.MILLISECONDS ), TimeUnit.MILLISECONDS );
+    }
+
+    /**
+     * Returns the IP address of the host on which this application is executed, as resolved by one of the service
+     * providers, or null if none of the providers were able to resolve the IP address.
+     *
+     * Only when a cached response is older than the duration specified in the arguments, then a new execution preferred
+     * over the cached response.
+     *
+     * No more than (approximately) the provided timeout is spent obtaining a new value. When that timeout expires, the
+     * cached value (if any) is returned.
+     *
+     * @param duration    The maximum preferred age of a cached entry. Can be zero or negative for forced cache refresh.
+     * @param timeUnit    The unit in which duration is expressed (cannot be null).
+     * @param timeout     The maximum duration of obtaining a new value. Must be positive.
+     * @param timeoutUnit The unit in which timeout is expressed (cannot be null).
+     * @return A resolved IP address, or null when all of the service providers failed.
+     */
+    public CompletableFuture<InetAddress> resolve( final long duration, final TimeUnit timeUnit,
+                                                   final long timeout, final TimeUnit timeoutUnit )
+    {
+        return service.resolveAsynchronously( duration, timeUnit, timeout, timeoutUnit, executor );
+    }
 
-        return executor.submit( callable );
+    /**
+     * Closes the service that is used to resolve the IP address, releasing its resources (see
+     * {@link ResolverService#close()}). An executor that was provided by {@link #setExecutor(Executor)} is not shut
+     * down.
+     */
+    @Override
+    public void close()
+    {
+        service.close();
     }
 }
@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2017 Guus der Kinderen. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package nl.goodbytes.network.utility.eip;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.file.*;
+import java.util.logging.Level;
+
+import static nl.goodbytes.network.utility.eip.ResolverService.LOGGER;
+
+/**
+ * Stores a {@link Resolution} in a small file, allowing the cached value to outlive the process that created it.
+ *
+ * The file contains one fixed-layout binary record: a magic number, a format version, the timestamp, the raw address
+ * bytes and the (class) name of the service provider. A new record is written to a temporary file in the same
+ * directory first, which then atomically replaces the existing file. As a result, concurrent processes that share the
+ * same file either read the previous or the new record, never a partially written one. On file systems that cannot
+ * atomically replace a file, the file is replaced non-atomically instead.
+ *
+ * Any problem reading or writing the file is logged, but otherwise ignored: the cache is an optimization only.
+ *
+ * @author Guus der Kinderen, guus@goodbytes.nl
+ */
+final class PersistentCache
+{
+    private static final int MAGIC = 0x45495043; // "EIPC"
+    private static final byte VERSION = 1;
+    private static final int MAXIMUM_SIZE = 1024;
+
+    private final Path path;
+
+    /**
+     * Creates a new instance, backed by the provided file. The file does not need to exist.
+     *
+     * @param path The file that holds the cached value (cannot be null).
+     */
+    PersistentCache( Path path )
+    {
+        if ( path == null )
+        {
+            throw new IllegalArgumentException( "Argument 'path' cannot be null." );
+        }
+        this.path = path.toAbsolutePath();
+    }
+
+    /**
+     * Returns the file that holds the cached value.
+     *
+     * @return A path (never null).
+     */
+    Path getPath()
+    {
+        return path;
+    }
+
+    /**
+     * Reads the cached value from the file.
+     *
+     * @return The cached resolution, or null when the file does not exist or cannot be read.
+     */
+    Resolution read()
+    {
+        if ( !Files.isRegularFile( path ) )
+        {
+            return null;
+        }
+
+        try
+        {
+            final byte[] content = Files.readAllBytes( path );
+            if ( content.length > MAXIMUM_SIZE )
+            {
+                LOGGER.warning( "Ignoring persistent cache file '" + path + "': it is too large." );
+                return null;
+            }
+
+            final DataInputStream in = new DataInputStream( new ByteArrayInputStream( content ) );
+            if ( in.readInt() != MAGIC || in.readByte() != VERSION )
+            {
+                LOGGER.warning( "Ignoring persistent cache file '" + path + "': unrecognized format." );
+                return null;
+            }
+            final long timestamp = in.readLong();
+            final byte[] address = new byte[ in.readUnsignedByte() ];
+            in.readFully( address );
+            final String source = in.readUTF();
+
+            final Resolution result = new Resolution( InetAddress.getByAddress( address ), timestamp, source );
+            LOGGER.finest( "Read from persistent cache file '" + path + "': " + result );
+            return result;
+        }
+        catch ( EOFException | UTFDataFormatException | UnknownHostException e )
+        {
+            LOGGER.warning( "Ignoring persistent cache file '" + path + "': its content is corrupt." );
+            return null;
+        }
+        catch ( IOException e )
+        {
+            LOGGER.log( Level.WARNING, "Unable to read persistent cache file '" + path + "'.", e );
+            return null;
+        }
+    }
+
+    /**
+     * Atomically replaces the content of the file with the provided value.
+     *
+     * @param resolution The resolution to store (cannot be null).
+     */
+    void write( Resolution resolution )
+    {
+        if ( resolution == null )
+        {
+            throw new IllegalArgumentException( "Argument 'resolution' cannot be null." );
+        }
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream( 64 );
+        try ( final DataOutputStream out = new DataOutputStream( bytes ) )
+        {
+            final byte[] address = resolution.getAddress().getAddress();
+            out.writeInt( MAGIC );
+            out.writeByte( VERSION );
+            out.writeLong( resolution.getTimestamp() );
+            out.writeByte( address.length );
+            out.write( address );
+            out.writeUTF( resolution.getSource() );
+        }
+        catch ( IOException e )
+        {
+            throw new IllegalStateException( "Unable to serialize " + resolution, e ); // In-memory: cannot happen.
+        }
+
+        Path temporary = null;
+        try
+        {
+            final Path directory = path.getParent();
+            if ( directory != null )
+            {
+                Files.createDirectories( directory );
+            }
+            temporary = Files.createTempFile( directory, path.getFileName().toString(), ".tmp" );
+            Files.write( temporary, bytes.toByteArray() );
+            try
+            {
+                Files.move( temporary, path, StandardCopyOption.ATOMIC_MOVE );
+            }
+            catch ( AtomicMoveNotSupportedException | FileAlreadyExistsException e )
+            {
+                // Whether an atomic move replaces an existing file is implementation specific.
+                LOGGER.finest( "Unable to atomically replace persistent cache file '" + path + "': " + e );
+                Files.move( temporary, path, StandardCopyOption.REPLACE_EXISTING );
+            }
+            temporary = null;
+            LOGGER.finest( "Wrote to persistent cache file '" + path + "': " + resolution );
+        }
+        catch ( IOException e )
+        {
+            LOGGER.log( Level.WARNING, "Unable to write persistent cache file '" + path + "'.", e );
+        }
+        finally
+        {
+            if ( temporary != null )
+            {
+                try
+                {
+                    Files.deleteIfExists( temporary );
+                }
+                catch ( IOException e )
+                {
+                    LOGGER.log( Level.FINEST, "Unable to remove temporary file '" + temporary + "'.", e );
+                }
+            }
+        }
+    }
+}
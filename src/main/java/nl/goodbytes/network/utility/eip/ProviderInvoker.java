@@ -0,0 +1,576 @@
+/*
+ * Copyright (c) 2017 Guus der Kinderen. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.goodbytes.network.utility.eip;
+
+import nl.goodbytes.network.utility.eip.spi.FamilyAwareResolver;
+import nl.goodbytes.network.utility.eip.spi.Resolver;
+import nl.goodbytes.network.utility.eip.spi.WeightedResolver;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.InetAddress;
+import java.net.SocketTimeoutException;
+import java.nio.channels.ClosedByInterruptException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.logging.Level;
+
+import static nl.goodbytes.network.utility.eip.ResolverService.LOGGER;
+
+/**
+ * Invokes the service providers of a {@link ResolverService}, using the resolution mode, provider ordering and rate
+ * limits that are configured for it, and keeps the rate limiting bookkeeping of each service provider.
+ *
+ * Service providers that are invoked concurrently (in {@link ResolutionMode#HEDGED} and {@link ResolutionMode#QUORUM}
+ * mode) are invoked using an executor of this instance, that is separate from the executor that runs resolutions.
+ * That executor does not queue tasks: when all its threads are busy, the resolution invokes the service provider
+ * itself. Invocations are therefore never queued behind the resolutions that wait for them.
+ *
+ * @author Guus der Kinderen, guus@goodbytes.nl
+ */
+final class ProviderInvoker
+{
+    private final ResolverService service;
+    private final ServiceMetrics metrics;
+    private final List<Resolver> providers;
+    private final Map<Resolver, TokenBucket> buckets;
+    private final ExecutorService invocationExecutor = ResolverExecutors.newBoundedExecutor( 16, 0 );
+    private final List<QuorumListener> quorumListeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * @param service   The service on behalf of which service providers are invoked (cannot be null).
+     * @param metrics   The metrics of that service (cannot be null).
+     * @param providers The service providers of that service (cannot be null).
+     */
+    ProviderInvoker( ResolverService service, ServiceMetrics metrics, List<Resolver> providers )
+    {
+        this.service = service;
+        this.metrics = metrics;
+        this.providers = providers;
+        final Map<Resolver, TokenBucket> created = new HashMap<>();
+        for ( final Resolver resolver : providers )
+        {
+            created.put( resolver, new TokenBucket() );
+        }
+        buckets = Collections.unmodifiableMap( created );
+    }
+
+    /**
+     * Shuts down the executor that is used to invoke service providers concurrently. Service providers that are
+     * invoked afterwards are invoked by the thread that performs the resolution.
+     */
+    void close()
+    {
+        invocationExecutor.shutdown();
+    }
+
+    /**
+     * Returns the rate limiting bookkeeping of a service provider.
+     *
+     * @param resolver The service provider (cannot be null).
+     * @return The bookkeeping, or null when the resolver is not a service provider of the service.
+     */
+    TokenBucket getBucket( Resolver resolver )
+    {
+        return buckets.get( resolver );
+    }
+
+    /**
+     * Registers a listener that is notified when service providers report different IP addresses in
+     * {@link ResolutionMode#QUORUM} mode.
+     *
+     * @param listener The listener to register (cannot be null).
+     */
+    void addQuorumListener( QuorumListener listener )
+    {
+        quorumListeners.add( listener );
+    }
+
+    /**
+     * Removes a previously registered listener. This method has no effect when the listener was not registered.
+     *
+     * @param listener The listener to remove.
+     */
+    void removeQuorumListener( QuorumListener listener )
+    {
+        quorumListeners.remove( listener );
+    }
+
+    /**
+     * Invokes service providers, using the configured resolution mode.
+     *
+     * @param slot     The state of the address family to resolve (cannot be null).
+     * @param deadline The moment after which no more time is to be spent (cannot be null).
+     * @return A resolution, or null when all of the service providers failed.
+     */
+    Resolution invoke( final Slot slot, final Deadline deadline )
+    {
+        final List<Resolver> resolvers = getRankedResolvers( slot );
+        final Resolution result;
+        switch ( service.getResolutionMode() )
+        {
+            case HEDGED:
+                result = resolveHedged( resolvers, slot, deadline );
+                break;
+
+            case QUORUM:
+                result = resolveByQuorum( resolvers, slot, deadline );
+                break;
+
+            default:
+                result = resolveSequentially( resolvers, slot, deadline );
+                break;
+        }
+        return result;
+    }
+
+    /**
+     * Invokes each resolver in turn, until one of them returns a result or the deadline expires.
+     *
+     * @param resolvers The resolvers to invoke, in order of preference (cannot be null).
+     * @param slot      The state of the address family to resolve (cannot be null).
+     * @param deadline  The moment after which no more resolvers are to be invoked (cannot be null).
+     * @return A resolved IP address, or null when all resolvers failed.
+     */
+    private Resolution resolveSequentially( final List<Resolver> resolvers, final Slot slot, final Deadline deadline )
+    {
+        for ( final Resolver resolver : resolvers )
+        {
+            if ( deadline.hasExpired() )
+            {
+                LOGGER.finest( "Deadline expired before all resolvers could be invoked." );
+                break;
+            }
+
+            final Resolution result = attempt( resolver, slot, deadline );
+            if ( result != null )
+            {
+                return result;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Invokes the first resolver, and invokes additional resolvers whenever no response was received within the hedge
+     * delay, or when a previous invocation failed. No more than the maximum fan-out of resolvers are invoked
+     * concurrently. The first valid result is returned, after which all other invocations are cancelled. No result is
+     * waited for after the deadline expires.
+     *
+     * Invocations that are rejected by the executor are made by the current thread instead.
+     *
+     * @param resolvers The resolvers to invoke, in order of preference (cannot be null).
+     * @param slot      The state of the address family to resolve (cannot be null).
+     * @param deadline  The moment after which no more time is to be spent (cannot be null).
+     * @return A resolved IP address, or null when all resolvers failed.
+     */
+    private Resolution resolveHedged( final List<Resolver> resolvers, final Slot slot, final Deadline deadline )
+    {
+        final long delay = service.getHedgeDelay( TimeUnit.MILLISECONDS );
+        final int fanOut = service.getMaximumFanOut();
+        final CompletionService<Resolution> completionService =
+            new ExecutorCompletionService<>( callerRunsWhenRejected() );
+        final List<Future<Resolution>> attempts = new ArrayList<>();
+        final Iterator<Resolver> pending = resolvers.iterator();
+        int active = 0;
+        try
+        {
+            while ( true )
+            {
+                if ( pending.hasNext() && active < fanOut )
+                {
+                    final Resolver resolver = pending.next();
+                    attempts.add( completionService.submit( new Callable<Resolution>()
+                    {
+                        @Override
+                        public Resolution call() throws Exception
+                        {
+                            return attempt( resolver, slot, deadline );
+                        }
+                    } ) );
+                    active++;
+                }
+
+                if ( active == 0 )
+                {
+                    return null;
+                }
+
+                final long remaining = deadline.remaining( TimeUnit.MILLISECONDS );
+                final boolean canHedge = pending.hasNext() && active < fanOut && delay < remaining;
+                final Future<Resolution> completed = completionService.poll( canHedge ? delay : remaining,
+                                                                             TimeUnit.MILLISECONDS );
+                if ( completed == null )
+                {
+                    if ( !canHedge )
+                    {
+                        LOGGER.finest( "Deadline expired before any resolver responded." );
+                        return null;
+                    }
+                    LOGGER.finest( "No response within hedge delay. Invoking an additional resolver." );
+                    continue;
+                }
+                active--;
+
+                try
+                {
+                    final Resolution result = completed.get();
+                    if ( result != null )
+                    {
+                        return result;
+                    }
+                }
+                catch ( ExecutionException e )
+                {
+                    LOGGER.log( Level.WARNING, "Resolver invocation failed unexpectedly.", e.getCause() );
+                }
+            }
+        }
+        catch ( InterruptedException e )
+        {
+            LOGGER.log( Level.FINE, "Interrupted while waiting for resolvers to respond.", e );
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        finally
+        {
+            for ( final Future<Resolution> attempt : attempts )
+            {
+                attempt.cancel( true );
+            }
+        }
+    }
+
+    /**
+     * Invokes resolvers concurrently (up to the maximum fan-out), until the quorum size number of resolvers reported
+     * the same IP address. Whenever an invocation completes without that quorum being reached, another resolver is
+     * invoked. All other invocations are cancelled as soon as the quorum is reached. No result is waited for after the
+     * deadline expires.
+     *
+     * Invocations that are rejected by the executor are made by the current thread instead.
+     *
+     * @param resolvers The resolvers to invoke, in order of preference (cannot be null).
+     * @param slot      The state of the address family to resolve (cannot be null).
+     * @param deadline  The moment after which no more time is to be spent (cannot be null).
+     * @return The resolution of the resolver that completed the quorum, or null when no quorum was reached.
+     */
+    private Resolution resolveByQuorum( final List<Resolver> resolvers, final Slot slot, final Deadline deadline )
+    {
+        final int required = service.getQuorum();
+        final int fanOut = service.getMaximumFanOut();
+        final CompletionService<Resolution> completionService =
+            new ExecutorCompletionService<>( callerRunsWhenRejected() );
+        final List<Future<Resolution>> attempts = new ArrayList<>();
+        final List<Resolution> responses = new ArrayList<>();
+        final Map<InetAddress, Integer> votes = new HashMap<>();
+        final Iterator<Resolver> pending = resolvers.iterator();
+        int active = 0;
+        Resolution agreed = null;
+        try
+        {
+            while ( agreed == null )
+            {
+                while ( pending.hasNext() && active < fanOut )
+                {
+                    final Resolver resolver = pending.next();
+                    attempts.add( completionService.submit( new Callable<Resolution>()
+                    {
+                        @Override
+                        public Resolution call() throws Exception
+                        {
+                            return attempt( resolver, slot, deadline );
+                        }
+                    } ) );
+                    active++;
+                }
+
+                if ( active == 0 )
+                {
+                    LOGGER.finest( "All resolvers were invoked, but no quorum was reached." );
+                    break;
+                }
+
+                final long remaining = deadline.remaining( TimeUnit.MILLISECONDS );
+                final Future<Resolution> completed = completionService.poll( remaining, TimeUnit.MILLISECONDS );
+                if ( completed == null )
+                {
+                    LOGGER.finest( "Deadline expired before a quorum was reached." );
+                    break;
+                }
+                active--;
+
+                try
+                {
+                    final Resolution result = completed.get();
+                    if ( result != null )
+                    {
+                        responses.add( result );
+                        final Integer previous = votes.get( result.getAddress() );
+                        final int count = previous == null ? 1 : previous + 1;
+                        votes.put( result.getAddress(), count );
+                        if ( count >= required )
+                        {
+                            agreed = result;
+                        }
+                    }
+                }
+                catch ( ExecutionException e )
+                {
+                    LOGGER.log( Level.WARNING, "Resolver invocation failed unexpectedly.", e.getCause() );
+                }
+            }
+        }
+        catch ( InterruptedException e )
+        {
+            LOGGER.log( Level.FINE, "Interrupted while waiting for resolvers to respond.", e );
+            Thread.currentThread().interrupt();
+        }
+        finally
+        {
+            for ( final Future<Resolution> attempt : attempts )
+            {
+                attempt.cancel( true );
+            }
+        }
+
+        if ( votes.size() > 1 )
+        {
+            notifyDisagreement( responses, agreed == null ? null : agreed.getAddress() );
+        }
+        return agreed;
+    }
+
+    /**
+     * Returns an executor that delegates to the executor that invokes service providers concurrently, but that runs
+     * tasks that are rejected by it in the calling thread. This ensures that resolvers can be invoked even when that
+     * executor is saturated, without requiring additional threads.
+     *
+     * @return An executor (never null).
+     */
+    private Executor callerRunsWhenRejected()
+    {
+        return new Executor()
+        {
+            @Override
+            public void execute( Runnable task )
+            {
+                try
+                {
+                    invocationExecutor.execute( task );
+                }
+                catch ( RejectedExecutionException e )
+                {
+                    LOGGER.finest( "Executor rejected a resolver invocation. Invoking it in the current thread." );
+                    task.run();
+                }
+            }
+        };
+    }
+
+    private void notifyDisagreement( List<Resolution> responses, InetAddress agreed )
+    {
+        LOGGER.warning( "Resolvers reported different addresses: " + responses );
+        final List<Resolution> unmodifiable = Collections.unmodifiableList( responses );
+        for ( final QuorumListener listener : quorumListeners )
+        {
+            try
+            {
+                listener.disagreementDetected( unmodifiable, agreed );
+            }
+            catch ( RuntimeException e )
+            {
+                LOGGER.log( Level.WARNING, "Quorum listener threw an exception.", e );
+            }
+        }
+    }
+
+    /**
+     * Invokes one resolver, recording the duration or failure of the invocation. The resolver is not invoked when its
+     * circuit breaker does not permit it.
+     *
+     * An invocation that is cancelled (which interrupts the invoking thread, for example when another resolver
+     * responded first in {@link ResolutionMode#HEDGED} mode) is not recorded as a failure, as it does not reflect the
+     * health of the resolver.
+     *
+     * @param resolver The resolver to invoke (cannot be null).
+     * @param slot     The state of the address family to resolve (cannot be null).
+     * @param deadline The moment after which no more time is to be spent (cannot be null).
+     * @return The resolution, or null when the resolver failed or was not invoked.
+     */
+    private Resolution attempt( final Resolver resolver, final Slot slot, final Deadline deadline )
+    {
+        final long remaining = deadline.remaining( TimeUnit.MILLISECONDS );
+        if ( remaining <= 0 )
+        {
+            return null;
+        }
+
+        // Checked before the circuit breaker, which must not grant permission for an invocation that is not made.
+        final TokenBucket bucket = buckets.get( resolver );
+        final RateLimit limit = service.getRateLimit( resolver );
+        if ( !bucket.tryAcquire( limit ) )
+        {
+            LOGGER.finest( "Resolver '" + resolver.getClass().getName() + "' skipped: its rate limit is exhausted." );
+            return null;
+        }
+
+        final ResolverState state = slot.getState( resolver );
+        if ( !state.breaker.tryAcquire() )
+        {
+            // No invocation is made, so none is to be charged against the rate limit.
+            bucket.refund( limit );
+            LOGGER.finest( "Resolver '" + resolver.getClass().getName() + "' skipped: its circuit breaker is open." );
+            return null;
+        }
+
+        boolean success = false;
+        boolean cancelled = false;
+        metrics.inFlightRequests.incrementAndGet();
+        try
+        {
+            LOGGER.finest( "Resolver '" + resolver.getClass().getName() + "' is about to be invoked." );
+
+            final long start = System.nanoTime();
+            final InetAddress result = slot.family == null
+                ? resolver.resolveAddress( remaining, TimeUnit.MILLISECONDS )
+                : ( (FamilyAwareResolver) resolver ).resolveAddress( slot.family, remaining, TimeUnit.MILLISECONDS );
+            if ( result == null )
+            {
+                return null;
+            }
+            state.score.recordSuccess( System.nanoTime() - start );
+            success = true;
+
+            LOGGER.finest( "Resolver '" + resolver.getClass().getName() + "' successfully resolved: " + result );
+            return new Resolution( result, System.currentTimeMillis(), resolver.getClass().getName() );
+        }
+        catch ( IOException | ParseException e )
+        {
+            if ( isCancellation( e ) )
+            {
+                cancelled = true;
+                LOGGER.finest( "Resolver '" + resolver.getClass().getName() + "' was cancelled." );
+                return null;
+            }
+            LOGGER.log( Level.WARNING, "Resolver '" + resolver.getClass().getName() + "' failed.", e );
+            return null;
+        }
+        finally
+        {
+            metrics.inFlightRequests.decrementAndGet();
+            if ( success )
+            {
+                state.breaker.onSuccess();
+            }
+            else if ( cancelled )
+            {
+                state.breaker.onCancelled();
+            }
+            else
+            {
+                state.score.recordFailure();
+                state.breaker.onFailure();
+            }
+        }
+    }
+
+    /**
+     * Checks if the failure of an invocation was caused by cancelling it, rather than by the resolver. Cancellation
+     * interrupts the invoking thread, which causes interruptible I/O to fail with an exception that reports the
+     * interruption. Blocking socket I/O is not always interruptible: the interrupt status of the thread then still
+     * identifies the cancellation, after the I/O failed or timed out.
+     *
+     * @param e The exception that caused the invocation to fail (cannot be null).
+     * @return true if the invocation was cancelled, otherwise false.
+     */
+    private static boolean isCancellation( Exception e )
+    {
+        return Thread.currentThread().isInterrupted()
+            || e instanceof ClosedByInterruptException
+            || ( e instanceof InterruptedIOException && !( e instanceof SocketTimeoutException ) );
+    }
+
+    /**
+     * Returns all resolvers that are permitted by their circuit breaker, in the order that is defined by the provider
+     * ordering. Rate limits are not applied here, but when a resolver is about to be invoked, so that a rejection is
+     * recorded only for an invocation that would otherwise have been made. When ordered by their expected cost
+     * (cheapest first), the cost of each resolver is randomly varied a bit before ordering, to spread the load over
+     * resolvers with a comparable performance, and is divided by the weight of resolvers that have one. Resolvers of
+     * equal cost (such as those that have not been invoked yet) are ordered by descending weight. When resolving a
+     * specific address family, only resolvers that support that are returned.
+     *
+     * @param slot The state of the address family to resolve (cannot be null).
+     * @return All available resolvers, in order of preference.
+     */
+    List<Resolver> getRankedResolvers( Slot slot )
+    {
+        final boolean byCost = service.getProviderOrdering() == ProviderOrdering.BY_EXPECTED_COST;
+        final List<Ranked> ranked = new ArrayList<>();
+        for ( final Resolver resolver : providers )
+        {
+            if ( slot.family != null && !( resolver instanceof FamilyAwareResolver ) )
+            {
+                continue;
+            }
+
+            final ResolverState state = slot.getState( resolver );
+            if ( !state.breaker.isCallPermitted() )
+            {
+                continue;
+            }
+            final double weight = resolver instanceof WeightedResolver
+                ? ( (WeightedResolver) resolver ).getWeight()
+                : 1;
+            final double cost = byCost
+                ? state.score.getExpectedCost() * ThreadLocalRandom.current().nextDouble( 0.8, 1.25 ) / weight
+                : ranked.size();
+            ranked.add( new Ranked( resolver, cost, weight ) );
+        }
+        Collections.sort( ranked );
+
+        final List<Resolver> resolvers = new ArrayList<>( ranked.size() );
+        for ( final Ranked entry : ranked )
+        {
+            resolvers.add( entry.resolver );
+        }
+        return resolvers;
+    }
+
+    /**
+     * A resolver, paired with the cost and weight that are used to order it.
+     */
+    private static final class Ranked implements Comparable<Ranked>
+    {
+        final Resolver resolver;
+        final double cost;
+        final double weight;
+
+        Ranked( Resolver resolver, double cost, double weight )
+        {
+            this.resolver = resolver;
+            this.cost = cost;
+            this.weight = weight;
+        }
+
+        @Override
+        public int compareTo( Ranked other )
+        {
+            final int result = Double.compare( cost, other.cost );
+            return result != 0 ? result : Double.compare( other.weight, weight );
+        }
+    }
+}
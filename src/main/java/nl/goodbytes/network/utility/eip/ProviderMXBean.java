@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2017 Guus der Kinderen. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.goodbytes.network.utility.eip;
+
+/**
+ * Metrics of one service provider, as used by a {@link ResolverService}.
+ *
+ * All counts are cumulative, since the service provider was instantiated. Durations are expressed in microseconds. The
+ * state of the circuit breaker is the one that is used to resolve addresses of any family.
+ *
+ * @author Guus der Kinderen, guus@goodbytes.nl
+ * @see ResolverService#getProviderMetrics()
+ */
+public interface ProviderMXBean
+{
+    /**
+     * Returns the (class) name of the service provider.
+     *
+     * @return A name (never null).
+     */
+    String getName();
+
+    /**
+     * Returns the number of successful invocations.
+     *
+     * @return An invocation count, zero or positive.
+     */
+    long getSuccessCount();
+
+    /**
+     * Returns the number of invocations that failed for a reason other than a timeout.
+     *
+     * @return An invocation count, zero or positive.
+     */
+    long getFailureCount();
+
+    /**
+     * Returns the number of invocations that timed out.
+     *
+     * @return An invocation count, zero or positive.
+     */
+    long getTimeoutCount();
+
+    /**
+     * Returns the mean duration of successful invocations.
+     *
+     * @return A duration in microseconds. Zero when no invocation was successful yet.
+     */
+    long getLatencyMean();
+
+    /**
+     * Returns the median duration of successful invocations.
+     *
+     * @return A duration in microseconds. Zero when no invocation was successful yet.
+     */
+    long getLatency50thPercentile();
+
+    /**
+     * Returns the 95th percentile of the duration of successful invocations.
+     *
+     * @return A duration in microseconds. Zero when no invocation was successful yet.
+     */
+    long getLatency95thPercentile();
+
+    /**
+     * Returns the 99th percentile of the duration of successful invocations.
+     *
+     * @return A duration in microseconds. Zero when no invocation was successful yet.
+     */
+    long getLatency99thPercentile();
+
+    /**
+     * Returns the state of the circuit breaker that guards the service provider.
+     *
+     * @return The name of a {@link CircuitBreakerState} (never null).
+     */
+    String getCircuitBreakerState();
+
+    /**
+     * Returns the number of times that the service provider was not invoked, because its rate limit was exhausted.
+     *
+     * @return An invocation count, zero or positive.
+     */
+    long getRateLimitedCount();
+}
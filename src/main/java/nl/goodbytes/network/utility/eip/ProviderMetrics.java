@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2017 Guus der Kinderen. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.goodbytes.network.utility.eip;
+
+import nl.goodbytes.network.utility.eip.spi.LatencyHistogram;
+import nl.goodbytes.network.utility.eip.spi.Resolver;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exposes the statistics of a service provider, and the state of the circuit breaker and rate limit that guard it.
+ *
+ * @author Guus der Kinderen, guus@goodbytes.nl
+ */
+final class ProviderMetrics implements ProviderMXBean
+{
+    private final Resolver resolver;
+    private final ResolverState state;
+    private final TokenBucket bucket;
+
+    ProviderMetrics( Resolver resolver, ResolverState state, TokenBucket bucket )
+    {
+        this.resolver = resolver;
+        this.state = state;
+        this.bucket = bucket;
+    }
+
+    @Override
+    public String getName()
+    {
+        return resolver.getClass().getName();
+    }
+
+    @Override
+    public long getSuccessCount()
+    {
+        return histogram().getSuccessCount();
+    }
+
+    @Override
+    public long getFailureCount()
+    {
+        return histogram().getFailureCount();
+    }
+
+    @Override
+    public long getTimeoutCount()
+    {
+        return histogram().getTimeoutCount();
+    }
+
+    @Override
+    public long getLatencyMean()
+    {
+        return histogram().getMean( TimeUnit.MICROSECONDS );
+    }
+
+    @Override
+    public long getLatency50thPercentile()
+    {
+        return histogram().getPercentile( 50, TimeUnit.MICROSECONDS );
+    }
+
+    @Override
+    public long getLatency95thPercentile()
+    {
+        return histogram().getPercentile( 95, TimeUnit.MICROSECONDS );
+    }
+
+    @Override
+    public long getLatency99thPercentile()
+    {
+        return histogram().getPercentile( 99, TimeUnit.MICROSECONDS );
+    }
+
+    @Override
+    public String getCircuitBreakerState()
+    {
+        return state.breaker.getState().name();
+    }
+
+    @Override
+    public long getRateLimitedCount()
+    {
+        return bucket.getRejectionCount();
+    }
+
+    private LatencyHistogram histogram()
+    {
+        return resolver.getLatencyHistogram();
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2017 Guus der Kinderen. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.goodbytes.network.utility.eip;
+
+/**
+ * The order in which {@link ResolverService} considers its service providers when resolving an IP address. Service
+ * providers of which the circuit breaker is open are skipped, irrespective of the ordering.
+ *
+ * @author Guus der Kinderen, guus@goodbytes.nl
+ */
+public enum ProviderOrdering
+{
+    /**
+     * Service providers that produced faster responses with less failures are preferred over others. Providers with a
+     * comparable performance are ordered randomly, to spread the load. The expected cost of a provider that has a
+     * weight (see {@link nl.goodbytes.network.utility.eip.spi.WeightedResolver}) is divided by that weight.
+     */
+    BY_EXPECTED_COST,
+
+    /**
+     * Service providers are considered in the order in which they were configured, for example to prefer a service
+     * that is operated in-house over public services.
+     */
+    AS_CONFIGURED
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2017 Guus der Kinderen. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.goodbytes.network.utility.eip;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+import static nl.goodbytes.network.utility.eip.ResolverService.LOGGER;
+
+/**
+ * A TCP endpoint, bound to the loopback interface, that reports the IP address as resolved by a {@link ResolverService}
+ * to local processes.
+ *
+ * The protocol is as simple as can be: upon accepting a connection, the endpoint writes the textual representation of
+ * the IP address, followed by a line feed, after which the connection is closed. Nothing is read from the client. When
+ * no IP address is available, the connection is closed without writing anything. This allows a shell script to obtain
+ * the address using tools like <tt>nc</tt>, without starting a JVM.
+ *
+ * Connections are accepted and answered by one thread, which never waits for web service requests: the IP address is
+ * taken from the cache of the service, so that a client cannot delay others. When no IP address has been resolved yet,
+ * or when the cached one is older than the maximum age of the service, a resolution is started asynchronously. A
+ * background refresh on the service prevents that from being needed. Clients that connect while no IP address has
+ * been resolved yet receive no response.
+ *
+ * The response is a few dozen bytes, which fit in the send buffer of the socket: writing it does not wait for the
+ * client to read it.
+ *
+ * @author Guus der Kinderen, guus@goodbytes.nl
+ */
+final class QueryEndpoint implements Runnable, Closeable
+{
+    private final ResolverService service;
+    private final ServerSocket serverSocket;
+
+    /**
+     * Creates a new instance, binding it to the provided port on the loopback interface.
+     *
+     * @param service The service that is used to resolve the IP address (cannot be null).
+     * @param port    The TCP port to bind to, or zero to use any free port.
+     * @throws IOException When the port cannot be bound.
+     */
+    QueryEndpoint( ResolverService service, int port ) throws IOException
+    {
+        if ( service == null )
+        {
+            throw new IllegalArgumentException( "Argument 'service' cannot be null." );
+        }
+        if ( port < 0 || port > 65535 )
+        {
+            throw new IllegalArgumentException( "Argument 'port' must be in the range of 0 to 65535 (inclusive)." );
+        }
+        this.service = service;
+        this.serverSocket = new ServerSocket();
+        try
+        {
+            serverSocket.setReuseAddress( true );
+            serverSocket.bind( new InetSocketAddress( InetAddress.getLoopbackAddress(), port ) );
+        }
+        catch ( IOException e )
+        {
+            serverSocket.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the TCP port to which this endpoint is bound.
+     *
+     * @return A port number.
+     */
+    int getPort()
+    {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Accepts connections, responding to each of them in turn, until this endpoint is closed.
+     */
+    @Override
+    public void run()
+    {
+        LOGGER.fine( "Accepting queries on " + serverSocket.getLocalSocketAddress() );
+        while ( !serverSocket.isClosed() )
+        {
+            try ( final Socket client = serverSocket.accept() )
+            {
+                respond( client );
+            }
+            catch ( SocketException e )
+            {
+                if ( !serverSocket.isClosed() )
+                {
+                    LOGGER.log( Level.FINE, "Unable to respond to a query.", e );
+                }
+            }
+            catch ( IOException e )
+            {
+                LOGGER.log( Level.FINE, "Unable to respond to a query.", e );
+            }
+        }
+        LOGGER.fine( "No longer accepting queries." );
+    }
+
+    private void respond( Socket client ) throws IOException
+    {
+        client.setTcpNoDelay( true );
+
+        final Resolution resolution = service.getCachedResolution();
+        if ( resolution == null || isExpired( resolution ) )
+        {
+            service.refreshAsynchronously();
+        }
+        if ( resolution == null )
+        {
+            return;
+        }
+
+        final OutputStream out = client.getOutputStream();
+        out.write( ( resolution.getAddress().getHostAddress() + '\n' ).getBytes( StandardCharsets.US_ASCII ) );
+        out.flush();
+        client.shutdownOutput();
+    }
+
+    private boolean isExpired( Resolution resolution )
+    {
+        final long age = System.currentTimeMillis() - resolution.getTimestamp();
+        return age > service.getMaximumAge( TimeUnit.MILLISECONDS );
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        serverSocket.close();
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2017 Guus der Kinderen. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.goodbytes.network.utility.eip;
+
+import java.net.InetAddress;
+import java.util.List;
+
+/**
+ * Receives notifications of service providers that, in {@link ResolutionMode#QUORUM} mode, report different IP
+ * addresses.
+ *
+ * @author Guus der Kinderen, guus@goodbytes.nl
+ * @see ResolverService#addQuorumListener(QuorumListener)
+ */
+public interface QuorumListener
+{
+    /**
+     * Invoked when not all service providers that responded during one resolution reported the same IP address.
+     *
+     * This method is invoked by the thread that performs the resolution. Implementations should return quickly.
+     *
+     * @param responses All responses that were received (never null).
+     * @param agreed    The IP address on which the quorum agreed, or null when no quorum was reached.
+     */
+    void disagreementDetected( List<Resolution> responses, InetAddress agreed );
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2017 Guus der Kinderen. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.goodbytes.network.utility.eip;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The maximum rate at which a {@link ResolverService} invokes one service provider.
+ *
+ * A rate limit allows a number of invocations per period. Unused invocations accumulate, up to that same number, so
+ * that a burst of invocations is allowed after a quiet period. This is the behavior of a token bucket, of which the
+ * capacity is the number of invocations, and that is refilled at a steady rate of that number per period.
+ *
+ * Instances are immutable.
+ *
+ * @author Guus der Kinderen, guus@goodbytes.nl
+ * @see ResolverService#setDefaultRateLimit(RateLimit)
+ * @see ResolverService#setRateLimit(Resolver, RateLimit)
+ * @see ResolverService#setRateLimit(Class, RateLimit)
+ */
+public final class RateLimit
+{
+    /**
+     * A rate limit that allows an unlimited number of invocations.
+     */
+    public static final RateLimit NONE = new RateLimit( 0, 0 );
+
+    private final int permits;
+    private final long period;
+
+    private RateLimit( int permits, long period )
+    {
+        this.permits = permits;
+        this.period = period;
+    }
+
+    /**
+     * Creates a rate limit that allows a number of invocations per period.
+     *
+     * @param permits  The number of invocations that is allowed per period, which is also the maximum size of a burst.
+     *                 Must be one or more.
+     * @param period   The period. Must be at least one millisecond.
+     * @param timeUnit The unit in which period is expressed (cannot be null).
+     * @return A rate limit (never null).
+     */
+    public static RateLimit of( int permits, long period, TimeUnit timeUnit )
+    {
+        if ( permits < 1 )
+        {
+            throw new IllegalArgumentException( "Argument 'permits' must be one or more." );
+        }
+        if ( timeUnit.toMillis( period ) < 1 )
+        {
+            throw new IllegalArgumentException( "Argument 'period' must be at least one millisecond." );
+        }
+        return new RateLimit( permits, timeUnit.toNanos( period ) );
+    }
+
+    /**
+     * Checks if this rate limit allows an unlimited number of invocations.
+     *
+     * @return true if invocations are not limited, otherwise false.
+     */
+    public boolean isUnlimited()
+    {
+        return permits == 0;
+    }
+
+    /**
+     * Returns the number of invocations that is allowed per period.
+     *
+     * @return A number of invocations, or zero when invocations are not limited.
+     */
+    public int getPermits()
+    {
+        return permits;
+    }
+
+    /**
+     * Returns the period in which the number of invocations is allowed.
+     *
+     * @param timeUnit The unit in which the returned value is expressed (cannot be null).
+     * @return A period, or zero when invocations are not limited.
+     */
+    public long getPeriod( TimeUnit timeUnit )
+    {
+        return timeUnit.convert( period, TimeUnit.NANOSECONDS );
+    }
+
+    /**
+     * Returns the duration, in nanoseconds, in which one invocation is permitted again.
+     *
+     * @return A duration in nanoseconds, positive unless invocations are not limited.
+     */
+    long getInterval()
+    {
+        return isUnlimited() ? 0 : Math.max( 1, period / permits );
+    }
+
+    @Override
+    public boolean equals( Object o )
+    {
+        if ( this == o )
+        {
+            return true;
+        }
+        if ( !( o instanceof RateLimit ) )
+        {
+            return false;
+        }
+        final RateLimit that = (RateLimit) o;
+        return permits == that.permits && period == that.period;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return 31 * permits + (int) ( period ^ ( period >>> 32 ) );
+    }
+
+    @Override
+    public String toString()
+    {
+        return isUnlimited() ? "unlimited" : permits + " per " + TimeUnit.NANOSECONDS.toMillis( period ) + "ms";
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2017 Guus der Kinderen. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.goodbytes.network.utility.eip;
+
+import java.net.InetAddress;
+
+/**
+ * An immutable representation of the outcome of a successful resolution: the IP address, the moment at which it was
+ * obtained, and the service provider that produced it.
+ *
+ * @author Guus der Kinderen, guus@goodbytes.nl
+ */
+public final class Resolution
+{
+    private final InetAddress address;
+    private final long timestamp;
+    private final String source;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param address   The resolved IP address (cannot be null).
+     * @param timestamp The moment at which the address was obtained, in milliseconds since the epoch.
+     * @param source    The (class) name of the service provider that resolved the address (cannot be null).
+     */
+    public Resolution( InetAddress address, long timestamp, String source )
+    {
+        if ( address == null )
+        {
+            throw new IllegalArgumentException( "Argument 'address' cannot be null." );
+        }
+        if ( source == null )
+        {
+            throw new IllegalArgumentException( "Argument 'source' cannot be null." );
+        }
+        this.address = address;
+        this.timestamp = timestamp;
+        this.source = source;
+    }
+
+    /**
+     * Returns the resolved IP address.
+     *
+     * @return An IP address (never null).
+     */
+    public InetAddress getAddress()
+    {
+        return address;
+    }
+
+    /**
+     * Returns the moment at which the address was obtained.
+     *
+     * @return A timestamp, in milliseconds since the epoch.
+     */
+    public long getTimestamp()
+    {
+        return timestamp;
+    }
+
+    /**
+     * Returns the (class) name of the service provider that resolved the address.
+     *
+     * @return A name (never null).
+     */
+    public String getSource()
+    {
+        return source;
+    }
+
+    @Override
+    public String toString()
+    {
+        return address.getHostAddress() + " (resolved by '" + source + "' at " + timestamp + ")";
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2017 Guus der Kinderen. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.goodbytes.network.utility.eip;
+
+/**
+ * The strategy that is used by {@link ResolverService} to invoke service providers when no (valid) cached value is
+ * available.
+ *
+ * @author Guus der Kinderen, guus@goodbytes.nl
+ */
+public enum ResolutionMode
+{
+    /**
+     * Service providers are invoked one after the other. The next provider is invoked only after the previous one
+     * failed.
+     */
+    SEQUENTIAL,
+
+    /**
+     * The first service provider is invoked. When it does not respond within the hedge delay, a request to the next
+     * provider is made, while the first request remains active. This repeats until the maximum fan-out is reached. The
+     * first valid response is used, after which all other requests are cancelled.
+     */
+    HEDGED,
+
+    /**
+     * Service providers are invoked concurrently (up to the maximum fan-out). Whenever an invocation completes without
+     * a quorum having been reached, another provider is invoked. The first IP address that is reported by the quorum
+     * size number of providers is used, after which all other requests are cancelled. When no quorum can be reached,
+     * the resolution fails.
+     */
+    QUORUM
+}
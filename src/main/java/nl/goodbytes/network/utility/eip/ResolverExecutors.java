@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2017 Guus der Kinderen. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.goodbytes.network.utility.eip;
+
+import java.util.List;
+import java.util.concurrent.*;
+
+import static nl.goodbytes.network.utility.eip.ResolverService.LOGGER;
+
+/**
+ * Factory methods for executors that are suitable to run resolutions, which invoke service providers that perform
+ * blocking network I/O.
+ *
+ * All executors that are created by this class bound the number of resolutions that can be pending at the same time.
+ * Tasks that exceed that bound are rejected, rather than queued indefinitely or given a thread of their own. When a
+ * {@link ResolverService} is unable to start a resolution for that reason, the resolution completes with the cached
+ * value, as if all service providers failed. This prevents a burst of requests during an outage of service providers
+ * from exhausting the resources of the host.
+ *
+ * The threads that are created by these executors do not prevent the JVM from exiting.
+ *
+ * @author Guus der Kinderen, guus@goodbytes.nl
+ * @see ResolverServiceBuilder#executor(Executor)
+ * @see NonBlockingResolverService#setExecutor(Executor)
+ */
+public final class ResolverExecutors
+{
+    /**
+     * The duration, in seconds, after which an idle platform thread is terminated.
+     */
+    private static final long KEEP_ALIVE_SECONDS = 60;
+
+    private ResolverExecutors()
+    {
+    }
+
+    /**
+     * Creates an executor that uses up to the provided number of platform threads, which are created on demand and
+     * terminated when idle. When all threads are busy, tasks are queued, up to the provided capacity. Tasks that do not
+     * fit in the queue are rejected.
+     *
+     * @param maximumThreads The maximum number of threads. Must be one or more.
+     * @param queueCapacity  The maximum number of tasks that are waiting for a thread. Cannot be negative.
+     * @return A new executor (never null).
+     */
+    public static ExecutorService newBoundedExecutor( int maximumThreads, int queueCapacity )
+    {
+        if ( maximumThreads < 1 )
+        {
+            throw new IllegalArgumentException( "Argument 'maximumThreads' must be one or more." );
+        }
+        if ( queueCapacity < 0 )
+        {
+            throw new IllegalArgumentException( "Argument 'queueCapacity' cannot be negative." );
+        }
+
+        final BlockingQueue<Runnable> queue = queueCapacity == 0
+            ? new SynchronousQueue<Runnable>()
+            : new ArrayBlockingQueue<Runnable>( queueCapacity );
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor( maximumThreads, maximumThreads, KEEP_ALIVE_SECONDS,
+                                                                    TimeUnit.SECONDS, queue, new DaemonThreadFactory(),
+                                                                    new ThreadPoolExecutor.AbortPolicy() );
+        executor.allowCoreThreadTimeOut( true );
+        return executor;
+    }
+
+    /**
+     * Creates an executor that runs each task on a new virtual thread, allowing no more than the provided number of
+     * tasks to run concurrently. Additional tasks are rejected. Virtual threads do not occupy a platform thread while
+     * they are blocked on network I/O.
+     *
+     * Virtual threads are available as of Java 21. On older JVMs, an executor is returned that uses up to the provided
+     * number of platform threads instead (without queueing any tasks).
+     *
+     * @param maximumConcurrency The maximum number of tasks that run concurrently. Must be one or more.
+     * @return A new executor (never null).
+     */
+    public static ExecutorService newVirtualThreadExecutor( int maximumConcurrency )
+    {
+        if ( maximumConcurrency < 1 )
+        {
+            throw new IllegalArgumentException( "Argument 'maximumConcurrency' must be one or more." );
+        }
+
+        final ExecutorService virtual = VirtualThreads.newPerTaskExecutor();
+        if ( virtual == null )
+        {
+            LOGGER.fine( "Using platform threads instead of virtual threads." );
+            return newBoundedExecutor( maximumConcurrency, 0 );
+        }
+        return new AdmissionControlledExecutor( virtual, maximumConcurrency );
+    }
+
+    /**
+     * An executor that rejects tasks when a maximum number of previously submitted tasks has not completed yet, and
+     * that delegates all other tasks.
+     */
+    private static final class AdmissionControlledExecutor extends AbstractExecutorService
+    {
+        private final ExecutorService delegate;
+        private final Semaphore permits;
+
+        AdmissionControlledExecutor( ExecutorService delegate, int maximumConcurrency )
+        {
+            this.delegate = delegate;
+            this.permits = new Semaphore( maximumConcurrency );
+        }
+
+        @Override
+        public void execute( final Runnable command )
+        {
+            if ( command == null )
+            {
+                throw new NullPointerException( "Argument 'command' cannot be null." );
+            }
+            if ( !permits.tryAcquire() )
+            {
+                throw new RejectedExecutionException( "Maximum number of concurrent tasks reached." );
+            }
+
+            try
+            {
+                delegate.execute( new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        try
+                        {
+                            command.run();
+                        }
+                        finally
+                        {
+                            permits.release();
+                        }
+                    }
+                } );
+            }
+            catch ( RuntimeException e )
+            {
+                permits.release();
+                throw e;
+            }
+        }
+
+        @Override
+        public void shutdown()
+        {
+            delegate.shutdown();
+        }
+
+        @Override
+        public List<Runnable> shutdownNow()
+        {
+            return delegate.shutdownNow();
+        }
+
+        @Override
+        public boolean isShutdown()
+        {
+            return delegate.isShutdown();
+        }
+
+        @Override
+        public boolean isTerminated()
+        {
+            return delegate.isTerminated();
+        }
+
+        @Override
+        public boolean awaitTermination( long timeout, TimeUnit unit ) throws InterruptedException
+        {
+            return delegate.awaitTermination( timeout, unit );
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2017 Guus der Kinderen. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.goodbytes.network.utility.eip;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks the performance of one service provider, to estimate the cost of invoking it.
+ *
+ * The latency of successful invocations is tracked as an exponentially weighted moving average. Failures are tracked as
+ * a failure rate that decays over time, which allows a provider that failed in the past to regain its rank.
+ *
+ * The expected cost of an invocation is the average latency, plus a penalty that is proportional to the failure rate.
+ * Providers that have not been invoked yet have an expected cost of zero, so that they are tried early.
+ *
+ * @author Guus der Kinderen, guus@goodbytes.nl
+ */
+final class ResolverScore
+{
+    /**
+     * The weight of a new latency sample in the moving average.
+     */
+    private static final double LATENCY_SMOOTHING = 0.3;
+
+    /**
+     * The weight of a new outcome in the failure rate.
+     */
+    private static final double FAILURE_SMOOTHING = 0.5;
+
+    /**
+     * The duration after which the failure rate is halved, when no new outcomes are recorded.
+     */
+    private static final long FAILURE_HALF_LIFE = TimeUnit.MINUTES.toNanos( 5 );
+
+    /**
+     * The cost (in nanoseconds) attributed to a failure, which typically wastes a timeout.
+     */
+    private static final double FAILURE_PENALTY = TimeUnit.SECONDS.toNanos( 5 );
+
+    private double latency = -1;
+    private double failureRate;
+    private long lastUpdate = System.nanoTime();
+
+    /**
+     * Records a successful invocation.
+     *
+     * @param duration The duration of the invocation, in nanoseconds.
+     */
+    synchronized void recordSuccess( long duration )
+    {
+        latency = latency < 0 ? duration : latency + LATENCY_SMOOTHING * ( duration - latency );
+        failureRate = decayedFailureRate() * ( 1 - FAILURE_SMOOTHING );
+        lastUpdate = System.nanoTime();
+    }
+
+    /**
+     * Records a failed invocation.
+     */
+    synchronized void recordFailure()
+    {
+        failureRate = decayedFailureRate() * ( 1 - FAILURE_SMOOTHING ) + FAILURE_SMOOTHING;
+        lastUpdate = System.nanoTime();
+    }
+
+    /**
+     * Returns the expected cost of invoking the provider.
+     *
+     * @return A cost, zero or positive (expressed in nanoseconds).
+     */
+    synchronized double getExpectedCost()
+    {
+        return Math.max( 0, latency ) + FAILURE_PENALTY * decayedFailureRate();
+    }
+
+    private double decayedFailureRate()
+    {
+        final long elapsed = System.nanoTime() - lastUpdate;
+        return failureRate * Math.pow( 0.5, (double) elapsed / FAILURE_HALF_LIFE );
+    }
+}
@@ -16,12 +16,18 @@
 
 package nl.goodbytes.network.utility.eip;
 
+import nl.goodbytes.network.utility.eip.spi.RateLimitedResolver;
 import nl.goodbytes.network.utility.eip.spi.Resolver;
 
-import java.io.IOException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
 import java.net.InetAddress;
+import java.nio.file.Path;
 import java.util.*;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.*;
+import java.util.function.BiConsumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -34,7 +40,62 @@ import java.util.logging.Logger;
  * The result of a successful execution can be cached - unsuccessful results are not. When a cached result is available,
  * but expired, then the cached result will only be returned after all web services failed to generate an updated value.
  *
- * This implementation prefers web services that produce faster responses with less failures over others.
+ * This implementation prefers web services that produce faster responses with less failures over others. Past
+ * failures are gradually forgotten, allowing a web service that recovered to be preferred again. Web services with a
+ * comparable performance are invoked in random order, to spread the load.
+ *
+ * Each web service is guarded by a circuit breaker: after repeated failures, a web service is not invoked at all for a
+ * period of time that grows exponentially with every failed probe. The state of each circuit breaker can be obtained
+ * through {@link #getCircuitBreakerStates()}.
+ *
+ * To respect the fair-use policies of public web services, each web service is invoked no more often than its
+ * {@link RateLimit} allows (by default, 30 times per minute). A web service that has exhausted its budget is skipped,
+ * as if its circuit breaker were open, so that other web services are used instead. Rate limits can be configured per
+ * service provider (see {@link #setRateLimit(Resolver, RateLimit)}) and per service provider class (see
+ * {@link #setRateLimit(Class, RateLimit)}).
+ *
+ * By default, web services are invoked sequentially. Alternatively, a {@link ResolutionMode#HEDGED} mode can be used
+ * in which additional web services are invoked when a previous invocation has not completed within a configurable
+ * delay. In that mode, the first valid response is used. In {@link ResolutionMode#QUORUM} mode, web services are
+ * invoked concurrently, and a response is only used after a minimum number of web services reported the same address.
+ * Any disagreement between web services is reported to registered {@link QuorumListener} instances.
+ *
+ * On hosts that have a globally routable IP address bound to one of their network interfaces, no service providers need
+ * to be invoked at all. Whether such addresses are used instead of, or to verify the responses of service providers is
+ * determined by the {@link LocalAddressMode}, which is disabled by default.
+ *
+ * When multiple threads concurrently require a new value, only one set of web service requests is made. All threads
+ * share the result of that single execution.
+ *
+ * Optionally, the cached value can be refreshed in the background, before it expires. While such a background refresh
+ * is active, a cached value is always returned immediately, even when it is older than the requested maximum age (in
+ * which case an asynchronous refresh is triggered).
+ *
+ * The total duration of a resolution is bounded by a timeout, which is divided over the web services that are invoked.
+ * Each web service is invoked with the time that remains of that timeout, so that the total duration never
+ * (significantly) exceeds it.
+ *
+ * Optionally, the cached value can be persisted in a file (see {@link #setPersistentCacheFile(Path)}), allowing it to
+ * be reused by short-lived processes that would otherwise need to invoke the web services every time they are started.
+ *
+ * Listeners can be registered to be notified when the resolved IP address changes (see
+ * {@link #addAddressChangeListener(AddressChangeListener)}). While any such listener is registered, the IP address is
+ * monitored: it is periodically resolved again, at an interval that grows while the IP address remains unchanged, and
+ * that is reset to its minimum after a change was detected.
+ *
+ * Next to the IP address that is reported when service providers are invoked over the default route, the IPv4 and IPv6
+ * addresses can be resolved specifically (see {@link #resolve(AddressFamily, long, TimeUnit)} and
+ * {@link #resolveDualStack(long, TimeUnit)}). Each family has its own cached value, and its own bookkeeping of service
+ * providers, so that a provider that is not reachable over one IP version is not penalized for the other.
+ *
+ * Metrics of the cache, of resolutions and of each service provider are available through {@link #getMetrics()} and
+ * {@link #getProviderMetrics()}. These can also be exposed as JMX MBeans (see {@link #registerMBeans()}).
+ *
+ * Reading a cached value does not acquire any locks: each successful resolution is published as an immutable
+ * {@link Resolution} snapshot.
+ *
+ * Instances that are created by a builder hold on to executors and scheduled tasks of their own, which are released
+ * when the instance is closed (see {@link #close()}).
  *
  * This is a synchronous implementation: the thread that invokes the various methods used to resolve the external IP
  * address will block until a result is returned. As multiple network requests can be made as part of the execution,
@@ -42,26 +103,109 @@ import java.util.logging.Logger;
  *
  * @author Guus der Kinderen, guus@goodbytes.nl
  */
-public class ResolverService
+public class ResolverService implements AutoCloseable
 {
     final static Logger LOGGER = Logger.getLogger( ResolverService.class.getName() );
 
+    /**
+     * Runs the timers of all instances. Cancelled timers are removed immediately, as a timer is scheduled for every
+     * caller that waits for a resolution asynchronously, and is cancelled as soon as that resolution completes.
+     */
+    final static ScheduledThreadPoolExecutor scheduler =
+        new ScheduledThreadPoolExecutor( 1, new DaemonThreadFactory() );
+
+    static
+    {
+        scheduler.setRemoveOnCancelPolicy( true );
+    }
+
+    /**
+     * An executor that runs each task in the thread that submits it.
+     */
+    private final static Executor DIRECT = new Executor()
+    {
+        @Override
+        public void execute( Runnable command )
+        {
+            command.run();
+        }
+    };
+
+    /**
+     * The rate limit that applies to service providers for which no other rate limit was configured.
+     */
+    private final static RateLimit DEFAULT_RATE_LIMIT = RateLimit.of( 30, 1, TimeUnit.MINUTES );
+
     private static ResolverService instance;
-    private ServiceLoader<Resolver> loader;
-    private long lastSuccess;
-    private InetAddress cache;
-    private Set<Resolver> failedResolvers = new HashSet<>();
+    private final String name;
+    private final List<Resolver> providers;
+    private final ProviderInvoker invoker;
+    private final Executor executor;
+    private final ExecutorService ownedExecutor;
+    private final Slot anyFamily = new Slot( null );
+    private final Map<AddressFamily, Slot> families = new EnumMap<>( AddressFamily.class );
+    private volatile ResolutionMode resolutionMode = ResolutionMode.SEQUENTIAL;
+    private volatile ProviderOrdering providerOrdering = ProviderOrdering.BY_EXPECTED_COST;
+    private volatile RateLimit defaultRateLimit = DEFAULT_RATE_LIMIT;
+    private final ConcurrentMap<Class<? extends Resolver>, RateLimit> rateLimits = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Resolver, RateLimit> providerRateLimits = new ConcurrentHashMap<>();
+    private volatile LocalAddressMode localAddressMode = LocalAddressMode.DISABLED;
+    private volatile long hedgeDelay = 500;
+    private volatile int maximumFanOut = 2;
+    private volatile int quorum = 2;
+    private final AddressMonitor monitor = new AddressMonitor( this );
+    private final ServiceMetrics metrics = new ServiceMetrics( this );
+    private final List<ObjectName> registeredMBeans = new ArrayList<>();
+    private volatile long refreshInterval;
+    private long refreshGeneration;
+    private volatile long maximumAge = TimeUnit.DAYS.toMillis( 1 );
+    private volatile long timeout = 30000;
+    private volatile PersistentCache persistentCache;
+    private ScheduledFuture<?> refreshTask;
+    private volatile boolean closed;
+
+    /**
+     * Instantiates a new, unnamed service that uses the provided service providers and a default executor.
+     *
+     * @param resolvers The service providers to use (cannot be null).
+     */
+    ResolverService( Iterable<? extends Resolver> resolvers )
+    {
+        this( null, resolvers, null );
+    }
 
     /**
-     * Instantiates a new service, by loading all service providers.
+     * Instantiates a new service.
+     *
+     * Every instance invokes service providers concurrently (in {@link ResolutionMode#HEDGED} and
+     * {@link ResolutionMode#QUORUM} mode) using an executor of its own (see {@link ProviderInvoker}).
+     *
+     * @param name      The name of the service, or null for an unnamed service.
+     * @param resolvers The service providers to use (cannot be null).
+     * @param executor  The executor used to run resolutions asynchronously, or null to use one that is created for
+     *                  this instance.
      */
-    private ResolverService()
+    ResolverService( String name, Iterable<? extends Resolver> resolvers, Executor executor )
     {
-        loader = ServiceLoader.load( Resolver.class );
+        this.name = name;
+        this.ownedExecutor = executor == null ? ResolverExecutors.newBoundedExecutor( 4, 64 ) : null;
+        this.executor = executor == null ? ownedExecutor : executor;
+        final List<Resolver> loaded = new ArrayList<>();
+        for ( final Resolver resolver : resolvers )
+        {
+            loaded.add( resolver );
+        }
+        providers = Collections.unmodifiableList( loaded );
+        invoker = new ProviderInvoker( this, metrics, providers );
+        for ( final AddressFamily family : AddressFamily.values() )
+        {
+            families.put( family, new Slot( family ) );
+        }
     }
 
     /**
-     * Returns the singleton instance of this implementation, lazily creating one if needed.
+     * Returns the singleton instance of this implementation, lazily creating one if needed. This instance uses all
+     * service providers that can be loaded, and the default configuration.
      *
      * @return An instance (never null)
      */
@@ -69,22 +213,56 @@ public class ResolverService
     {
         if ( instance == null )
         {
-            instance = new ResolverService();
+            instance = builder().build();
         }
         return instance;
     }
 
+    /**
+     * Returns a builder of new instances of this implementation. Unlike the singleton instance, instances that are
+     * created by a builder can be configured to use their own set of service providers and their own executor. Every
+     * instance has its own cache, its own bookkeeping of service providers and its own monitor, so that instances with
+     * different requirements do not affect each other.
+     *
+     * @return A builder (never null).
+     */
+    public static ResolverServiceBuilder builder()
+    {
+        return new ResolverServiceBuilder();
+    }
+
+    /**
+     * Returns the name of this instance, as defined by {@link ResolverServiceBuilder#name(String)}.
+     *
+     * @return A name, or null when this instance is unnamed.
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * Returns the executor that is used to run resolutions asynchronously.
+     *
+     * @return An executor (never null).
+     */
+    Executor getExecutor()
+    {
+        return executor;
+    }
+
     /**
      * Returns the IP address of the host on which this application is executed, as resolved by one of the service
      * providers, or null if none of the providers were able to resolve the IP address.
      *
-     * Only when a cached response is older than 24 hours is a new execution preferred over the cached response.
+     * Only when a cached response is older than the default maximum age (24 hours, unless configured otherwise by
+     * {@link #setMaximumAge(long, TimeUnit)}) is a new execution preferred over the cached response.
      *
      * @return A resolved IP address, or null when all of the service providers failed.
      */
     public InetAddress resolve()
     {
-        return resolve( 1, TimeUnit.DAYS );
+        return resolve( maximumAge, TimeUnit.MILLISECONDS );
     }
 
     /**
@@ -100,69 +278,1265 @@ public class ResolverService
      */
     public InetAddress resolve( long duration, TimeUnit timeUnit )
     {
-        final long cacheExpiry = timeUnit.toMillis( duration );
-        synchronized ( this )
+        return resolve( duration, timeUnit, timeout, TimeUnit.MILLISECONDS );
+    }
+
+    /**
+     * Returns the IP address of the host on which this application is executed, as resolved by one of the service
+     * providers, or null if none of the providers were able to resolve the IP address.
+     *
+     * Only when a cached response is older than the duration specified in the arguments, then a new execution preferred
+     * over the cached response.
+     *
+     * No more than (approximately) the provided timeout is spent obtaining a new value. When that timeout expires, the
+     * cached value (if any) is returned.
+     *
+     * @param duration    The maximum preferred age of a cached entry. Can be zero or negative for forced cache refresh.
+     * @param timeUnit    The unit in which duration is expressed (cannot be null).
+     * @param timeout     The maximum duration of obtaining a new value. Must be positive.
+     * @param timeoutUnit The unit in which timeout is expressed (cannot be null).
+     * @return A resolved IP address, or null when all of the service providers failed.
+     */
+    public InetAddress resolve( long duration, TimeUnit timeUnit, long timeout, TimeUnit timeoutUnit )
+    {
+        if ( timeout <= 0 )
+        {
+            throw new IllegalArgumentException( "Argument 'timeout' must be positive." );
+        }
+
+        final InetAddress cached = fromCache( timeUnit.toMillis( duration ) );
+        if ( cached != null )
+        {
+            return cached;
+        }
+
+        final Deadline deadline = Deadline.after( timeout, timeoutUnit );
+        return await( anyFamily, flight( anyFamily, deadline, DIRECT ), deadline );
+    }
+
+    /**
+     * Returns the IP address of the provided family, as resolved by one of the service providers over that IP version,
+     * or null if none of the providers were able to resolve such an IP address.
+     *
+     * Only when a cached response is older than the duration specified in the arguments, then a new execution preferred
+     * over the cached response.
+     *
+     * @param family   The family of the IP address to resolve (cannot be null).
+     * @param duration The maximum preferred age of a cached entry. Can be zero or negative for forced cache refresh.
+     * @param timeUnit The unit in which duration is expressed (cannot be null).
+     * @return A resolved IP address, or null when all of the service providers failed.
+     */
+    public InetAddress resolve( AddressFamily family, long duration, TimeUnit timeUnit )
+    {
+        return resolve( family, duration, timeUnit, timeout, TimeUnit.MILLISECONDS );
+    }
+
+    /**
+     * Returns the IP address of the provided family, as resolved by one of the service providers over that IP version,
+     * or null if none of the providers were able to resolve such an IP address.
+     *
+     * Only when a cached response is older than the duration specified in the arguments, then a new execution preferred
+     * over the cached response.
+     *
+     * No more than (approximately) the provided timeout is spent obtaining a new value. When that timeout expires, the
+     * cached value (if any) is returned.
+     *
+     * @param family      The family of the IP address to resolve (cannot be null).
+     * @param duration    The maximum preferred age of a cached entry. Can be zero or negative for forced cache refresh.
+     * @param timeUnit    The unit in which duration is expressed (cannot be null).
+     * @param timeout     The maximum duration of obtaining a new value. Must be positive.
+     * @param timeoutUnit The unit in which timeout is expressed (cannot be null).
+     * @return A resolved IP address, or null when all of the service providers failed.
+     */
+    public InetAddress resolve( AddressFamily family, long duration, TimeUnit timeUnit, long timeout,
+                                TimeUnit timeoutUnit )
+    {
+        if ( family == null )
+        {
+            throw new IllegalArgumentException( "Argument 'family' cannot be null." );
+        }
+        if ( timeout <= 0 )
+        {
+            throw new IllegalArgumentException( "Argument 'timeout' must be positive." );
+        }
+
+        final Slot slot = families.get( family );
+        final Resolution snapshot = slot.current;
+        if ( snapshot != null && !isOlderThan( snapshot, timeUnit.toMillis( duration ) ) )
+        {
+            metrics.cacheHits.increment();
+            return snapshot.getAddress();
+        }
+        metrics.cacheMisses.increment();
+
+        final Deadline deadline = Deadline.after( timeout, timeoutUnit );
+        return await( slot, flight( slot, deadline, DIRECT ), deadline );
+    }
+
+    /**
+     * Returns both the IPv4 and the IPv6 address of the host on which this application is executed. Both families are
+     * resolved concurrently, when no cached value is available for them.
+     *
+     * @param duration The maximum preferred age of a cached entry. Can be zero or negative for forced cache refresh.
+     * @param timeUnit The unit in which duration is expressed (cannot be null).
+     * @return The resolved IP addresses (never null, but either address can be absent).
+     */
+    public DualStackAddress resolveDualStack( long duration, TimeUnit timeUnit )
+    {
+        final long maximumAge = timeUnit.toMillis( duration );
+        final Deadline deadline = Deadline.after( timeout, TimeUnit.MILLISECONDS );
+
+        final Map<AddressFamily, Future<InetAddress>> pending = new EnumMap<>( AddressFamily.class );
+        for ( final AddressFamily family : AddressFamily.values() )
         {
-            final boolean cacheExpired = lastSuccess + cacheExpiry < System.currentTimeMillis();
-            if ( cache != null && !cacheExpired )
+            final Slot slot = families.get( family );
+            final Resolution snapshot = slot.current;
+            if ( snapshot == null || isOlderThan( snapshot, maximumAge ) )
+            {
+                metrics.cacheMisses.increment();
+                pending.put( family, flight( slot, deadline, executor ) );
+            }
+            else
             {
-                LOGGER.finest( "Returning from cache: " + cache );
-                return cache;
+                metrics.cacheHits.increment();
             }
         }
 
-        final List<Resolver> resolvers = getRandomizedResolvers();
+        final Map<AddressFamily, InetAddress> result = new EnumMap<>( AddressFamily.class );
+        for ( final AddressFamily family : AddressFamily.values() )
+        {
+            final Slot slot = families.get( family );
+            final Future<InetAddress> flight = pending.get( family );
+            result.put( family, flight == null ? slot.getCachedAddress() : await( slot, flight, deadline ) );
+        }
+        return new DualStackAddress( result.get( AddressFamily.IPV4 ), result.get( AddressFamily.IPV6 ) );
+    }
 
-        for ( final Resolver resolver : resolvers )
+    /**
+     * Asynchronously obtains the IP address of the host on which this application is executed, using the same
+     * semantics as {@link #resolve(long, TimeUnit, long, TimeUnit)}.
+     *
+     * No thread is blocked on behalf of the caller: a cached value is returned as a completed future, while callers
+     * that require a new value share the one resolution that is in progress. Only when no such resolution is in
+     * progress, a new one is started, using the provided executor. Cancelling the returned future does not cancel that
+     * resolution, as its result can be shared by other callers.
+     *
+     * @param duration    The maximum preferred age of a cached entry. Can be zero or negative for forced cache refresh.
+     * @param timeUnit    The unit in which duration is expressed (cannot be null).
+     * @param timeout     The maximum duration of obtaining a new value. Must be positive.
+     * @param timeoutUnit The unit in which timeout is expressed (cannot be null).
+     * @param runner      The executor used to invoke the service providers, if needed (cannot be null).
+     * @return The pending result (never null).
+     */
+    CompletableFuture<InetAddress> resolveAsynchronously( long duration, TimeUnit timeUnit, long timeout,
+                                                          TimeUnit timeoutUnit, Executor runner )
+    {
+        if ( timeout <= 0 )
         {
-            try
-            {
-                LOGGER.finest( "Resolver '" + resolver.getClass().getName() + "' is about to be invoked." );
+            throw new IllegalArgumentException( "Argument 'timeout' must be positive." );
+        }
+
+        final InetAddress cached = fromCache( timeUnit.toMillis( duration ) );
+        if ( cached != null )
+        {
+            return CompletableFuture.completedFuture( cached );
+        }
 
-                final InetAddress result = resolver.resolveAddress();
-                if ( result != null )
+        final CompletableFuture<InetAddress> result = new CompletableFuture<>();
+        final Flight flight = flight( anyFamily, Deadline.after( timeout, timeoutUnit ), runner );
+
+        // Stop waiting for the shared resolution after the timeout of this caller.
+        final ScheduledFuture<?> timer = scheduler.schedule( new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                if ( result.complete( anyFamily.getCachedAddress() ) )
                 {
-                    LOGGER.finest( "Resolver '" + resolver.getClass().getName() + "' successfully resolved: " + result );
-                    synchronized ( this )
-                    {
-                        cache = result;
-                        lastSuccess = System.currentTimeMillis();
-                    }
-                    return result;
+                    LOGGER.finest( "Timed out while waiting for a resolution to complete." );
                 }
             }
-            catch ( IOException | ParseException e )
+        }, timeout, timeoutUnit );
+        result.whenComplete( new BiConsumer<InetAddress, Throwable>()
+        {
+            @Override
+            public void accept( InetAddress address, Throwable failure )
+            {
+                timer.cancel( false );
+            }
+        } );
+
+        flight.addListener( new Runnable()
+        {
+            @Override
+            public void run()
             {
-                LOGGER.log( Level.WARNING, "Resolver '" + resolver.getClass().getName() + "' failed.", e );
-                synchronized ( this )
+                try
+                {
+                    result.complete( flight.get() );
+                }
+                catch ( ExecutionException e )
                 {
-                    failedResolvers.add( resolver );
+                    result.completeExceptionally( e.getCause() );
                 }
+                catch ( CancellationException | InterruptedException e )
+                {
+                    result.completeExceptionally( e );
+                }
+            }
+        } );
+        return result;
+    }
+
+    /**
+     * Returns a cached value, if it is not older than the provided age. When background refreshing is active, an older
+     * cached value is returned too, after triggering an asynchronous refresh.
+     *
+     * @param maximumAge The maximum preferred age of a cached entry, in milliseconds.
+     * @return A cached IP address, or null when no suitable value is cached.
+     */
+    private InetAddress fromCache( long maximumAge )
+    {
+        Resolution snapshot = anyFamily.current;
+        if ( persistentCache != null && ( snapshot == null || isOlderThan( snapshot, maximumAge ) ) )
+        {
+            // Another process might have stored a more recent value.
+            snapshot = adopt( persistentCache.read() );
+        }
+        if ( snapshot == null )
+        {
+            metrics.cacheMisses.increment();
+            return null;
+        }
+
+        if ( !isOlderThan( snapshot, maximumAge ) )
+        {
+            if ( LOGGER.isLoggable( Level.FINEST ) )
+            {
+                LOGGER.finest( "Returning from cache: " + snapshot );
+            }
+            metrics.cacheHits.increment();
+            return snapshot.getAddress();
+        }
+
+        if ( refreshInterval > 0 )
+        {
+            if ( LOGGER.isLoggable( Level.FINEST ) )
+            {
+                LOGGER.finest( "Returning expired value from cache, while refreshing in the background: " + snapshot );
             }
+            metrics.staleCacheHits.increment();
+            refreshAsynchronously();
+            return snapshot.getAddress();
         }
 
-        return cache;
+        metrics.cacheMisses.increment();
+        return null;
+    }
+
+    /**
+     * Checks if a resolution was obtained longer ago than the provided age. A maximum age that is zero or negative is
+     * exceeded by every resolution, even one that was obtained within the current millisecond.
+     *
+     * @param resolution The resolution to check (cannot be null).
+     * @param maximumAge The maximum age, in milliseconds.
+     * @return true if the resolution is older than the maximum age, otherwise false.
+     */
+    static boolean isOlderThan( Resolution resolution, long maximumAge )
+    {
+        return maximumAge <= 0 || System.currentTimeMillis() - resolution.getTimestamp() > maximumAge;
     }
 
-    // TODO factor in response time.
-    // TODO un-fail failed resolvers over time.
-    private List<Resolver> getRandomizedResolvers()
+    /**
+     * Publishes a resolution that was read from the persistent cache as the cached value, unless the currently cached
+     * value is more recent.
+     *
+     * @param candidate A resolution read from the persistent cache (can be null).
+     * @return The most recent of the candidate and the currently cached value (possibly null).
+     */
+    private Resolution adopt( Resolution candidate )
     {
-        final List<Resolver> resolvers = new ArrayList<>();
-        for ( final Resolver resolver : loader )
+        final Resolution snapshot;
+        synchronized ( this )
         {
-            resolvers.add( resolver );
+            snapshot = anyFamily.current;
+            if ( candidate == null || ( snapshot != null && candidate.getTimestamp() <= snapshot.getTimestamp() ) )
+            {
+                return snapshot;
+            }
+            anyFamily.current = candidate;
+            monitor.enqueueIfChanged( snapshot, candidate );
         }
 
-        // Spread the load.
-        Collections.shuffle( resolvers );
+        monitor.dispatchChanges();
+        return candidate;
+    }
 
-        synchronized ( this )
+    /**
+     * Returns the file in which successful resolutions are persisted.
+     *
+     * @return A file, or null when resolutions are not persisted.
+     */
+    public Path getPersistentCacheFile()
+    {
+        final PersistentCache cache = persistentCache;
+        return cache == null ? null : cache.getPath();
+    }
+
+    /**
+     * Defines a file in which successful resolutions are persisted, allowing a cached value to be reused by later
+     * invocations of an application, or by other processes that use the same file. When the file already holds a value
+     * that is more recent than the value that is cached in memory, that value is used immediately.
+     *
+     * Whenever a cached value in memory is older than the maximum age that is requested, the file is consulted again
+     * before any service providers are invoked, to pick up values that were stored by other processes.
+     *
+     * Each successful resolution replaces the content of the file atomically. Problems reading or writing the file are
+     * logged, but are otherwise ignored.
+     *
+     * @param file The file to use, or null to stop persisting resolutions.
+     */
+    public void setPersistentCacheFile( Path file )
+    {
+        if ( file == null )
+        {
+            persistentCache = null;
+            return;
+        }
+
+        final PersistentCache cache = new PersistentCache( file );
+        persistentCache = cache;
+        adopt( cache.read() );
+    }
+
+    /**
+     * Returns the maximum preferred age of a cached entry that is used when no explicit maximum age is provided.
+     *
+     * @param timeUnit The unit in which the returned value is expressed (cannot be null).
+     * @return The default maximum age, zero or positive.
+     */
+    public long getMaximumAge( TimeUnit timeUnit )
+    {
+        return timeUnit.convert( maximumAge, TimeUnit.MILLISECONDS );
+    }
+
+    /**
+     * Defines the maximum preferred age of a cached entry that is used when no explicit maximum age is provided.
+     *
+     * @param duration The default maximum age. Cannot be negative.
+     * @param timeUnit The unit in which duration is expressed (cannot be null).
+     */
+    public void setMaximumAge( long duration, TimeUnit timeUnit )
+    {
+        if ( duration < 0 )
+        {
+            throw new IllegalArgumentException( "Argument 'duration' cannot be negative." );
+        }
+        this.maximumAge = timeUnit.toMillis( duration );
+    }
+
+    /**
+     * Returns the maximum duration of a resolution that is used when no explicit timeout is provided.
+     *
+     * @param timeUnit The unit in which the returned value is expressed (cannot be null).
+     * @return The default timeout, positive.
+     */
+    public long getTimeout( TimeUnit timeUnit )
+    {
+        return timeUnit.convert( timeout, TimeUnit.MILLISECONDS );
+    }
+
+    /**
+     * Defines the maximum duration of a resolution that is used when no explicit timeout is provided. This timeout also
+     * applies to background refreshes.
+     *
+     * @param timeout  The default timeout. Must be at least one millisecond.
+     * @param timeUnit The unit in which timeout is expressed (cannot be null).
+     */
+    public void setTimeout( long timeout, TimeUnit timeUnit )
+    {
+        final long millis = timeUnit.toMillis( timeout );
+        if ( millis < 1 )
+        {
+            throw new IllegalArgumentException( "Argument 'timeout' must be at least one millisecond." );
+        }
+        this.timeout = millis;
+    }
+
+    /**
+     * Returns the most recent successful resolution, irrespective of its age.
+     *
+     * @return The cached resolution, or null when no resolution has been successful yet.
+     */
+    public Resolution getCachedResolution()
+    {
+        return anyFamily.current;
+    }
+
+    /**
+     * Returns the most recent successful resolution of an IP address of the provided family, irrespective of its age.
+     *
+     * @param family The family of the IP address (cannot be null).
+     * @return The cached resolution, or null when no resolution of that family has been successful yet.
+     */
+    public Resolution getCachedResolution( AddressFamily family )
+    {
+        if ( family == null )
+        {
+            throw new IllegalArgumentException( "Argument 'family' cannot be null." );
+        }
+        return families.get( family ).current;
+    }
+
+    /**
+     * Starts periodically refreshing the cached value in the background. Refreshes are scheduled somewhat before the
+     * provided interval has passed since the last successful execution (the exact moment is randomized, to prevent
+     * many instances from refreshing simultaneously). Failed refreshes are retried more frequently.
+     *
+     * While a background refresh is active, {@link #resolve(long, TimeUnit)} returns any cached value immediately.
+     *
+     * Invoking this method while a background refresh is already active replaces the active background refresh.
+     *
+     * @param interval The maximum preferred age of a cached entry. Must be positive.
+     * @param timeUnit The unit in which interval is expressed (cannot be null).
+     */
+    public synchronized void startBackgroundRefresh( long interval, TimeUnit timeUnit )
+    {
+        if ( interval <= 0 )
+        {
+            throw new IllegalArgumentException( "Argument 'interval' must be positive." );
+        }
+        if ( closed )
+        {
+            throw new IllegalStateException( "This instance is closed." );
+        }
+        stopBackgroundRefresh();
+        refreshInterval = timeUnit.toMillis( interval );
+        final long generation = ++refreshGeneration;
+
+        final Resolution snapshot = anyFamily.current;
+        final long delay;
+        if ( snapshot == null )
+        {
+            delay = 0;
+        }
+        else
         {
-            // Prefer resolvers that have not failed yet.
-            resolvers.removeAll( failedResolvers );
-            resolvers.addAll( failedResolvers );
+            delay = Math.max( 0, snapshot.getTimestamp() + nextRefreshDelay( true ) - System.currentTimeMillis() );
         }
-        return resolvers;
+        scheduleRefresh( generation, delay );
+    }
+
+    /**
+     * Stops refreshing the cached value in the background. This method has no effect when no background refresh is
+     * active.
+     */
+    public synchronized void stopBackgroundRefresh()
+    {
+        refreshInterval = 0;
+        refreshGeneration++;
+        if ( refreshTask != null )
+        {
+            refreshTask.cancel( false );
+            refreshTask = null;
+        }
+    }
+
+    /**
+     * Schedules the next background refresh, unless background refreshing has been stopped (or restarted) since. The
+     * refresh is executed by the executor of this instance, so that the scheduler thread, which is shared by all
+     * instances, is not blocked.
+     *
+     * @param generation The background refresh generation that schedules the refresh.
+     * @param delay      The delay, in milliseconds, after which the refresh is to be executed.
+     */
+    private synchronized void scheduleRefresh( final long generation, long delay )
+    {
+        if ( generation != refreshGeneration )
+        {
+            return;
+        }
+
+        LOGGER.finest( "Scheduling background refresh in " + delay + "ms." );
+        refreshTask = scheduler.schedule( new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                final long start = System.currentTimeMillis();
+                final Deadline deadline = Deadline.after( timeout, TimeUnit.MILLISECONDS );
+                flight( anyFamily, deadline, executor ).addListener( new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        final Resolution snapshot = anyFamily.current;
+                        final boolean success = snapshot != null && snapshot.getTimestamp() >= start;
+                        scheduleRefresh( generation, nextRefreshDelay( success ) );
+                    }
+                } );
+            }
+        }, delay, TimeUnit.MILLISECONDS );
+    }
+
+    /**
+     * Calculates a randomized delay, in milliseconds, until the next background refresh.
+     *
+     * @param success Whether the last refresh was successful.
+     * @return A delay in milliseconds.
+     */
+    private long nextRefreshDelay( boolean success )
+    {
+        final double factor = success
+            ? ThreadLocalRandom.current().nextDouble( 0.75, 0.9 ) // Refresh ahead of expiry.
+            : ThreadLocalRandom.current().nextDouble( 0.05, 0.1 ); // Retry soon, but not immediately.
+        return (long) ( refreshInterval * factor );
+    }
+
+    /**
+     * Starts a resolution on a separate thread, unless a resolution is already in progress.
+     *
+     * @return The resolution in progress (never null).
+     */
+    Flight refreshAsynchronously()
+    {
+        return flight( anyFamily, Deadline.after( timeout, TimeUnit.MILLISECONDS ), executor );
+    }
+
+    /**
+     * Returns the resolution that is in progress, or, if there is none, starts a new one.
+     *
+     * @param slot     The state of the address family to resolve (cannot be null).
+     * @param deadline The moment after which no more time is to be spent on a new resolution (cannot be null).
+     * @param runner   The executor used to run a new resolution (cannot be null).
+     * @return The resolution in progress (never null).
+     */
+    private Flight flight( final Slot slot, final Deadline deadline, final Executor runner )
+    {
+        while ( true )
+        {
+            final Flight existing = slot.inFlight.get();
+            if ( existing != null )
+            {
+                LOGGER.finest( "Joining a resolution that is already in progress." );
+                return existing;
+            }
+
+            final Flight candidate = new Flight( this, slot, deadline );
+            if ( slot.inFlight.compareAndSet( null, candidate ) )
+            {
+                try
+                {
+                    runner.execute( candidate );
+                }
+                catch ( RejectedExecutionException e )
+                {
+                    LOGGER.log( Level.WARNING, "Unable to start a resolution: the executor rejected it.", e );
+                    candidate.reject();
+                }
+                return candidate;
+            }
+        }
+    }
+
+    /**
+     * Waits for a (shared) resolution to complete.
+     *
+     * @param slot     The state of the address family that is being resolved (cannot be null).
+     * @param flight   The resolution to wait for (cannot be null).
+     * @param deadline The moment after which no more time is to be spent waiting (cannot be null).
+     * @return A resolved IP address, or the cached value when all of the service providers failed.
+     */
+    private InetAddress await( final Slot slot, final Future<InetAddress> flight, final Deadline deadline )
+    {
+        try
+        {
+            return flight.get( deadline.remaining( TimeUnit.NANOSECONDS ), TimeUnit.NANOSECONDS );
+        }
+        catch ( TimeoutException e )
+        {
+            LOGGER.finest( "Timed out while waiting for a resolution to complete." );
+        }
+        catch ( InterruptedException e )
+        {
+            LOGGER.log( Level.FINE, "Interrupted while waiting for a resolution to complete.", e );
+            Thread.currentThread().interrupt();
+        }
+        catch ( ExecutionException e )
+        {
+            final Throwable cause = e.getCause();
+            if ( cause instanceof RuntimeException )
+            {
+                throw (RuntimeException) cause;
+            }
+            if ( cause instanceof Error )
+            {
+                throw (Error) cause;
+            }
+            LOGGER.log( Level.WARNING, "Resolution failed unexpectedly.", cause );
+        }
+
+        return slot.getCachedAddress();
+    }
+
+    /**
+     * Invokes service providers to obtain a new value, updating the cache when successful.
+     *
+     * @param slot     The state of the address family to resolve (cannot be null).
+     * @param deadline The moment after which no more time is to be spent (cannot be null).
+     * @return A resolved IP address, or the cached value when all of the service providers failed.
+     */
+    InetAddress refresh( final Slot slot, final Deadline deadline )
+    {
+        if ( closed )
+        {
+            LOGGER.finest( "Not invoking service providers, as this instance is closed." );
+            return slot.getCachedAddress();
+        }
+
+        final long start = System.nanoTime();
+        final LocalAddressMode localMode = localAddressMode;
+        final List<Resolution> local = localMode == LocalAddressMode.DISABLED
+            ? Collections.<Resolution>emptyList()
+            : LocalAddresses.findGloballyRoutableAddresses();
+
+        Resolution result = null;
+        if ( localMode == LocalAddressMode.PREFERRED )
+        {
+            result = LocalAddresses.select( local, slot.family );
+            if ( result != null )
+            {
+                LOGGER.finest( "Using address bound to a local network interface: " + result );
+            }
+        }
+
+        if ( result == null )
+        {
+            result = invoker.invoke( slot, deadline );
+            if ( result != null && localMode == LocalAddressMode.CROSS_CHECK )
+            {
+                LocalAddresses.crossCheck( result, local );
+            }
+        }
+
+        if ( result != null )
+        {
+            metrics.refreshes.recordSuccess( System.nanoTime() - start );
+            if ( slot == anyFamily )
+            {
+                update( result );
+            }
+            else
+            {
+                slot.offer( result );
+            }
+        }
+        else if ( deadline.hasExpired() )
+        {
+            metrics.refreshes.recordTimeout();
+        }
+        else
+        {
+            metrics.refreshes.recordFailure();
+        }
+
+        return slot.getCachedAddress();
+    }
+
+    /**
+     * Publishes a new resolution as the cached value.
+     *
+     * @param resolution The resolution to cache (cannot be null).
+     */
+    void update( Resolution resolution )
+    {
+        final Resolution previous;
+        synchronized ( this ) // Prevents a concurrent adopt() from replacing this value with an older one.
+        {
+            previous = anyFamily.current;
+            anyFamily.current = resolution;
+            monitor.enqueueIfChanged( previous, resolution );
+        }
+
+        // The address that was obtained over the default route is a valid value for its family too.
+        families.get( AddressFamily.of( resolution.getAddress() ) ).offer( resolution );
+
+        final PersistentCache cache = persistentCache;
+        if ( cache != null )
+        {
+            cache.write( resolution );
+        }
+
+        monitor.dispatchChanges();
+    }
+
+    /**
+     * Registers a listener that is notified whenever the resolved IP address changes. While at least one listener is
+     * registered, the IP address is monitored (see {@link #setMonitorInterval(long, long, TimeUnit)}).
+     *
+     * @param listener The listener to register (cannot be null).
+     */
+    public void addAddressChangeListener( AddressChangeListener listener )
+    {
+        addAddressChangeListener( listener, DIRECT );
+    }
+
+    /**
+     * Registers a listener that is notified, using the provided executor, whenever the resolved IP address changes.
+     *
+     * @param listener The listener to register (cannot be null).
+     * @param executor The executor used to notify the listener (cannot be null).
+     */
+    void addAddressChangeListener( AddressChangeListener listener, Executor executor )
+    {
+        if ( listener == null )
+        {
+            throw new IllegalArgumentException( "Argument 'listener' cannot be null." );
+        }
+        if ( executor == null )
+        {
+            throw new IllegalArgumentException( "Argument 'executor' cannot be null." );
+        }
+        if ( closed )
+        {
+            throw new IllegalStateException( "This instance is closed." );
+        }
+        monitor.addListener( listener, executor );
+    }
+
+    /**
+     * Removes a previously registered listener. This method has no effect when the listener was not registered. The IP
+     * address is no longer monitored after the last listener is removed.
+     *
+     * @param listener The listener to remove.
+     */
+    public void removeAddressChangeListener( AddressChangeListener listener )
+    {
+        monitor.removeListener( listener );
+    }
+
+    /**
+     * Returns the interval at which the IP address is resolved, while it is monitored, immediately after a change has
+     * been detected.
+     *
+     * @param timeUnit The unit in which the returned value is expressed (cannot be null).
+     * @return The minimum monitor interval, positive.
+     */
+    public long getMinimumMonitorInterval( TimeUnit timeUnit )
+    {
+        return monitor.getMinimumInterval( timeUnit );
+    }
+
+    /**
+     * Returns the interval at which the IP address is resolved, while it is monitored, after it remained unchanged for
+     * a prolonged period.
+     *
+     * @param timeUnit The unit in which the returned value is expressed (cannot be null).
+     * @return The maximum monitor interval, positive.
+     */
+    public long getMaximumMonitorInterval( TimeUnit timeUnit )
+    {
+        return monitor.getMaximumInterval( timeUnit );
+    }
+
+    /**
+     * Defines the interval at which the IP address is resolved while it is monitored. Monitoring starts at the minimum
+     * interval. Every time that the IP address is found to be unchanged, the interval is doubled, up to the maximum
+     * interval. When a change is detected, the interval is reset to the minimum.
+     *
+     * No new resolution is made when the cached value is younger than the interval, for example because it was
+     * refreshed by other callers.
+     *
+     * @param minimum  The minimum interval. Must be at least one millisecond.
+     * @param maximum  The maximum interval. Cannot be smaller than the minimum interval.
+     * @param timeUnit The unit in which both intervals are expressed (cannot be null).
+     */
+    public void setMonitorInterval( long minimum, long maximum, TimeUnit timeUnit )
+    {
+        monitor.setInterval( minimum, maximum, timeUnit );
+    }
+
+    /**
+     * Returns the strategy that is used to invoke service providers.
+     *
+     * @return The resolution mode (never null).
+     */
+    public ResolutionMode getResolutionMode()
+    {
+        return resolutionMode;
+    }
+
+    /**
+     * Defines the strategy that is used to invoke service providers.
+     *
+     * @param resolutionMode The resolution mode (cannot be null).
+     */
+    public void setResolutionMode( ResolutionMode resolutionMode )
+    {
+        if ( resolutionMode == null )
+        {
+            throw new IllegalArgumentException( "Argument 'resolutionMode' cannot be null." );
+        }
+        this.resolutionMode = resolutionMode;
+    }
+
+    /**
+     * Returns the order in which service providers are considered.
+     *
+     * @return The provider ordering (never null).
+     */
+    public ProviderOrdering getProviderOrdering()
+    {
+        return providerOrdering;
+    }
+
+    /**
+     * Defines the order in which service providers are considered.
+     *
+     * @param providerOrdering The provider ordering (cannot be null).
+     */
+    public void setProviderOrdering( ProviderOrdering providerOrdering )
+    {
+        if ( providerOrdering == null )
+        {
+            throw new IllegalArgumentException( "Argument 'providerOrdering' cannot be null." );
+        }
+        this.providerOrdering = providerOrdering;
+    }
+
+    /**
+     * Returns the rate limit that applies to service providers for which no other rate limit was configured.
+     *
+     * @return The default rate limit (never null).
+     */
+    public RateLimit getDefaultRateLimit()
+    {
+        return defaultRateLimit;
+    }
+
+    /**
+     * Defines the rate limit that applies to service providers for which no other rate limit was configured. Use
+     * {@link RateLimit#NONE} to not limit the rate at which such service providers are invoked.
+     *
+     * @param rateLimit The default rate limit (cannot be null).
+     */
+    public void setDefaultRateLimit( RateLimit rateLimit )
+    {
+        if ( rateLimit == null )
+        {
+            throw new IllegalArgumentException( "Argument 'rateLimit' cannot be null." );
+        }
+        this.defaultRateLimit = rateLimit;
+    }
+
+    /**
+     * Returns the rate limit that applies to a service provider: the rate limit that was configured for that service
+     * provider, or else the rate limit that the service provider defines itself (see {@link RateLimitedResolver}), or
+     * else the rate limit of its class, or else the default rate limit.
+     *
+     * @param resolver A service provider of this instance (cannot be null).
+     * @return The rate limit of the service provider (never null).
+     */
+    public RateLimit getRateLimit( Resolver resolver )
+    {
+        checkProvider( resolver );
+        RateLimit rateLimit = providerRateLimits.get( resolver );
+        if ( rateLimit == null && resolver instanceof RateLimitedResolver )
+        {
+            rateLimit = ( (RateLimitedResolver) resolver ).getRateLimit();
+        }
+        return rateLimit == null ? getRateLimit( resolver.getClass() ) : rateLimit;
+    }
+
+    /**
+     * Defines the rate limit that applies to one service provider, overriding the rate limit that it defines itself and
+     * that of its class. Changes take effect immediately.
+     *
+     * @param resolver  A service provider of this instance (cannot be null).
+     * @param rateLimit The rate limit, or null to no longer override the rate limit of the service provider.
+     */
+    public void setRateLimit( Resolver resolver, RateLimit rateLimit )
+    {
+        checkProvider( resolver );
+        if ( rateLimit == null )
+        {
+            providerRateLimits.remove( resolver );
+        }
+        else
+        {
+            providerRateLimits.put( resolver, rateLimit );
+        }
+    }
+
+    private void checkProvider( Resolver resolver )
+    {
+        if ( resolver == null )
+        {
+            throw new IllegalArgumentException( "Argument 'resolver' cannot be null." );
+        }
+        if ( invoker.getBucket( resolver ) == null )
+        {
+            throw new IllegalArgumentException( "Resolver '" + resolver + "' is not a service provider of this "
+                                                    + "instance." );
+        }
+    }
+
+    /**
+     * Returns the rate limit that applies to the service providers of a particular class, unless a rate limit was
+     * configured for an individual service provider.
+     *
+     * @param type The class of the service providers (cannot be null).
+     * @return The rate limit of that class, or the default rate limit when none was configured for it (never null).
+     */
+    public RateLimit getRateLimit( Class<? extends Resolver> type )
+    {
+        if ( type == null )
+        {
+            throw new IllegalArgumentException( "Argument 'type' cannot be null." );
+        }
+        final RateLimit rateLimit = rateLimits.get( type );
+        return rateLimit == null ? defaultRateLimit : rateLimit;
+    }
+
+    /**
+     * Defines the rate limit that applies to the service providers of a particular class. Each service provider of that
+     * class is subject to the rate limit individually. A rate limit that is configured for, or defined by, an
+     * individual service provider takes precedence. Changes take effect immediately.
+     *
+     * @param type      The class of the service providers (cannot be null).
+     * @param rateLimit The rate limit, or null to apply the default rate limit.
+     */
+    public void setRateLimit( Class<? extends Resolver> type, RateLimit rateLimit )
+    {
+        if ( type == null )
+        {
+            throw new IllegalArgumentException( "Argument 'type' cannot be null." );
+        }
+        if ( rateLimit == null )
+        {
+            rateLimits.remove( type );
+        }
+        else
+        {
+            rateLimits.put( type, rateLimit );
+        }
+    }
+
+    /**
+     * Returns how globally routable addresses that are bound to local network interfaces are used.
+     *
+     * @return The local address mode (never null).
+     */
+    public LocalAddressMode getLocalAddressMode()
+    {
+        return localAddressMode;
+    }
+
+    /**
+     * Defines how globally routable addresses that are bound to local network interfaces are used.
+     *
+     * @param localAddressMode The local address mode (cannot be null).
+     */
+    public void setLocalAddressMode( LocalAddressMode localAddressMode )
+    {
+        if ( localAddressMode == null )
+        {
+            throw new IllegalArgumentException( "Argument 'localAddressMode' cannot be null." );
+        }
+        this.localAddressMode = localAddressMode;
+    }
+
+    /**
+     * Returns the duration that, in {@link ResolutionMode#HEDGED} mode, is waited for a response before another service
+     * provider is invoked.
+     *
+     * @param timeUnit The unit in which the returned value is expressed (cannot be null).
+     * @return The hedge delay, zero or positive.
+     */
+    public long getHedgeDelay( TimeUnit timeUnit )
+    {
+        return timeUnit.convert( hedgeDelay, TimeUnit.MILLISECONDS );
+    }
+
+    /**
+     * Defines the duration that, in {@link ResolutionMode#HEDGED} mode, is waited for a response before another
+     * service provider is invoked. A value of zero causes all providers (up to the maximum fan-out) to be invoked in
+     * parallel.
+     *
+     * @param duration The hedge delay. Cannot be negative.
+     * @param timeUnit The unit in which duration is expressed (cannot be null).
+     */
+    public void setHedgeDelay( long duration, TimeUnit timeUnit )
+    {
+        if ( duration < 0 )
+        {
+            throw new IllegalArgumentException( "Argument 'duration' cannot be negative." );
+        }
+        this.hedgeDelay = timeUnit.toMillis( duration );
+    }
+
+    /**
+     * Returns the maximum number of service providers that, in {@link ResolutionMode#HEDGED} and
+     * {@link ResolutionMode#QUORUM} mode, are invoked concurrently.
+     *
+     * @return The maximum fan-out, one or more.
+     */
+    public int getMaximumFanOut()
+    {
+        return maximumFanOut;
+    }
+
+    /**
+     * Defines the maximum number of service providers that, in {@link ResolutionMode#HEDGED} and
+     * {@link ResolutionMode#QUORUM} mode, are invoked concurrently.
+     *
+     * @param maximumFanOut The maximum fan-out. Must be one or more.
+     */
+    public void setMaximumFanOut( int maximumFanOut )
+    {
+        if ( maximumFanOut < 1 )
+        {
+            throw new IllegalArgumentException( "Argument 'maximumFanOut' must be one or more." );
+        }
+        this.maximumFanOut = maximumFanOut;
+    }
+
+    /**
+     * Returns the number of service providers that, in {@link ResolutionMode#QUORUM} mode, must report the same IP
+     * address before that address is used.
+     *
+     * @return The quorum size, one or more.
+     */
+    public int getQuorum()
+    {
+        return quorum;
+    }
+
+    /**
+     * Defines the number of service providers that, in {@link ResolutionMode#QUORUM} mode, must report the same IP
+     * address before that address is used.
+     *
+     * @param quorum The quorum size. Must be one or more.
+     */
+    public void setQuorum( int quorum )
+    {
+        if ( quorum < 1 )
+        {
+            throw new IllegalArgumentException( "Argument 'quorum' must be one or more." );
+        }
+        this.quorum = quorum;
+    }
+
+    /**
+     * Registers a listener that is notified when service providers report different IP addresses in
+     * {@link ResolutionMode#QUORUM} mode.
+     *
+     * @param listener The listener to register (cannot be null).
+     */
+    public void addQuorumListener( QuorumListener listener )
+    {
+        if ( listener == null )
+        {
+            throw new IllegalArgumentException( "Argument 'listener' cannot be null." );
+        }
+        invoker.addQuorumListener( listener );
+    }
+
+    /**
+     * Removes a previously registered listener. This method has no effect when the listener was not registered.
+     *
+     * @param listener The listener to remove.
+     */
+    public void removeQuorumListener( QuorumListener listener )
+    {
+        invoker.removeQuorumListener( listener );
+    }
+
+    /**
+     * Returns the state of the circuit breaker of each service provider.
+     *
+     * @return The circuit breaker state of each service provider (never null).
+     */
+    public Map<Resolver, CircuitBreakerState> getCircuitBreakerStates()
+    {
+        return getCircuitBreakerStates( anyFamily );
+    }
+
+    /**
+     * Returns the state of the circuit breaker of each service provider, as used when resolving IP addresses of the
+     * provided family.
+     *
+     * @param family The family of the IP address (cannot be null).
+     * @return The circuit breaker state of each service provider (never null).
+     */
+    public Map<Resolver, CircuitBreakerState> getCircuitBreakerStates( AddressFamily family )
+    {
+        if ( family == null )
+        {
+            throw new IllegalArgumentException( "Argument 'family' cannot be null." );
+        }
+        return getCircuitBreakerStates( families.get( family ) );
+    }
+
+    private Map<Resolver, CircuitBreakerState> getCircuitBreakerStates( Slot slot )
+    {
+        final Map<Resolver, CircuitBreakerState> result = new LinkedHashMap<>();
+        for ( final Resolver resolver : providers )
+        {
+            result.put( resolver, slot.getState( resolver ).breaker.getState() );
+        }
+        return result;
+    }
+
+    /**
+     * Returns the metrics of this service.
+     *
+     * @return The metrics (never null).
+     */
+    public ResolverServiceMXBean getMetrics()
+    {
+        return metrics;
+    }
+
+    /**
+     * Returns the metrics of each service provider.
+     *
+     * @return The metrics of each service provider (never null).
+     */
+    public List<ProviderMXBean> getProviderMetrics()
+    {
+        final List<ProviderMXBean> result = new ArrayList<>( providers.size() );
+        for ( final Resolver resolver : providers )
+        {
+            final ResolverState state = anyFamily.getState( resolver );
+            result.add( new ProviderMetrics( resolver, state, invoker.getBucket( resolver ) ) );
+        }
+        return result;
+    }
+
+    /**
+     * Registers the metrics of this service, and of each of its service providers, as MBeans with the platform MBean
+     * server. The metrics of this service are registered under the name
+     * <tt>nl.goodbytes.network.utility.eip:type=ResolverService</tt>, extended with a <tt>name</tt> property that holds
+     * the name of this instance (if it has one). Those of each service provider are registered under that name,
+     * extended with a <tt>provider</tt> property that holds the simple class name of the provider.
+     *
+     * Problems registering MBeans are logged, but otherwise ignored. This method has no effect when the MBeans have
+     * already been registered.
+     */
+    public synchronized void registerMBeans()
+    {
+        if ( !registeredMBeans.isEmpty() )
+        {
+            return;
+        }
+
+        String base = ResolverService.class.getPackage().getName() + ":type=ResolverService";
+        if ( name != null )
+        {
+            base += ",name=" + ( name.matches( "[\\w.-]+" ) ? name : ObjectName.quote( name ) );
+        }
+        register( base, metrics );
+
+        final Map<String, Integer> seen = new HashMap<>();
+        for ( final ProviderMXBean provider : getProviderMetrics() )
+        {
+            // Providers of the same class are numbered, to keep their names unique.
+            final String simpleName = provider.getName().substring( provider.getName().lastIndexOf( '.' ) + 1 );
+            final Integer previous = seen.get( simpleName );
+            final int count = previous == null ? 1 : previous + 1;
+            seen.put( simpleName, count );
+            final String name = count == 1 ? simpleName : simpleName + '-' + count;
+            register( base + ",provider=" + name, provider );
+        }
+    }
+
+    private void register( String name, Object mbean )
+    {
+        try
+        {
+            final ObjectName objectName = new ObjectName( name );
+            ManagementFactory.getPlatformMBeanServer().registerMBean( mbean, objectName );
+            registeredMBeans.add( objectName );
+        }
+        catch ( JMException e )
+        {
+            LOGGER.log( Level.WARNING, "Unable to register MBean '" + name + "'.", e );
+        }
+    }
+
+    /**
+     * Unregisters all MBeans that were registered by {@link #registerMBeans()}. This method has no effect when no
+     * MBeans are registered.
+     */
+    public synchronized void unregisterMBeans()
+    {
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for ( final ObjectName name : registeredMBeans )
+        {
+            try
+            {
+                server.unregisterMBean( name );
+            }
+            catch ( JMException e )
+            {
+                LOGGER.log( Level.FINE, "Unable to unregister MBean '" + name + "'.", e );
+            }
+        }
+        registeredMBeans.clear();
+    }
+
+    /**
+     * Releases the resources of this instance: the background refresh and the monitoring of the IP address are
+     * stopped, all address change listeners are removed, its MBeans are unregistered, and the executors that were
+     * created by this instance are shut down. An executor that was provided when this instance was built (see
+     * {@link ResolverServiceBuilder#executor(Executor)}) is not shut down, as it can be shared by other instances.
+     *
+     * After an instance has been closed, service providers are no longer invoked: every resolution returns the cached
+     * value, if any. This method has no effect when the instance is already closed.
+     *
+     * The singleton instance (see {@link #getInstance()}) is shared by the entire application, and is not to be closed.
+     */
+    @Override
+    public void close()
+    {
+        synchronized ( this )
+        {
+            if ( closed )
+            {
+                return;
+            }
+            closed = true;
+            stopBackgroundRefresh();
+        }
+
+        monitor.close();
+        unregisterMBeans();
+        invoker.close();
+        if ( ownedExecutor != null )
+        {
+            ownedExecutor.shutdown();
+        }
+    }
+
+    /**
+     * Returns whether this instance has been closed.
+     *
+     * @return true if {@link #close()} has been invoked, otherwise false.
+     */
+    public boolean isClosed()
+    {
+        return closed;
+    }
+
+    /**
+     * Returns all resolvers that are permitted by their circuit breaker, in the order in which they would be invoked
+     * to resolve an address of any family.
+     *
+     * @return All available resolvers, in order of preference.
+     */
+    List<Resolver> getRankedResolvers()
+    {
+        return invoker.getRankedResolvers( anyFamily );
     }
 }
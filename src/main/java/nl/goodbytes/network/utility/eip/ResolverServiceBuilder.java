@@ -0,0 +1,427 @@
+/*
+ * Copyright (c) 2017 Guus der Kinderen. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.goodbytes.network.utility.eip;
+
+import nl.goodbytes.network.utility.eip.spi.Resolver;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A builder of {@link ResolverService} instances.
+ *
+ * Unless defined otherwise, a new instance loads all service providers (creating new instances of them, that are
+ * not shared with other instances of the service) and uses executors of its own. All other settings can also be
+ * changed after the service has been built. Values are validated when the service is built.
+ *
+ * Every instance that is built holds on to resources of its own: executors, and the scheduled tasks of its background
+ * refresh and its monitor. An instance that is no longer needed, for example when instances are created per tenant,
+ * is to be closed (see {@link ResolverService#close()}) to release these resources.
+ *
+ * @author Guus der Kinderen, guus@goodbytes.nl
+ */
+public final class ResolverServiceBuilder
+{
+    private String name;
+    private List<Resolver> resolvers;
+    private Executor executor;
+    private ResolutionMode resolutionMode;
+    private ProviderOrdering providerOrdering;
+    private RateLimit defaultRateLimit;
+    private final Map<Class<? extends Resolver>, RateLimit> rateLimits = new HashMap<>();
+    private final Map<Resolver, RateLimit> providerRateLimits = new HashMap<>();
+    private LocalAddressMode localAddressMode;
+    private Long maximumAge;
+    private Long timeout;
+    private Long hedgeDelay;
+    private Integer maximumFanOut;
+    private Integer quorum;
+    private Long minimumMonitorInterval;
+    private Long maximumMonitorInterval;
+    private Path persistentCacheFile;
+
+    ResolverServiceBuilder()
+    {
+    }
+
+    /**
+     * Defines the name of the service, which is used to distinguish it from other instances, for example when its
+     * metrics are registered as MBeans.
+     *
+     * @param name The name (cannot be null).
+     * @return This builder.
+     */
+    public ResolverServiceBuilder name( String name )
+    {
+        if ( name == null )
+        {
+            throw new IllegalArgumentException( "Argument 'name' cannot be null." );
+        }
+        this.name = name;
+        return this;
+    }
+
+    /**
+     * Adds a service provider. When this method is used, service providers are no longer loaded automatically: only
+     * the service providers that are added are used, in the order in which they were added.
+     *
+     * @param resolver The service provider to add (cannot be null).
+     * @return This builder.
+     */
+    public ResolverServiceBuilder addResolver( Resolver resolver )
+    {
+        if ( resolver == null )
+        {
+            throw new IllegalArgumentException( "Argument 'resolver' cannot be null." );
+        }
+        if ( resolvers == null )
+        {
+            resolvers = new ArrayList<>();
+        }
+        resolvers.add( resolver );
+        return this;
+    }
+
+    /**
+     * Adds service providers, for example those that are created by
+     * {@link nl.goodbytes.network.utility.eip.impl.ResolverConfiguration}. When this method is used, service
+     * providers are no longer loaded automatically: only the service providers that are added are used, in the
+     * order in which they were added.
+     *
+     * @param resolvers The service providers to add (cannot be null).
+     * @return This builder.
+     */
+    public ResolverServiceBuilder addResolvers( Iterable<? extends Resolver> resolvers )
+    {
+        if ( resolvers == null )
+        {
+            throw new IllegalArgumentException( "Argument 'resolvers' cannot be null." );
+        }
+        for ( final Resolver resolver : resolvers )
+        {
+            addResolver( resolver );
+        }
+        return this;
+    }
+
+    /**
+     * Adds all service providers that are registered (in <tt>META-INF/services</tt>), creating new instances of
+     * them. This is to be used when service providers are added explicitly, but the registered service providers
+     * are to be used too.
+     *
+     * @return This builder.
+     */
+    public ResolverServiceBuilder addServiceProviders()
+    {
+        return addResolvers( ServiceLoader.load( Resolver.class ) );
+    }
+
+    /**
+     * Defines the executor that is used to run resolutions asynchronously: for background refreshes, for the
+     * monitoring of the IP address, and for non-blocking resolutions. A resolution invokes service providers,
+     * which perform blocking network I/O. This should be taken into account when providing an executor.
+     * {@link ResolverExecutors} creates suitable, bounded executors. The executor can be shared by several
+     * instances.
+     *
+     * Service providers that are invoked concurrently (in {@link ResolutionMode#HEDGED} and
+     * {@link ResolutionMode#QUORUM} mode) do not use this executor, but one that is private to the instance, so
+     * that these invocations cannot be queued behind the resolutions that wait for them.
+     *
+     * When no executor is defined, the instance creates a small, bounded executor of its own.
+     *
+     * @param executor The executor (cannot be null).
+     * @return This builder.
+     */
+    public ResolverServiceBuilder executor( Executor executor )
+    {
+        if ( executor == null )
+        {
+            throw new IllegalArgumentException( "Argument 'executor' cannot be null." );
+        }
+        this.executor = executor;
+        return this;
+    }
+
+    /**
+     * Defines the strategy that is used to invoke service providers.
+     *
+     * @param resolutionMode The resolution mode (cannot be null).
+     * @return This builder.
+     */
+    public ResolverServiceBuilder resolutionMode( ResolutionMode resolutionMode )
+    {
+        this.resolutionMode = resolutionMode;
+        return this;
+    }
+
+    /**
+     * Defines the order in which service providers are considered.
+     *
+     * @param providerOrdering The provider ordering (cannot be null).
+     * @return This builder.
+     */
+    public ResolverServiceBuilder providerOrdering( ProviderOrdering providerOrdering )
+    {
+        this.providerOrdering = providerOrdering;
+        return this;
+    }
+
+    /**
+     * Defines the rate limit that applies to service providers for which no other rate limit was configured.
+     *
+     * @param rateLimit The default rate limit (cannot be null).
+     * @return This builder.
+     */
+    public ResolverServiceBuilder defaultRateLimit( RateLimit rateLimit )
+    {
+        this.defaultRateLimit = rateLimit;
+        return this;
+    }
+
+    /**
+     * Defines the rate limit that applies to the service providers of a particular class.
+     *
+     * @param type      The class of the service providers (cannot be null).
+     * @param rateLimit The rate limit (cannot be null).
+     * @return This builder.
+     */
+    public ResolverServiceBuilder rateLimit( Class<? extends Resolver> type, RateLimit rateLimit )
+    {
+        if ( type == null )
+        {
+            throw new IllegalArgumentException( "Argument 'type' cannot be null." );
+        }
+        if ( rateLimit == null )
+        {
+            throw new IllegalArgumentException( "Argument 'rateLimit' cannot be null." );
+        }
+        rateLimits.put( type, rateLimit );
+        return this;
+    }
+
+    /**
+     * Defines the rate limit that applies to one service provider, overriding any other rate limit of it. The
+     * service provider must be one that is added to this builder.
+     *
+     * @param resolver  The service provider (cannot be null).
+     * @param rateLimit The rate limit (cannot be null).
+     * @return This builder.
+     */
+    public ResolverServiceBuilder rateLimit( Resolver resolver, RateLimit rateLimit )
+    {
+        if ( resolver == null )
+        {
+            throw new IllegalArgumentException( "Argument 'resolver' cannot be null." );
+        }
+        if ( rateLimit == null )
+        {
+            throw new IllegalArgumentException( "Argument 'rateLimit' cannot be null." );
+        }
+        providerRateLimits.put( resolver, rateLimit );
+        return this;
+    }
+
+    /**
+     * Defines how globally routable addresses that are bound to local network interfaces are used.
+     *
+     * @param localAddressMode The local address mode (cannot be null).
+     * @return This builder.
+     */
+    public ResolverServiceBuilder localAddressMode( LocalAddressMode localAddressMode )
+    {
+        this.localAddressMode = localAddressMode;
+        return this;
+    }
+
+    /**
+     * Defines the maximum preferred age of a cached entry that is used when no explicit maximum age is provided.
+     *
+     * @param duration The default maximum age. Cannot be negative.
+     * @param timeUnit The unit in which duration is expressed (cannot be null).
+     * @return This builder.
+     */
+    public ResolverServiceBuilder maximumAge( long duration, TimeUnit timeUnit )
+    {
+        this.maximumAge = timeUnit.toMillis( duration );
+        return this;
+    }
+
+    /**
+     * Defines the maximum duration of a resolution that is used when no explicit timeout is provided.
+     *
+     * @param timeout  The default timeout. Must be at least one millisecond.
+     * @param timeUnit The unit in which timeout is expressed (cannot be null).
+     * @return This builder.
+     */
+    public ResolverServiceBuilder timeout( long timeout, TimeUnit timeUnit )
+    {
+        this.timeout = timeUnit.toMillis( timeout );
+        return this;
+    }
+
+    /**
+     * Defines the duration that, in {@link ResolutionMode#HEDGED} mode, is waited for a response before another
+     * service provider is invoked.
+     *
+     * @param duration The hedge delay. Cannot be negative.
+     * @param timeUnit The unit in which duration is expressed (cannot be null).
+     * @return This builder.
+     */
+    public ResolverServiceBuilder hedgeDelay( long duration, TimeUnit timeUnit )
+    {
+        this.hedgeDelay = timeUnit.toMillis( duration );
+        return this;
+    }
+
+    /**
+     * Defines the maximum number of service providers that are invoked concurrently.
+     *
+     * @param maximumFanOut The maximum fan-out. Must be one or more.
+     * @return This builder.
+     */
+    public ResolverServiceBuilder maximumFanOut( int maximumFanOut )
+    {
+        this.maximumFanOut = maximumFanOut;
+        return this;
+    }
+
+    /**
+     * Defines the number of service providers that, in {@link ResolutionMode#QUORUM} mode, must report the same IP
+     * address before that address is used.
+     *
+     * @param quorum The quorum size. Must be one or more.
+     * @return This builder.
+     */
+    public ResolverServiceBuilder quorum( int quorum )
+    {
+        this.quorum = quorum;
+        return this;
+    }
+
+    /**
+     * Defines the interval at which the IP address is resolved while it is monitored.
+     *
+     * @param minimum  The minimum interval. Must be at least one millisecond.
+     * @param maximum  The maximum interval. Cannot be smaller than the minimum interval.
+     * @param timeUnit The unit in which both intervals are expressed (cannot be null).
+     * @return This builder.
+     */
+    public ResolverServiceBuilder monitorInterval( long minimum, long maximum, TimeUnit timeUnit )
+    {
+        this.minimumMonitorInterval = timeUnit.toMillis( minimum );
+        this.maximumMonitorInterval = timeUnit.toMillis( maximum );
+        return this;
+    }
+
+    /**
+     * Defines a file in which successful resolutions are persisted.
+     *
+     * @param file The file to use, or null to not persist resolutions.
+     * @return This builder.
+     */
+    public ResolverServiceBuilder persistentCacheFile( Path file )
+    {
+        this.persistentCacheFile = file;
+        return this;
+    }
+
+    /**
+     * Creates a new service, using the configuration of this builder. The service is to be closed when it is no
+     * longer needed.
+     *
+     * @return A new service (never null).
+     * @throws IllegalArgumentException When the configuration contains an invalid value.
+     */
+    public ResolverService build()
+    {
+        final Iterable<? extends Resolver> providers = resolvers == null
+            ? ServiceLoader.load( Resolver.class )
+            : new ArrayList<>( resolvers );
+        final ResolverService service = new ResolverService( name, providers, executor );
+        if ( resolutionMode != null )
+        {
+            service.setResolutionMode( resolutionMode );
+        }
+        if ( providerOrdering != null )
+        {
+            service.setProviderOrdering( providerOrdering );
+        }
+        if ( defaultRateLimit != null )
+        {
+            service.setDefaultRateLimit( defaultRateLimit );
+        }
+        for ( final Map.Entry<Class<? extends Resolver>, RateLimit> entry : rateLimits.entrySet() )
+        {
+            service.setRateLimit( entry.getKey(), entry.getValue() );
+        }
+        for ( final Map.Entry<Resolver, RateLimit> entry : providerRateLimits.entrySet() )
+        {
+            service.setRateLimit( entry.getKey(), entry.getValue() );
+        }
+        if ( localAddressMode != null )
+        {
+            service.setLocalAddressMode( localAddressMode );
+        }
+        if ( maximumAge != null )
+        {
+            service.setMaximumAge( maximumAge, TimeUnit.MILLISECONDS );
+        }
+        if ( timeout != null )
+        {
+            service.setTimeout( timeout, TimeUnit.MILLISECONDS );
+        }
+        if ( hedgeDelay != null )
+        {
+            service.setHedgeDelay( hedgeDelay, TimeUnit.MILLISECONDS );
+        }
+        if ( maximumFanOut != null )
+        {
+            service.setMaximumFanOut( maximumFanOut );
+        }
+        if ( quorum != null )
+        {
+            service.setQuorum( quorum );
+        }
+        if ( minimumMonitorInterval != null )
+        {
+            service.setMonitorInterval( minimumMonitorInterval, maximumMonitorInterval, TimeUnit.MILLISECONDS );
+        }
+        if ( persistentCacheFile != null )
+        {
+            service.setPersistentCacheFile( persistentCacheFile );
+        }
+        return service;
+    }
+
+    /**
+     * Creates a new service, using the configuration of this builder, wrapped in a non-blocking implementation. The
+     * service is to be closed when it is no longer needed.
+     *
+     * @return A new non-blocking service (never null).
+     * @throws IllegalArgumentException When the configuration contains an invalid value.
+     */
+    public NonBlockingResolverService buildNonBlocking()
+    {
+        return new NonBlockingResolverService( build() );
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2017 Guus der Kinderen. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.goodbytes.network.utility.eip;
+
+/**
+ * Metrics of a {@link ResolverService}, that can be exposed through JMX (see {@link ResolverService#registerMBeans()}),
+ * or read directly, for example to bind them to another metrics library.
+ *
+ * All counts are cumulative, since the service was created. Durations are expressed in microseconds.
+ *
+ * @author Guus der Kinderen, guus@goodbytes.nl
+ * @see ResolverService#getMetrics()
+ */
+public interface ResolverServiceMXBean
+{
+    /**
+     * Returns the number of requests that were answered with a cached value that was not older than requested.
+     *
+     * @return A request count, zero or positive.
+     */
+    long getCacheHitCount();
+
+    /**
+     * Returns the number of requests that were answered with a cached value that was older than requested, while that
+     * value was refreshed in the background.
+     *
+     * @return A request count, zero or positive.
+     */
+    long getStaleCacheHitCount();
+
+    /**
+     * Returns the number of requests for which no suitable cached value was available.
+     *
+     * @return A request count, zero or positive.
+     */
+    long getCacheMissCount();
+
+    /**
+     * Returns the number of resolutions (each possibly shared by many requests) that produced a new value.
+     *
+     * @return A resolution count, zero or positive.
+     */
+    long getRefreshSuccessCount();
+
+    /**
+     * Returns the number of resolutions that did not produce a new value before their deadline expired.
+     *
+     * @return A resolution count, zero or positive.
+     */
+    long getRefreshTimeoutCount();
+
+    /**
+     * Returns the number of resolutions that did not produce a new value, as all service providers failed.
+     *
+     * @return A resolution count, zero or positive.
+     */
+    long getRefreshFailureCount();
+
+    /**
+     * Returns the mean duration of successful resolutions.
+     *
+     * @return A duration in microseconds. Zero when no resolution was successful yet.
+     */
+    long getRefreshLatencyMean();
+
+    /**
+     * Returns the median duration of successful resolutions.
+     *
+     * @return A duration in microseconds. Zero when no resolution was successful yet.
+     */
+    long getRefreshLatency50thPercentile();
+
+    /**
+     * Returns the 99th percentile of the duration of successful resolutions.
+     *
+     * @return A duration in microseconds. Zero when no resolution was successful yet.
+     */
+    long getRefreshLatency99thPercentile();
+
+    /**
+     * Returns the number of service provider invocations that are currently in progress.
+     *
+     * @return An invocation count, zero or positive.
+     */
+    int getInFlightRequestCount();
+
+    /**
+     * Returns the cached IP address.
+     *
+     * @return A textual representation of the IP address, or null when no value is cached.
+     */
+    String getCachedAddress();
+
+    /**
+     * Returns the age of the cached IP address.
+     *
+     * @return An age in microseconds, or -1 when no value is cached.
+     */
+    long getCachedAddressAge();
+}
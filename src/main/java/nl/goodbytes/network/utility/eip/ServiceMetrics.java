@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2017 Guus der Kinderen. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.goodbytes.network.utility.eip;
+
+import nl.goodbytes.network.utility.eip.spi.LatencyHistogram;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The metrics that {@link ResolverService} keeps of itself. Recording does not acquire locks. The cache counters, which
+ * are updated by every caller, are striped to avoid contention between threads that read the cache concurrently.
+ *
+ * @author Guus der Kinderen, guus@goodbytes.nl
+ */
+final class ServiceMetrics implements ResolverServiceMXBean
+{
+    final LongAdder cacheHits = new LongAdder();
+    final LongAdder staleCacheHits = new LongAdder();
+    final LongAdder cacheMisses = new LongAdder();
+    final AtomicInteger inFlightRequests = new AtomicInteger();
+    final LatencyHistogram refreshes = new LatencyHistogram();
+    private final ResolverService service;
+
+    ServiceMetrics( ResolverService service )
+    {
+        this.service = service;
+    }
+
+    @Override
+    public long getCacheHitCount()
+    {
+        return cacheHits.sum();
+    }
+
+    @Override
+    public long getStaleCacheHitCount()
+    {
+        return staleCacheHits.sum();
+    }
+
+    @Override
+    public long getCacheMissCount()
+    {
+        return cacheMisses.sum();
+    }
+
+    @Override
+    public long getRefreshSuccessCount()
+    {
+        return refreshes.getSuccessCount();
+    }
+
+    @Override
+    public long getRefreshTimeoutCount()
+    {
+        return refreshes.getTimeoutCount();
+    }
+
+    @Override
+    public long getRefreshFailureCount()
+    {
+        return refreshes.getFailureCount();
+    }
+
+    @Override
+    public long getRefreshLatencyMean()
+    {
+        return refreshes.getMean( TimeUnit.MICROSECONDS );
+    }
+
+    @Override
+    public long getRefreshLatency50thPercentile()
+    {
+        return refreshes.getPercentile( 50, TimeUnit.MICROSECONDS );
+    }
+
+    @Override
+    public long getRefreshLatency99thPercentile()
+    {
+        return refreshes.getPercentile( 99, TimeUnit.MICROSECONDS );
+    }
+
+    @Override
+    public int getInFlightRequestCount()
+    {
+        return inFlightRequests.get();
+    }
+
+    @Override
+    public String getCachedAddress()
+    {
+        final Resolution snapshot = service.getCachedResolution();
+        return snapshot == null ? null : snapshot.getAddress().getHostAddress();
+    }
+
+    @Override
+    public long getCachedAddressAge()
+    {
+        final Resolution snapshot = service.getCachedResolution();
+        if ( snapshot == null )
+        {
+            return -1;
+        }
+        return TimeUnit.MILLISECONDS.toMicros( System.currentTimeMillis() - snapshot.getTimestamp() );
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2017 Guus der Kinderen. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.goodbytes.network.utility.eip;
+
+import nl.goodbytes.network.utility.eip.spi.Resolver;
+
+import java.net.InetAddress;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The cached value, the resolution that is in progress, and the bookkeeping of service providers, that a
+ * {@link ResolverService} uses to resolve the IP address of one address family (or of any family).
+ *
+ * @author Guus der Kinderen, guus@goodbytes.nl
+ */
+final class Slot
+{
+    final AddressFamily family;
+    final AtomicReference<Flight> inFlight = new AtomicReference<>();
+    final ConcurrentMap<Resolver, ResolverState> states = new ConcurrentHashMap<>();
+    volatile Resolution current;
+
+    /**
+     * @param family The family of the IP addresses that are resolved, or null for any.
+     */
+    Slot( AddressFamily family )
+    {
+        this.family = family;
+    }
+
+    /**
+     * Returns the cached value, irrespective of its age.
+     *
+     * @return A cached IP address, or null when no value is cached.
+     */
+    InetAddress getCachedAddress()
+    {
+        final Resolution snapshot = current;
+        return snapshot == null ? null : snapshot.getAddress();
+    }
+
+    /**
+     * Publishes a resolution as the cached value, unless the currently cached value is more recent.
+     *
+     * @param resolution The resolution to cache (cannot be null).
+     */
+    synchronized void offer( Resolution resolution )
+    {
+        final Resolution snapshot = current;
+        if ( snapshot == null || resolution.getTimestamp() >= snapshot.getTimestamp() )
+        {
+            current = resolution;
+        }
+    }
+
+    ResolverState getState( final Resolver resolver )
+    {
+        ResolverState state = states.get( resolver );
+        if ( state == null )
+        {
+            final ResolverState created = new ResolverState();
+            state = states.putIfAbsent( resolver, created );
+            if ( state == null )
+            {
+                state = created;
+            }
+        }
+        return state;
+    }
+}
@@ -16,7 +16,13 @@
 
 package nl.goodbytes.network.utility.eip;
 
+import nl.goodbytes.network.utility.eip.impl.ResolverConfiguration;
+
+import java.io.IOException;
 import java.net.InetAddress;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.ConsoleHandler;
 import java.util.logging.Level;
 
@@ -29,10 +35,35 @@ import java.util.logging.Level;
  * The only information written to the "standard" output stream will be an IP address. All other information will be
  * written to "standard" error output stream.
  *
+ * The following arguments are recognized:
+ * <ul>
+ *     <li><tt>verbose</tt> - writes messages describing the execution to the "standard" error output stream.</li>
+ *     <li><tt>cache</tt> - persists the result in a file in the home directory of the user, so that later invocations
+ *     can reuse it instead of making network requests.</li>
+ *     <li><tt>cache=&lt;path&gt;</tt> - persists the result in the specified file.</li>
+ *     <li><tt>daemon</tt> - instead of resolving once, keeps running: the IP address is refreshed in the background,
+ *     and reported to every local process that connects to TCP port 4848 on the loopback interface. Metrics are
+ *     exposed as JMX MBeans.</li>
+ *     <li><tt>daemon=&lt;port&gt;</tt> - as <tt>daemon</tt>, but using the specified TCP port.</li>
+ *     <li><tt>resolvers=&lt;path&gt;</tt> - uses the web services that are defined in the specified file, in addition
+ *     to the public services. The format of the file is described in {@link ResolverConfiguration}.</li>
+ * </ul>
+ *
  * @author Guus der Kinderen, guus@goodbytes.nl
  */
 public class Starter
 {
+    private static final String CACHE_ARGUMENT = "cache";
+    private static final String DEFAULT_CACHE_FILE = ".external-ip-check.cache";
+    private static final String DAEMON_ARGUMENT = "daemon";
+    private static final int DEFAULT_DAEMON_PORT = 4848;
+    private static final long DAEMON_REFRESH_INTERVAL_MINUTES = 15;
+    private static final String RESOLVERS_ARGUMENT = "resolvers";
+
+    private Path cacheFile;
+    private int daemonPort = -1;
+    private Path resolverConfiguration;
+
     public static final void main( String[] args )
     {
         final Starter starter = new Starter();
@@ -46,7 +77,19 @@ public class Starter
      */
     private void doExecution()
     {
-        final InetAddress result = ResolverService.getInstance().resolve();
+        final ResolverService service = createService();
+        if ( cacheFile != null )
+        {
+            service.setPersistentCacheFile( cacheFile );
+        }
+
+        if ( daemonPort >= 0 )
+        {
+            runDaemon( service );
+            return;
+        }
+
+        final InetAddress result = service.resolve();
         if ( result == null )
         {
             System.err.println( "Unable to resolve public IP address." );
@@ -56,6 +99,66 @@ public class Starter
         System.out.println( result.getHostAddress() );
     }
 
+    /**
+     * Returns the service that is used to resolve the IP address. When a configuration of web services was provided,
+     * a service that uses those in addition to the public services is created. Otherwise, the default instance is used.
+     *
+     * @return A service (never null).
+     */
+    private ResolverService createService()
+    {
+        if ( resolverConfiguration == null )
+        {
+            return ResolverService.getInstance();
+        }
+
+        try
+        {
+            return ResolverService.builder()
+                .addResolvers( ResolverConfiguration.load( resolverConfiguration ) )
+                .addServiceProviders()
+                .build();
+        }
+        catch ( IOException e )
+        {
+            System.err.println( "Unable to read resolvers from " + resolverConfiguration + ": " + e );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            System.err.println( "Unable to load resolvers from " + resolverConfiguration + ": " + e.getMessage() );
+        }
+        System.exit( 1 );
+        return null;
+    }
+
+    /**
+     * Keeps the resolved IP address up-to-date, reporting it to local processes that connect to the query endpoint.
+     * This method does not return, unless the endpoint cannot be started.
+     *
+     * @param service The service used to resolve the IP address (cannot be null).
+     */
+    private void runDaemon( ResolverService service )
+    {
+        service.startBackgroundRefresh( DAEMON_REFRESH_INTERVAL_MINUTES, TimeUnit.MINUTES );
+        service.registerMBeans();
+
+        final QueryEndpoint endpoint;
+        try
+        {
+            endpoint = new QueryEndpoint( service, daemonPort );
+        }
+        catch ( IOException e )
+        {
+            System.err.println( "Unable to listen on port " + daemonPort + ": " + e.getMessage() );
+            System.exit( 1 );
+            return;
+        }
+
+        System.err.println( "Reporting the public IP address on " + InetAddress.getLoopbackAddress().getHostAddress()
+                                + ":" + endpoint.getPort() );
+        endpoint.run();
+    }
+
     /**
      * Processes any arguments that were provided when invoking the JAR file.
      *
@@ -74,7 +177,46 @@ public class Starter
             {
                 makeVerbose();
             }
+            else if ( CACHE_ARGUMENT.equalsIgnoreCase( args[ i ] ) )
+            {
+                cacheFile = Paths.get( System.getProperty( "user.home" ), DEFAULT_CACHE_FILE );
+            }
+            else if ( args[ i ].regionMatches( true, 0, CACHE_ARGUMENT + "=", 0, CACHE_ARGUMENT.length() + 1 ) )
+            {
+                cacheFile = Paths.get( args[ i ].substring( CACHE_ARGUMENT.length() + 1 ) );
+            }
+            else if ( DAEMON_ARGUMENT.equalsIgnoreCase( args[ i ] ) )
+            {
+                daemonPort = DEFAULT_DAEMON_PORT;
+            }
+            else if ( args[ i ].regionMatches( true, 0, DAEMON_ARGUMENT + "=", 0, DAEMON_ARGUMENT.length() + 1 ) )
+            {
+                daemonPort = parsePort( args[ i ].substring( DAEMON_ARGUMENT.length() + 1 ) );
+            }
+            else if ( args[ i ].regionMatches( true, 0, RESOLVERS_ARGUMENT + "=", 0, RESOLVERS_ARGUMENT.length() + 1 ) )
+            {
+                resolverConfiguration = Paths.get( args[ i ].substring( RESOLVERS_ARGUMENT.length() + 1 ) );
+            }
+        }
+    }
+
+    private static int parsePort( String value )
+    {
+        try
+        {
+            final int port = Integer.parseInt( value );
+            if ( port >= 0 && port <= 65535 )
+            {
+                return port;
+            }
+        }
+        catch ( NumberFormatException e )
+        {
+            // Handled below.
         }
+        System.err.println( "Invalid port number: " + value );
+        System.exit( 1 );
+        return -1;
     }
 
     /**
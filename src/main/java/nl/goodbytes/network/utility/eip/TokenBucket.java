@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2017 Guus der Kinderen. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.goodbytes.network.utility.eip;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Enforces a {@link RateLimit} on the invocations of one service provider, without acquiring locks.
+ *
+ * Rather than counting tokens, this implementation tracks the moment at which the bucket would be full again (which is
+ * equivalent, and allows the state to be updated with one compare-and-set operation). Each invocation moves that
+ * moment one interval ahead. An invocation is permitted only when that does not move it further ahead than the
+ * capacity of the bucket allows.
+ *
+ * The rate limit is provided with every invocation, so that changes to it take effect immediately, without losing the
+ * state of the bucket.
+ *
+ * @author Guus der Kinderen, guus@goodbytes.nl
+ */
+final class TokenBucket
+{
+    private final AtomicLong fullAt = new AtomicLong( System.nanoTime() );
+    private final LongAdder rejections = new LongAdder();
+
+    /**
+     * Takes one token from the bucket, if one is available.
+     *
+     * @param limit The rate limit to enforce (cannot be null).
+     * @return true if an invocation is permitted, otherwise false.
+     */
+    boolean tryAcquire( RateLimit limit )
+    {
+        if ( limit.isUnlimited() )
+        {
+            return true;
+        }
+
+        while ( true )
+        {
+            final long now = System.nanoTime();
+            final long current = fullAt.get();
+            final long next = advance( current, now, limit );
+            if ( next - now > capacity( limit ) )
+            {
+                rejections.increment();
+                return false;
+            }
+            if ( fullAt.compareAndSet( current, next ) )
+            {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Returns one token to the bucket, that was taken by {@link #tryAcquire(RateLimit)} for an invocation that was not
+     * made after all. This moves the moment at which the bucket is full again one interval back. When the bucket
+     * has refilled in the meantime, that moment is in the past, which is equivalent to a full bucket.
+     *
+     * @param limit The rate limit with which the token was taken (cannot be null).
+     */
+    void refund( RateLimit limit )
+    {
+        if ( !limit.isUnlimited() )
+        {
+            fullAt.addAndGet( -limit.getInterval() );
+        }
+    }
+
+    /**
+     * Calculates the moment at which the bucket would be full again, after taking one token from it.
+     *
+     * @param current The moment at which the bucket is full again, without taking a token.
+     * @param now     The current moment.
+     * @param limit   The rate limit to enforce (cannot be null).
+     * @return A moment, in nanoseconds.
+     */
+    private static long advance( long current, long now, RateLimit limit )
+    {
+        return ( current - now > 0 ? current : now ) + limit.getInterval();
+    }
+
+    /**
+     * Returns the duration that it takes to refill an empty bucket.
+     *
+     * @param limit The rate limit to enforce (cannot be null).
+     * @return A duration, in nanoseconds.
+     */
+    private static long capacity( RateLimit limit )
+    {
+        return limit.getInterval() * limit.getPermits();
+    }
+
+    /**
+     * Returns the number of invocations that were not permitted.
+     *
+     * @return A number of invocations, zero or positive.
+     */
+    long getRejectionCount()
+    {
+        return rejections.sum();
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2017 Guus der Kinderen. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.goodbytes.network.utility.eip;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+
+import static nl.goodbytes.network.utility.eip.ResolverService.LOGGER;
+
+/**
+ * Provides access to virtual threads, where these are available.
+ *
+ * Virtual threads are looked up reflectively, as this library is compiled for Java 8. This also allows them to be used
+ * on JVMs that offer them as a preview feature. The lookup is done only when an executor is created.
+ *
+ * @author Guus der Kinderen, guus@goodbytes.nl
+ */
+final class VirtualThreads
+{
+    private VirtualThreads()
+    {
+    }
+
+    /**
+     * Creates an executor that runs each task on a new virtual thread.
+     *
+     * @return An executor, or null when virtual threads are not available.
+     */
+    static ExecutorService newPerTaskExecutor()
+    {
+        try
+        {
+            final Method factory = Executors.class.getMethod( "newVirtualThreadPerTaskExecutor" );
+            return (ExecutorService) factory.invoke( null );
+        }
+        catch ( NoSuchMethodException e )
+        {
+            LOGGER.fine( "Virtual threads are not available on this JVM." );
+        }
+        catch ( IllegalAccessException | InvocationTargetException | RuntimeException e )
+        {
+            // For example, when virtual threads are a preview feature that has not been enabled.
+            LOGGER.log( Level.FINE, "Virtual threads cannot be used on this JVM.", e );
+        }
+        return null;
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2017 Guus der Kinderen. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.goodbytes.network.utility.eip.impl;
+
+import nl.goodbytes.network.utility.eip.AddressFamily;
+import nl.goodbytes.network.utility.eip.ParseException;
+import nl.goodbytes.network.utility.eip.spi.FamilyAwareResolver;
+import nl.goodbytes.network.utility.eip.spi.LatencyHistogram;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.InetAddress;
+import java.net.SocketTimeoutException;
+import java.nio.channels.ClosedByInterruptException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An abstract service provider that does bookkeeping to track the duration and outcome of its invocations. Subclasses
+ * are responsible for querying the external entity.
+ *
+ * Invocations that time out and invocations that fail are recorded separately. Invocations that are cancelled by the
+ * caller (by interrupting the invoking thread) are not recorded, as that does not reflect on the external entity.
+ *
+ * @author Guus der Kinderen, guus@goodbytes.nl
+ */
+abstract class AbstractResolver implements FamilyAwareResolver
+{
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+    /**
+     * Queries the external entity for the IP address.
+     *
+     * @param family The IP version over which to query, or null to use any.
+     * @param budget The maximum duration of the query, in milliseconds. Must be positive.
+     * @return The IP address as reported by the external entity (cannot be null).
+     * @throws IOException    When communication with the external entity fails or times out.
+     * @throws ParseException When the response of the external entity cannot be parsed.
+     */
+    abstract InetAddress query( AddressFamily family, long budget ) throws IOException, ParseException;
+
+    @Override
+    public InetAddress resolveAddress( long timeout, TimeUnit timeUnit ) throws IOException, ParseException
+    {
+        return resolve( null, timeout, timeUnit );
+    }
+
+    @Override
+    public InetAddress resolveAddress( AddressFamily family, long timeout, TimeUnit timeUnit )
+        throws IOException, ParseException
+    {
+        if ( family == null )
+        {
+            throw new IllegalArgumentException( "Argument 'family' cannot be null." );
+        }
+        return resolve( family, timeout, timeUnit );
+    }
+
+    private InetAddress resolve( AddressFamily family, long timeout, TimeUnit timeUnit )
+        throws IOException, ParseException
+    {
+        final long start = System.nanoTime();
+        try
+        {
+            final InetAddress result = query( family, Math.max( 1, timeUnit.toMillis( timeout ) ) );
+            if ( family != null && !family.matches( result ) )
+            {
+                throw new ParseException( "Service reported '" + result.getHostAddress() + "', which is not an "
+                                              + family + " address." );
+            }
+            histogram.recordSuccess( System.nanoTime() - start );
+            return result;
+        }
+        catch ( SocketTimeoutException e )
+        {
+            histogram.recordTimeout();
+            throw e;
+        }
+        catch ( InterruptedIOException | ClosedByInterruptException e )
+        {
+            // The invocation was cancelled, which does not reflect on the service.
+            throw e;
+        }
+        catch ( IOException | ParseException | RuntimeException e )
+        {
+            histogram.recordFailure();
+            throw e;
+        }
+    }
+
+    @Override
+    public long getSuccessfulExecutionCount()
+    {
+        return histogram.getSuccessCount();
+    }
+
+    @Override
+    public long getAverageDuration()
+    {
+        return histogram.getRecentAverage( TimeUnit.MILLISECONDS );
+    }
+
+    @Override
+    public LatencyHistogram getLatencyHistogram()
+    {
+        return histogram;
+    }
+}
@@ -16,44 +16,16 @@
 
 package nl.goodbytes.network.utility.eip.impl;
 
-import nl.goodbytes.network.utility.eip.ParseException;
-
-import java.net.InetAddress;
-import java.net.MalformedURLException;
-import java.net.URL;
-import java.net.UnknownHostException;
-
 /**
- * A Service Provider that utilizes the web service as provided at http://icanhazip.com
+ * A Service Provider that utilizes the web service as provided at http://checkip.amazonaws.com
  *
  * @author Guus der Kinderen, guus@goodbytes.nl
  */
-public class AmazonResolver extends URLResolver
+public class AmazonResolver extends ConfiguredResolver
 {
-    @Override
-    public URL getServiceAddress()
-    {
-        try
-        {
-            return new URL( "http://checkip.amazonaws.com" );
-        }
-        catch ( MalformedURLException e )
-        {
-            throw new Error( "This implementation is broken. It fails to parse a value that is hardcoded.", e );
-        }
-    }
-
-    @Override
-    public InetAddress parse( String content ) throws ParseException
+    public AmazonResolver()
     {
-        try
-        {
-            // Amazon's service returns nothing more than a text-based IP address.
-            return InetAddress.getByName( content );
-        }
-        catch ( UnknownHostException e )
-        {
-            throw new ParseException( "Unable to parse content.", e );
-        }
+        // This service returns nothing more than a text-based IP address.
+        super( toURL( "http://checkip.amazonaws.com" ), ResponseFormat.PLAIN );
     }
 }
@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2017 Guus der Kinderen. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.goodbytes.network.utility.eip.impl;
+
+import nl.goodbytes.network.utility.eip.ParseException;
+import nl.goodbytes.network.utility.eip.RateLimit;
+import nl.goodbytes.network.utility.eip.spi.RateLimitedResolver;
+import nl.goodbytes.network.utility.eip.spi.WeightedResolver;
+
+import java.net.InetAddress;
+import java.net.MalformedURLException;
+import java.net.URL;
+
+/**
+ * A service provider that uses a web service of which the URL and the format of the response are defined when the
+ * instance is created, rather than by a dedicated class. This allows web services to be added by configuration, for
+ * example those that are operated in-house (see {@link ResolverConfiguration}).
+ *
+ * @author Guus der Kinderen, guus@goodbytes.nl
+ */
+public class ConfiguredResolver extends URLResolver implements WeightedResolver, RateLimitedResolver
+{
+    private final URL serviceAddress;
+    private final ResponseFormat format;
+    private volatile double weight = 1;
+    private volatile RateLimit rateLimit;
+
+    /**
+     * Creates a new instance that uses the web service at the provided address.
+     *
+     * @param serviceAddress The URL of the web service (cannot be null).
+     * @param format         The format of the responses of the web service (cannot be null).
+     */
+    public ConfiguredResolver( URL serviceAddress, ResponseFormat format )
+    {
+        if ( serviceAddress == null )
+        {
+            throw new IllegalArgumentException( "Argument 'serviceAddress' cannot be null." );
+        }
+        if ( format == null )
+        {
+            throw new IllegalArgumentException( "Argument 'format' cannot be null." );
+        }
+        this.serviceAddress = serviceAddress;
+        this.format = format;
+    }
+
+    /**
+     * Converts a URL that is hardcoded in a subclass.
+     *
+     * @param url The URL (cannot be null).
+     * @return The URL (never null).
+     */
+    static URL toURL( String url )
+    {
+        try
+        {
+            return new URL( url );
+        }
+        catch ( MalformedURLException e )
+        {
+            throw new Error( "This implementation is broken. It fails to parse a value that is hardcoded.", e );
+        }
+    }
+
+    @Override
+    public URL getServiceAddress()
+    {
+        return serviceAddress;
+    }
+
+    /**
+     * Returns the format of the responses of the web service.
+     *
+     * @return A response format (never null).
+     */
+    public ResponseFormat getResponseFormat()
+    {
+        return format;
+    }
+
+    @Override
+    public InetAddress parse( byte[] content ) throws ParseException
+    {
+        return format.parse( content );
+    }
+
+    @Override
+    public double getWeight()
+    {
+        return weight;
+    }
+
+    /**
+     * Defines the weight of this service provider, which expresses how strongly it is to be preferred over others.
+     *
+     * @param weight The weight. Must be positive.
+     * @see WeightedResolver
+     */
+    public void setWeight( double weight )
+    {
+        if ( !( weight > 0 ) || Double.isInfinite( weight ) )
+        {
+            throw new IllegalArgumentException( "Argument 'weight' must be a positive, finite number." );
+        }
+        this.weight = weight;
+    }
+
+    @Override
+    public RateLimit getRateLimit()
+    {
+        return rateLimit;
+    }
+
+    /**
+     * Defines the rate at which this service provider is to be invoked.
+     *
+     * @param rateLimit The rate limit, or null to leave it to the service.
+     * @see RateLimitedResolver
+     */
+    public void setRateLimit( RateLimit rateLimit )
+    {
+        this.rateLimit = rateLimit;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "ConfiguredResolver{" + serviceAddress + ", " + format + '}';
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright (c) 2017 Guus der Kinderen. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.goodbytes.network.utility.eip.impl;
+
+import nl.goodbytes.network.utility.eip.AddressFamily;
+import nl.goodbytes.network.utility.eip.ParseException;
+
+import java.io.IOException;
+import java.net.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An abstract service provider that obtains the IP address by exchanging one UDP datagram with an external entity. This
+ * avoids the connection setup that is required by web services.
+ *
+ * This implementation takes responsibility for sending the request, retransmitting it when no response is received,
+ * and for matching the response with the request. Subclasses are responsible for creating requests and parsing
+ * responses.
+ *
+ * Requests are retransmitted using an exponential backoff, starting at half a second, until the timeout expires.
+ *
+ * @author Guus der Kinderen, guus@goodbytes.nl
+ */
+public abstract class DatagramResolver extends AbstractResolver
+{
+    /**
+     * The maximum size, in bytes, of a response. Responses that report an IP address are a lot smaller.
+     */
+    static final int MAXIMUM_RESPONSE_SIZE = 1500;
+
+    /**
+     * The duration, in milliseconds, after which an unanswered request is first retransmitted.
+     */
+    private static final long INITIAL_RETRANSMISSION_TIMEOUT = 500;
+
+    private final String host;
+    private final int port;
+    private volatile int timeout = 3000;
+
+    /**
+     * Creates a new instance that uses the external entity at the provided address.
+     *
+     * @param host The host name or IP address of the external entity (cannot be null).
+     * @param port The UDP port of the external entity.
+     */
+    DatagramResolver( String host, int port )
+    {
+        if ( host == null )
+        {
+            throw new IllegalArgumentException( "Argument 'host' cannot be null." );
+        }
+        if ( port < 1 || port > 65535 )
+        {
+            throw new IllegalArgumentException( "Argument 'port' must be in the range of 1 to 65535 (inclusive)." );
+        }
+        this.host = host;
+        this.port = port;
+    }
+
+    /**
+     * Creates a request.
+     *
+     * @param family The family of the address of the external entity to which the request is sent (never null).
+     * @return The request (cannot be null).
+     */
+    abstract byte[] createRequest( AddressFamily family );
+
+    /**
+     * Parses a response into an IP address.
+     *
+     * @param request  The request that was sent (never null).
+     * @param response A buffer that holds the response (never null).
+     * @param length   The length of the response in the buffer.
+     * @return An IP address, or null when the response does not belong to the request (and is to be ignored).
+     * @throws ParseException When the response belongs to the request, but cannot be parsed.
+     */
+    abstract InetAddress parse( byte[] request, byte[] response, int length ) throws ParseException;
+
+    @Override
+    public InetAddress resolveAddress() throws IOException, ParseException
+    {
+        return resolveAddress( timeout, TimeUnit.MILLISECONDS );
+    }
+
+    @Override
+    InetAddress query( AddressFamily family, long budget ) throws IOException, ParseException
+    {
+        return exchange( lookup( family ), Math.min( timeout, budget ) );
+    }
+
+    /**
+     * Looks up the address of the external entity.
+     *
+     * @param family The family of the address to return, or null for any.
+     * @return An address of the external entity (never null).
+     * @throws UnknownHostException When the host has no address (of the requested family).
+     */
+    private InetAddress lookup( AddressFamily family ) throws UnknownHostException
+    {
+        if ( family == null )
+        {
+            return InetAddress.getByName( host );
+        }
+
+        for ( final InetAddress address : InetAddress.getAllByName( host ) )
+        {
+            if ( family.matches( address ) )
+            {
+                return address;
+            }
+        }
+        throw new UnknownHostException( "Host '" + host + "' has no " + family + " address." );
+    }
+
+    /**
+     * Sends a request to the external entity, retransmitting it until a matching response is received.
+     *
+     * @param destination The address of the external entity (cannot be null).
+     * @param budget      The maximum duration of the exchange, in milliseconds. Must be positive.
+     * @return The IP address as reported by the external entity (never null).
+     * @throws IOException    When communication fails or times out.
+     * @throws ParseException When the response cannot be parsed.
+     */
+    private InetAddress exchange( InetAddress destination, long budget ) throws IOException, ParseException
+    {
+        final byte[] request = createRequest( AddressFamily.of( destination ) );
+        final byte[] buffer = new byte[ MAXIMUM_RESPONSE_SIZE ];
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos( budget );
+
+        try ( final DatagramSocket socket = new DatagramSocket() )
+        {
+            socket.connect( destination, port );
+
+            long retransmission = INITIAL_RETRANSMISSION_TIMEOUT;
+            long nextTransmission = System.nanoTime();
+            while ( true )
+            {
+                final long now = System.nanoTime();
+                if ( now - deadline >= 0 )
+                {
+                    throw new SocketTimeoutException( "No response from " + host + ':' + port
+                                                          + " within " + budget + "ms." );
+                }
+                if ( now - nextTransmission >= 0 )
+                {
+                    socket.send( new DatagramPacket( request, request.length ) );
+                    nextTransmission = now + TimeUnit.MILLISECONDS.toNanos( retransmission );
+                    retransmission *= 2;
+                }
+
+                final long wait = Math.min( deadline, nextTransmission ) - now;
+                socket.setSoTimeout( (int) Math.max( 1, TimeUnit.NANOSECONDS.toMillis( wait ) ) );
+
+                final DatagramPacket response = new DatagramPacket( buffer, buffer.length );
+                try
+                {
+                    socket.receive( response );
+                }
+                catch ( SocketTimeoutException e )
+                {
+                    continue; // Retransmit, or give up when the deadline expired.
+                }
+
+                final InetAddress result = parse( request, buffer, response.getLength() );
+                if ( result != null )
+                {
+                    return result;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the maximum duration of an exchange with the external entity, including retransmissions.
+     *
+     * @param timeUnit The unit in which the returned value is expressed (cannot be null).
+     * @return The timeout, positive.
+     */
+    public long getTimeout( TimeUnit timeUnit )
+    {
+        return timeUnit.convert( timeout, TimeUnit.MILLISECONDS );
+    }
+
+    /**
+     * Defines the maximum duration of an exchange with the external entity, including retransmissions. When a shorter
+     * timeout is provided by the caller, that is used instead.
+     *
+     * @param timeout  The timeout. Must be at least one millisecond.
+     * @param timeUnit The unit in which timeout is expressed (cannot be null).
+     */
+    public void setTimeout( long timeout, TimeUnit timeUnit )
+    {
+        final long millis = timeUnit.toMillis( timeout );
+        if ( millis < 1 )
+        {
+            throw new IllegalArgumentException( "Argument 'timeout' must be at least one millisecond." );
+        }
+        this.timeout = (int) Math.min( Integer.MAX_VALUE, millis );
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2017 Guus der Kinderen. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.goodbytes.network.utility.eip.impl;
+
+import nl.goodbytes.network.utility.eip.AddressFamily;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Performs HTTP GET requests on behalf of a {@link URLResolver}.
+ *
+ * Every request is subject to a deadline, which bounds its total duration. Each blocking operation of a request is
+ * also bounded by a timeout of its own, which cannot extend beyond the deadline.
+ *
+ * @author Guus der Kinderen, guus@goodbytes.nl
+ */
+interface HttpTransport
+{
+    /**
+     * The maximum size, in bytes, of a response body. Web services that report an IP address respond with a lot less.
+     */
+    int MAXIMUM_BODY_SIZE = 4096;
+
+    /**
+     * Requests a resource, returning the body of the response.
+     *
+     * @param url            The address of the resource (cannot be null).
+     * @param family         The IP version over which to connect, or null to use any.
+     * @param connectTimeout The maximum duration, in milliseconds, of establishing a connection. Must be positive.
+     * @param readTimeout    The maximum duration, in milliseconds, of waiting for data. Must be positive.
+     * @param deadline       The moment, as a value of {@link System#nanoTime()}, by which the request must complete.
+     * @return The body of the response (never null).
+     * @throws IOException When the request fails, times out, or results in an unsuccessful response, or when the
+     *                     request cannot be made over the requested IP version.
+     */
+    byte[] get( URL url, AddressFamily family, int connectTimeout, int readTimeout, long deadline ) throws IOException;
+
+    /**
+     * Returns the duration that a blocking operation of a request can take: the provided timeout, or the time that is
+     * left until the deadline of the request, when that is shorter.
+     *
+     * @param deadline The deadline of the request, as a value of {@link System#nanoTime()}.
+     * @param timeout  The maximum duration of the operation, in milliseconds. Must be positive.
+     * @return A duration in milliseconds, positive.
+     * @throws SocketTimeoutException When the deadline has passed.
+     */
+    static int remaining( long deadline, long timeout ) throws SocketTimeoutException
+    {
+        final long left = TimeUnit.NANOSECONDS.toMillis( deadline - System.nanoTime() );
+        if ( left <= 0 )
+        {
+            throw new SocketTimeoutException( "The request did not complete before its deadline." );
+        }
+        return (int) Math.min( timeout, left );
+    }
+}
@@ -16,44 +16,16 @@
 
 package nl.goodbytes.network.utility.eip.impl;
 
-import nl.goodbytes.network.utility.eip.ParseException;
-
-import java.net.InetAddress;
-import java.net.MalformedURLException;
-import java.net.URL;
-import java.net.UnknownHostException;
-
 /**
  * A Service Provider that utilizes the web service as provided at http://api.ipify.org
  *
  * @author Guus der Kinderen, guus@goodbytes.nl
  */
-public class IpifyResolver extends URLResolver
+public class IpifyResolver extends ConfiguredResolver
 {
-    @Override
-    public URL getServiceAddress()
-    {
-        try
-        {
-            return new URL( "http://api.ipify.org" );
-        }
-        catch ( MalformedURLException e )
-        {
-            throw new Error( "This implementation is broken. It fails to parse a value that is hardcoded.", e );
-        }
-    }
-
-    @Override
-    public InetAddress parse( String content ) throws ParseException
+    public IpifyResolver()
     {
-        try
-        {
-            // Amazon's service returns nothing more than a text-based IP address.
-            return InetAddress.getByName( content );
-        }
-        catch ( UnknownHostException e )
-        {
-            throw new ParseException( "Unable to parse content.", e );
-        }
+        // This service returns nothing more than a text-based IP address.
+        super( toURL( "http://api.ipify.org" ), ResponseFormat.PLAIN );
     }
 }
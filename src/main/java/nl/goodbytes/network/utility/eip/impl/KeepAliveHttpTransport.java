@@ -0,0 +1,525 @@
+/*
+ * Copyright (c) 2017 Guus der Kinderen. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.goodbytes.network.utility.eip.impl;
+
+import nl.goodbytes.network.utility.eip.AddressFamily;
+
+import java.io.*;
+import java.net.*;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A minimal HTTP/1.1 client that keeps connections to web services open, so that subsequent requests to the same web
+ * service do not need to establish a new connection.
+ *
+ * Only plain 'http' requests that are not to be routed through a proxy are handled by this implementation. All other
+ * requests, as well as redirects, are delegated to a fallback transport. When instructed to connect over a specific IP
+ * version, redirects are not followed.
+ *
+ * Responses are read byte-by-byte from a buffered stream. Both 'Content-Length' delimited and 'chunked' response
+ * bodies are supported, as well as bodies that are delimited by the end of the connection.
+ *
+ * Before every read from a connection, its socket timeout is reduced to the time that is left until the deadline of the
+ * request, so that the deadline bounds the total duration of the request.
+ *
+ * @author Guus der Kinderen, guus@goodbytes.nl
+ */
+final class KeepAliveHttpTransport implements HttpTransport
+{
+    /**
+     * The maximum size, in bytes, of the status line and each header line of a response.
+     */
+    private static final int MAXIMUM_LINE_LENGTH = 8192;
+
+    /**
+     * The maximum number of idle connections that are kept open per web service.
+     */
+    private static final int MAXIMUM_IDLE_CONNECTIONS = 2;
+
+    /**
+     * The duration after which an idle connection is no longer reused (web servers tend to close them anyway).
+     */
+    private static final long MAXIMUM_IDLE_TIME = TimeUnit.SECONDS.toNanos( 15 );
+
+    private final HttpTransport fallback;
+    private final ConcurrentMap<String, Queue<Connection>> idle = new ConcurrentHashMap<>();
+
+    KeepAliveHttpTransport( HttpTransport fallback )
+    {
+        this.fallback = fallback;
+    }
+
+    @Override
+    public byte[] get( URL url, AddressFamily family, int connectTimeout, int readTimeout, long deadline )
+        throws IOException
+    {
+        if ( !"http".equalsIgnoreCase( url.getProtocol() ) || isProxied( url ) )
+        {
+            return fallback.get( url, family, connectTimeout, readTimeout, deadline );
+        }
+
+        final String host = url.getHost();
+        final int port = url.getPort() == -1 ? url.getDefaultPort() : url.getPort();
+        final String endpoint = family == null ? host + ':' + port : host + ':' + port + '/' + family;
+        final byte[] request = createRequest( url, port );
+
+        final Connection pooled = takeIdleConnection( endpoint );
+        if ( pooled != null )
+        {
+            try
+            {
+                return exchange( pooled, endpoint, request, url, family, connectTimeout, readTimeout, deadline );
+            }
+            catch ( EOFException | SocketException e )
+            {
+                // The web service closed the idle connection. Retry once, using a new connection.
+                pooled.close();
+            }
+        }
+
+        final Socket socket = new Socket();
+        final Connection connection;
+        try
+        {
+            final InetAddress address = lookup( host, family );
+            final int timeout = HttpTransport.remaining( deadline, connectTimeout );
+            socket.connect( new InetSocketAddress( address, port ), timeout );
+            connection = new Connection( socket );
+        }
+        catch ( IOException e )
+        {
+            socket.close();
+            throw e;
+        }
+        return exchange( connection, endpoint, request, url, family, connectTimeout, readTimeout, deadline );
+    }
+
+    /**
+     * Looks up the address of a host.
+     *
+     * @param host   The name of the host (cannot be null).
+     * @param family The family of the address to return, or null for any.
+     * @return An address of the host (never null).
+     * @throws UnknownHostException When the host has no address (of the requested family).
+     */
+    private static InetAddress lookup( String host, AddressFamily family ) throws UnknownHostException
+    {
+        if ( family == null )
+        {
+            return InetAddress.getByName( host );
+        }
+
+        for ( final InetAddress address : InetAddress.getAllByName( host ) )
+        {
+            if ( family.matches( address ) )
+            {
+                return address;
+            }
+        }
+        throw new UnknownHostException( "Host '" + host + "' has no " + family + " address." );
+    }
+
+    /**
+     * Sends a request and reads the response, returning the connection to the pool when it can be reused.
+     */
+    private byte[] exchange( Connection connection, String endpoint, byte[] request, URL url, AddressFamily family,
+                             int connectTimeout, int readTimeout, long deadline ) throws IOException
+    {
+        boolean reusable = false;
+        try
+        {
+            connection.source.limit( deadline, readTimeout );
+            connection.out.write( request );
+            connection.out.flush();
+
+            final String statusLine = readLine( connection.in );
+            final int status = parseStatus( statusLine );
+            final boolean http10 = statusLine.startsWith( "HTTP/1.0" );
+
+            long contentLength = -1;
+            boolean chunked = false;
+            boolean keepAlive = !http10;
+            String location = null;
+
+            String header;
+            while ( !( header = readLine( connection.in ) ).isEmpty() )
+            {
+                final int colon = header.indexOf( ':' );
+                if ( colon <= 0 )
+                {
+                    continue;
+                }
+                final String name = header.substring( 0, colon ).trim();
+                final String value = header.substring( colon + 1 ).trim();
+                if ( "Content-Length".equalsIgnoreCase( name ) )
+                {
+                    contentLength = parseContentLength( value );
+                }
+                else if ( "Transfer-Encoding".equalsIgnoreCase( name ) )
+                {
+                    chunked = value.toLowerCase( Locale.ENGLISH ).contains( "chunked" );
+                }
+                else if ( "Connection".equalsIgnoreCase( name ) )
+                {
+                    keepAlive = http10 ? "keep-alive".equalsIgnoreCase( value ) : !"close".equalsIgnoreCase( value );
+                }
+                else if ( "Location".equalsIgnoreCase( name ) )
+                {
+                    location = value;
+                }
+            }
+
+            final byte[] body;
+            if ( status == 204 || status == 304 )
+            {
+                body = new byte[ 0 ];
+            }
+            else if ( chunked )
+            {
+                body = readChunked( connection.in );
+            }
+            else if ( contentLength >= 0 )
+            {
+                body = readFixed( connection.in, contentLength );
+            }
+            else
+            {
+                body = readToEnd( connection.in );
+                keepAlive = false;
+            }
+            reusable = keepAlive;
+
+            if ( status >= 300 && status < 400 && location != null )
+            {
+                if ( family != null )
+                {
+                    throw new IOException( "Web service redirects to '" + location + "', which cannot be followed "
+                                               + "over a specific IP version." );
+                }
+                return fallback.get( new URL( url, location ), null, connectTimeout, readTimeout, deadline );
+            }
+            if ( status < 200 || status >= 300 )
+            {
+                throw new IOException( "Web service responded with HTTP status: " + statusLine );
+            }
+            return body;
+        }
+        finally
+        {
+            if ( reusable )
+            {
+                releaseConnection( endpoint, connection );
+            }
+            else
+            {
+                connection.close();
+            }
+        }
+    }
+
+    private static byte[] createRequest( URL url, int port )
+    {
+        final String path = url.getFile().isEmpty() ? "/" : url.getFile();
+        final String host = url.getPort() == -1 ? url.getHost() : url.getHost() + ':' + port;
+        final String request = "GET " + path + " HTTP/1.1\r\n"
+            + "Host: " + host + "\r\n"
+            + "User-Agent: external-ip-check\r\n"
+            + "Accept: text/plain, */*\r\n"
+            + "Connection: keep-alive\r\n"
+            + "\r\n";
+        return request.getBytes( StandardCharsets.US_ASCII );
+    }
+
+    private static boolean isProxied( URL url )
+    {
+        try
+        {
+            final ProxySelector selector = ProxySelector.getDefault();
+            if ( selector == null )
+            {
+                return false;
+            }
+            final List<Proxy> proxies = selector.select( url.toURI() );
+            return !proxies.isEmpty() && proxies.get( 0 ).type() != Proxy.Type.DIRECT;
+        }
+        catch ( URISyntaxException | IllegalArgumentException e )
+        {
+            return true; // Let the fallback decide what to do with this.
+        }
+    }
+
+    private Connection takeIdleConnection( String endpoint )
+    {
+        final Queue<Connection> connections = idle.get( endpoint );
+        if ( connections == null )
+        {
+            return null;
+        }
+
+        Connection connection;
+        while ( ( connection = connections.poll() ) != null )
+        {
+            if ( !connection.socket.isClosed() && System.nanoTime() - connection.lastUsed < MAXIMUM_IDLE_TIME )
+            {
+                return connection;
+            }
+            connection.close();
+        }
+        return null;
+    }
+
+    private void releaseConnection( String endpoint, Connection connection )
+    {
+        Queue<Connection> connections = idle.get( endpoint );
+        if ( connections == null )
+        {
+            final Queue<Connection> created = new ConcurrentLinkedQueue<>();
+            connections = idle.putIfAbsent( endpoint, created );
+            if ( connections == null )
+            {
+                connections = created;
+            }
+        }
+
+        if ( connections.size() >= MAXIMUM_IDLE_CONNECTIONS )
+        {
+            connection.close();
+            return;
+        }
+        connection.lastUsed = System.nanoTime();
+        connections.offer( connection );
+    }
+
+    private static int parseStatus( String statusLine ) throws IOException
+    {
+        // For example: "HTTP/1.1 200 OK"
+        if ( !statusLine.startsWith( "HTTP/" ) || statusLine.length() < 12 || statusLine.charAt( 8 ) != ' ' )
+        {
+            throw new IOException( "Malformed HTTP status line: " + statusLine );
+        }
+        try
+        {
+            return Integer.parseInt( statusLine.substring( 9, 12 ) );
+        }
+        catch ( NumberFormatException e )
+        {
+            throw new IOException( "Malformed HTTP status line: " + statusLine, e );
+        }
+    }
+
+    private static long parseContentLength( String value ) throws IOException
+    {
+        try
+        {
+            final long result = Long.parseLong( value );
+            if ( result < 0 )
+            {
+                throw new IOException( "Malformed Content-Length header value: " + value );
+            }
+            return result;
+        }
+        catch ( NumberFormatException e )
+        {
+            throw new IOException( "Malformed Content-Length header value: " + value, e );
+        }
+    }
+
+    /**
+     * Reads a line that is terminated by CRLF (or LF), returning it without the terminator.
+     *
+     * @throws EOFException when the stream ends before a line was read.
+     */
+    private static String readLine( InputStream in ) throws IOException
+    {
+        final StringBuilder line = new StringBuilder( 64 );
+        int b;
+        while ( ( b = in.read() ) != '\n' )
+        {
+            if ( b == -1 )
+            {
+                throw new EOFException( "Connection closed while reading response." );
+            }
+            if ( b != '\r' )
+            {
+                if ( line.length() >= MAXIMUM_LINE_LENGTH )
+                {
+                    throw new IOException( "Response line exceeds " + MAXIMUM_LINE_LENGTH + " bytes." );
+                }
+                line.append( (char) b );
+            }
+        }
+        return line.toString();
+    }
+
+    private static byte[] readFixed( InputStream in, long length ) throws IOException
+    {
+        if ( length > MAXIMUM_BODY_SIZE )
+        {
+            throw new IOException( "Response body exceeds " + MAXIMUM_BODY_SIZE + " bytes." );
+        }
+
+        final byte[] body = new byte[ (int) length ];
+        int offset = 0;
+        while ( offset < body.length )
+        {
+            final int read = in.read( body, offset, body.length - offset );
+            if ( read == -1 )
+            {
+                throw new EOFException( "Connection closed while reading response body." );
+            }
+            offset += read;
+        }
+        return body;
+    }
+
+    private static byte[] readChunked( InputStream in ) throws IOException
+    {
+        final ByteArrayOutputStream body = new ByteArrayOutputStream( 64 );
+        while ( true )
+        {
+            final String sizeLine = readLine( in );
+            final int extension = sizeLine.indexOf( ';' );
+            final long size;
+            try
+            {
+                size = Long.parseLong( ( extension < 0 ? sizeLine : sizeLine.substring( 0, extension ) ).trim(), 16 );
+            }
+            catch ( NumberFormatException e )
+            {
+                throw new IOException( "Malformed chunk size: " + sizeLine, e );
+            }
+
+            if ( size == 0 )
+            {
+                // Skip any trailers.
+                while ( !readLine( in ).isEmpty() )
+                {
+                }
+                return body.toByteArray();
+            }
+
+            if ( size < 0 || body.size() + size > MAXIMUM_BODY_SIZE )
+            {
+                throw new IOException( "Response body exceeds " + MAXIMUM_BODY_SIZE + " bytes." );
+            }
+            body.write( readFixed( in, size ) );
+            readLine( in ); // The CRLF that terminates the chunk.
+        }
+    }
+
+    private static byte[] readToEnd( InputStream in ) throws IOException
+    {
+        final ByteArrayOutputStream body = new ByteArrayOutputStream( 64 );
+        int b;
+        while ( ( b = in.read() ) != -1 )
+        {
+            if ( body.size() >= MAXIMUM_BODY_SIZE )
+            {
+                throw new IOException( "Response body exceeds " + MAXIMUM_BODY_SIZE + " bytes." );
+            }
+            body.write( b );
+        }
+        return body.toByteArray();
+    }
+
+    /**
+     * An open connection to a web service.
+     */
+    private static final class Connection
+    {
+        final Socket socket;
+        final DeadlineInputStream source;
+        final InputStream in;
+        final OutputStream out;
+        long lastUsed;
+
+        Connection( Socket socket ) throws IOException
+        {
+            this.socket = socket;
+            this.source = new DeadlineInputStream( socket );
+            this.in = new BufferedInputStream( source, 512 );
+            this.out = socket.getOutputStream();
+        }
+
+        void close()
+        {
+            try
+            {
+                socket.close();
+            }
+            catch ( IOException e )
+            {
+                // Nothing left to do.
+            }
+        }
+    }
+
+    /**
+     * A stream that reads from a socket, which limits the duration of each read to the time that is left until a
+     * deadline. It is to be buffered: reads that are served from the buffer are not affected.
+     */
+    private static final class DeadlineInputStream extends FilterInputStream
+    {
+        private final Socket socket;
+        private long deadline;
+        private int timeout;
+
+        DeadlineInputStream( Socket socket ) throws IOException
+        {
+            super( socket.getInputStream() );
+            this.socket = socket;
+        }
+
+        /**
+         * Defines the limits of the reads of one request.
+         *
+         * @param deadline The deadline of the request, as a value of {@link System#nanoTime()}.
+         * @param timeout  The maximum duration, in milliseconds, of waiting for data. Must be positive.
+         */
+        void limit( long deadline, int timeout )
+        {
+            this.deadline = deadline;
+            this.timeout = timeout;
+        }
+
+        private void arm() throws IOException
+        {
+            socket.setSoTimeout( HttpTransport.remaining( deadline, timeout ) );
+        }
+
+        @Override
+        public int read() throws IOException
+        {
+            arm();
+            return in.read();
+        }
+
+        @Override
+        public int read( byte[] buffer, int offset, int length ) throws IOException
+        {
+            arm();
+            return in.read( buffer, offset, length );
+        }
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2017 Guus der Kinderen. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.goodbytes.network.utility.eip.impl;
+
+import nl.goodbytes.network.utility.eip.AddressFamily;
+import nl.goodbytes.network.utility.eip.ParseException;
+
+import java.io.ByteArrayOutputStream;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A Service Provider that queries the DNS servers of OpenDNS for the special name 'myip.opendns.com', for which they
+ * answer with the address from which the query originated.
+ *
+ * Queries are sent directly to the authoritative server (resolver1.opendns.com by default), bypassing the resolvers of
+ * the host. An A record is queried when the query is sent over IPv4, an AAAA record when it is sent over IPv6.
+ *
+ * @author Guus der Kinderen, guus@goodbytes.nl
+ */
+public class OpenDnsResolver extends DatagramResolver
+{
+    private static final String QUERY_NAME = "myip.opendns.com";
+    private static final int HEADER_LENGTH = 12;
+    private static final int TYPE_A = 1;
+    private static final int TYPE_AAAA = 28;
+    private static final int CLASS_IN = 1;
+
+    /**
+     * Creates a new instance that uses the default DNS server of OpenDNS.
+     */
+    public OpenDnsResolver()
+    {
+        this( "resolver1.opendns.com", 53 );
+    }
+
+    /**
+     * Creates a new instance that queries the DNS server at the provided address.
+     *
+     * @param host The host name or IP address of the DNS server (cannot be null).
+     * @param port The UDP port of the DNS server.
+     */
+    public OpenDnsResolver( String host, int port )
+    {
+        super( host, port );
+    }
+
+    @Override
+    byte[] createRequest( AddressFamily family )
+    {
+        final ByteArrayOutputStream query = new ByteArrayOutputStream( 64 );
+        final int id = ThreadLocalRandom.current().nextInt( 0x10000 );
+        writeShort( query, id );
+        writeShort( query, 0x0100 ); // Standard query, recursion desired.
+        writeShort( query, 1 ); // One question,
+        writeShort( query, 0 ); // no answers,
+        writeShort( query, 0 ); // no authority records,
+        writeShort( query, 0 ); // and no additional records.
+
+        for ( final String label : QUERY_NAME.split( "\\." ) )
+        {
+            final byte[] bytes = label.getBytes( StandardCharsets.US_ASCII );
+            query.write( bytes.length );
+            query.write( bytes, 0, bytes.length );
+        }
+        query.write( 0 );
+        writeShort( query, family == AddressFamily.IPV6 ? TYPE_AAAA : TYPE_A );
+        writeShort( query, CLASS_IN );
+        return query.toByteArray();
+    }
+
+    @Override
+    InetAddress parse( byte[] request, byte[] response, int length ) throws ParseException
+    {
+        if ( length < HEADER_LENGTH || response[ 0 ] != request[ 0 ] || response[ 1 ] != request[ 1 ]
+            || ( response[ 2 ] & 0x80 ) == 0 )
+        {
+            return null; // Not a response to this query.
+        }
+
+        final int flags = readShort( response, 2 );
+        if ( ( flags & 0x0200 ) != 0 )
+        {
+            throw new ParseException( "DNS response is truncated." );
+        }
+        final int responseCode = flags & 0x000F;
+        if ( responseCode != 0 )
+        {
+            throw new ParseException( "DNS server responded with error code " + responseCode + "." );
+        }
+
+        final int questions = readShort( response, 4 );
+        final int answers = readShort( response, 6 );
+        final int queryType = readShort( request, request.length - 4 );
+
+        int offset = HEADER_LENGTH;
+        for ( int i = 0; i < questions; i++ )
+        {
+            offset = skipName( response, offset, length ) + 4; // Type and class.
+        }
+
+        for ( int i = 0; i < answers; i++ )
+        {
+            offset = skipName( response, offset, length );
+            if ( offset + 10 > length )
+            {
+                throw new ParseException( "DNS response is malformed." );
+            }
+            final int type = readShort( response, offset );
+            final int recordClass = readShort( response, offset + 2 );
+            final int dataLength = readShort( response, offset + 8 );
+            offset += 10;
+            if ( offset + dataLength > length )
+            {
+                throw new ParseException( "DNS response is malformed." );
+            }
+
+            if ( type == queryType && recordClass == CLASS_IN && dataLength == ( type == TYPE_A ? 4 : 16 ) )
+            {
+                final byte[] address = new byte[ dataLength ];
+                System.arraycopy( response, offset, address, 0, dataLength );
+                try
+                {
+                    return InetAddress.getByAddress( address );
+                }
+                catch ( UnknownHostException e )
+                {
+                    throw new ParseException( "DNS response is malformed.", e );
+                }
+            }
+            offset += dataLength;
+        }
+
+        throw new ParseException( "DNS response does not contain an address record." );
+    }
+
+    /**
+     * Skips over a (possibly compressed) domain name.
+     *
+     * @param response The response (cannot be null).
+     * @param offset   The offset at which the name starts.
+     * @param length   The length of the response.
+     * @return The offset of the first byte after the name.
+     * @throws ParseException When the name extends beyond the response.
+     */
+    private static int skipName( byte[] response, int offset, int length ) throws ParseException
+    {
+        while ( offset < length )
+        {
+            final int labelLength = response[ offset ] & 0xFF;
+            if ( labelLength == 0 )
+            {
+                return offset + 1;
+            }
+            if ( ( labelLength & 0xC0 ) == 0xC0 )
+            {
+                return offset + 2; // A pointer to a name elsewhere in the message ends the name.
+            }
+            offset += 1 + labelLength;
+        }
+        throw new ParseException( "DNS response is malformed." );
+    }
+
+    private static int readShort( byte[] buffer, int offset )
+    {
+        return ( ( buffer[ offset ] & 0xFF ) << 8 ) | ( buffer[ offset + 1 ] & 0xFF );
+    }
+
+    private static void writeShort( ByteArrayOutputStream out, int value )
+    {
+        out.write( value >>> 8 );
+        out.write( value );
+    }
+}
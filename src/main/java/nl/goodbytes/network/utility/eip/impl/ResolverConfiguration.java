@@ -0,0 +1,335 @@
+/*
+ * Copyright (c) 2017 Guus der Kinderen. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.goodbytes.network.utility.eip.impl;
+
+import nl.goodbytes.network.utility.eip.RateLimit;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creates service providers from a declarative configuration, which allows web services to be used without
+ * implementing a class for each of them.
+ *
+ * The configuration is a properties file, in which every service provider is defined by a group of properties that
+ * share the prefix <tt>resolver.&lt;id&gt;.</tt>, where the identifier is an arbitrary name:
+ * <ul>
+ *     <li><tt>url</tt> - the URL of the web service (required).</li>
+ *     <li><tt>format</tt> - the format of the response: <tt>plain</tt> (the default), <tt>json</tt> or
+ *     <tt>regex</tt>.</li>
+ *     <li><tt>field</tt> - the name of the JSON field that holds the IP address (required for format <tt>json</tt>).
+ *     </li>
+ *     <li><tt>pattern</tt> - the regular expression that extracts the IP address (required for format
+ *     <tt>regex</tt>). See {@link ResponseFormat#regex(String)}.</li>
+ *     <li><tt>timeout</tt> - the connect and read timeout, in milliseconds (optional).</li>
+ *     <li><tt>weight</tt> - how strongly the service provider is to be preferred over others (optional, defaults to
+ *     1). See {@link nl.goodbytes.network.utility.eip.spi.WeightedResolver}.</li>
+ *     <li><tt>rateLimit</tt> - the maximum rate at which the service provider is invoked, as a number of invocations
+ *     per <tt>second</tt>, <tt>minute</tt>, <tt>hour</tt> or <tt>day</tt> (for example: <tt>60/minute</tt>), or
+ *     <tt>none</tt> (optional, defaults to the rate limit of the service). See
+ *     {@link nl.goodbytes.network.utility.eip.spi.RateLimitedResolver}.</li>
+ * </ul>
+ *
+ * For example:
+ * <pre>
+ * resolver.office.url = http://whatismyip.office.example.com/
+ * resolver.office.timeout = 500
+ * resolver.office.weight = 4
+ * resolver.office.rateLimit = none
+ *
+ * resolver.datacenter.url = https://ip.dc.example.com/api
+ * resolver.datacenter.format = json
+ * resolver.datacenter.field = address
+ * </pre>
+ *
+ * Service providers are returned in the order of their identifiers. Any other property, including a misspelled one, is
+ * rejected, so that a mistake does not go unnoticed. The same applies to <tt>field</tt> and <tt>pattern</tt> when they
+ * are defined for a format to which they do not apply.
+ *
+ * @author Guus der Kinderen, guus@goodbytes.nl
+ */
+public final class ResolverConfiguration
+{
+    private static final String PREFIX = "resolver.";
+
+    /**
+     * The names of the properties that define a service provider.
+     */
+    private static final Set<String> NAMES = Collections.unmodifiableSet(
+        new HashSet<>( Arrays.asList( "url", "format", "field", "pattern", "timeout", "weight", "rateLimit" ) ) );
+
+    private ResolverConfiguration()
+    {
+    }
+
+    /**
+     * Creates service providers as defined in a properties file.
+     *
+     * @param file The file to read (cannot be null).
+     * @return The service providers, in the order of their identifiers (never null, can be empty).
+     * @throws IOException              When the file cannot be read.
+     * @throws IllegalArgumentException When the file contains an invalid definition of a service provider.
+     */
+    public static List<ConfiguredResolver> load( Path file ) throws IOException
+    {
+        if ( file == null )
+        {
+            throw new IllegalArgumentException( "Argument 'file' cannot be null." );
+        }
+        final Properties properties = new Properties();
+        try ( final InputStream in = Files.newInputStream( file ) )
+        {
+            properties.load( in );
+        }
+        return load( properties );
+    }
+
+    /**
+     * Creates service providers as defined by a set of properties.
+     *
+     * @param properties The properties (cannot be null).
+     * @return The service providers, in the order of their identifiers (never null, can be empty).
+     * @throws IllegalArgumentException When the properties contain an invalid definition of a service provider.
+     */
+    public static List<ConfiguredResolver> load( Properties properties )
+    {
+        if ( properties == null )
+        {
+            throw new IllegalArgumentException( "Argument 'properties' cannot be null." );
+        }
+
+        final SortedSet<String> ids = new TreeSet<>();
+        for ( final String key : properties.stringPropertyNames() )
+        {
+            final int separator = key.lastIndexOf( '.' );
+            if ( !key.startsWith( PREFIX ) || separator <= PREFIX.length() )
+            {
+                throw new IllegalArgumentException( "Unknown property '" + key + "': properties are to be named "
+                                                        + PREFIX + "<id>.<name>." );
+            }
+            final String id = key.substring( PREFIX.length(), separator );
+            final String name = key.substring( separator + 1 );
+            if ( !NAMES.contains( name ) )
+            {
+                throw invalid( id, "unknown property '" + name + "'." );
+            }
+            ids.add( id );
+        }
+
+        final List<ConfiguredResolver> result = new ArrayList<>( ids.size() );
+        for ( final String id : ids )
+        {
+            result.add( create( id, properties ) );
+        }
+        return result;
+    }
+
+    private static ConfiguredResolver create( String id, Properties properties )
+    {
+        final String url = get( properties, id, "url" );
+        if ( url == null )
+        {
+            throw invalid( id, "property 'url' is missing." );
+        }
+
+        final ConfiguredResolver resolver;
+        try
+        {
+            resolver = new ConfiguredResolver( new URL( url ), createFormat( id, properties ) );
+        }
+        catch ( MalformedURLException e )
+        {
+            throw new IllegalArgumentException( "Invalid definition of resolver '" + id + "': property 'url' is not "
+                                                    + "a valid URL: " + url, e );
+        }
+
+        final String timeout = get( properties, id, "timeout" );
+        if ( timeout != null )
+        {
+            final long millis = parseLong( id, "timeout", timeout );
+            if ( millis < 1 )
+            {
+                throw invalid( id, "property 'timeout' must be at least one millisecond." );
+            }
+            resolver.setConnectTimeout( millis, TimeUnit.MILLISECONDS );
+            resolver.setReadTimeout( millis, TimeUnit.MILLISECONDS );
+        }
+
+        final String weight = get( properties, id, "weight" );
+        if ( weight != null )
+        {
+            final double value = parseDouble( id, "weight", weight );
+            if ( !( value > 0 ) || Double.isInfinite( value ) )
+            {
+                throw invalid( id, "property 'weight' must be a positive number." );
+            }
+            resolver.setWeight( value );
+        }
+
+        final String rateLimit = get( properties, id, "rateLimit" );
+        if ( rateLimit != null )
+        {
+            resolver.setRateLimit( parseRateLimit( id, rateLimit ) );
+        }
+        return resolver;
+    }
+
+    private static RateLimit parseRateLimit( String id, String value )
+    {
+        if ( "none".equalsIgnoreCase( value ) )
+        {
+            return RateLimit.NONE;
+        }
+
+        final int slash = value.indexOf( '/' );
+        final TimeUnit unit = slash < 0 ? null : parseUnit( value.substring( slash + 1 ).trim() );
+        if ( unit == null )
+        {
+            throw invalid( id, "property 'rateLimit' is not a number of invocations per second, minute, hour or day "
+                + "(for example: 60/minute), or 'none': " + value );
+        }
+        final long permits = parseLong( id, "rateLimit", value.substring( 0, slash ).trim() );
+        if ( permits < 1 || permits > Integer.MAX_VALUE )
+        {
+            throw invalid( id, "property 'rateLimit' must allow at least one invocation." );
+        }
+        return RateLimit.of( (int) permits, 1, unit );
+    }
+
+    private static TimeUnit parseUnit( String unit )
+    {
+        switch ( unit.toLowerCase( Locale.ENGLISH ) )
+        {
+            case "second":
+                return TimeUnit.SECONDS;
+            case "minute":
+                return TimeUnit.MINUTES;
+            case "hour":
+                return TimeUnit.HOURS;
+            case "day":
+                return TimeUnit.DAYS;
+            default:
+                return null;
+        }
+    }
+
+    private static ResponseFormat createFormat( String id, Properties properties )
+    {
+        final String format = get( properties, id, "format" );
+        final String field = get( properties, id, "field" );
+        final String pattern = get( properties, id, "pattern" );
+        if ( format == null || "plain".equalsIgnoreCase( format ) )
+        {
+            rejectUnless( id, "field", field, "json" );
+            rejectUnless( id, "pattern", pattern, "regex" );
+            return ResponseFormat.PLAIN;
+        }
+        if ( "json".equalsIgnoreCase( format ) )
+        {
+            rejectUnless( id, "pattern", pattern, "regex" );
+            if ( field == null || field.isEmpty() )
+            {
+                throw invalid( id, "property 'field' is required for format 'json'." );
+            }
+            return ResponseFormat.jsonField( field );
+        }
+        if ( "regex".equalsIgnoreCase( format ) )
+        {
+            rejectUnless( id, "field", field, "json" );
+            if ( pattern == null )
+            {
+                throw invalid( id, "property 'pattern' is required for format 'regex'." );
+            }
+            try
+            {
+                return ResponseFormat.regex( pattern );
+            }
+            catch ( IllegalArgumentException e )
+            {
+                throw new IllegalArgumentException( "Invalid definition of resolver '" + id + "': property 'pattern' "
+                                                        + "is not a valid regular expression.", e );
+            }
+        }
+        throw invalid( id, "unknown format '" + format + "'." );
+    }
+
+    /**
+     * Rejects a property that is defined, but that only applies to another format than the one that is used.
+     *
+     * @param id     The identifier of the service provider (cannot be null).
+     * @param name   The name of the property (cannot be null).
+     * @param value  The value of the property, or null when it is not defined.
+     * @param format The format to which the property applies (cannot be null).
+     */
+    private static void rejectUnless( String id, String name, String value, String format )
+    {
+        if ( value != null )
+        {
+            throw invalid( id, "property '" + name + "' only applies to format '" + format + "'." );
+        }
+    }
+
+    private static String get( Properties properties, String id, String name )
+    {
+        final String value = properties.getProperty( PREFIX + id + '.' + name );
+        return value == null ? null : value.trim();
+    }
+
+    private static long parseLong( String id, String name, String value )
+    {
+        try
+        {
+            return Long.parseLong( value );
+        }
+        catch ( NumberFormatException e )
+        {
+            throw invalid( id, "property '" + name + "' is not a whole number: " + value );
+        }
+    }
+
+    private static double parseDouble( String id, String name, String value )
+    {
+        try
+        {
+            return Double.parseDouble( value );
+        }
+        catch ( NumberFormatException e )
+        {
+            throw invalid( id, "property '" + name + "' is not a number: " + value );
+        }
+    }
+
+    private static IllegalArgumentException invalid( String id, String message )
+    {
+        return new IllegalArgumentException( "Invalid definition of resolver '" + id + "': " + message );
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2017 Guus der Kinderen. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.goodbytes.network.utility.eip.impl;
+
+import nl.goodbytes.network.utility.eip.InetAddressParser;
+import nl.goodbytes.network.utility.eip.ParseException;
+
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Describes how the IP address is to be obtained from the response of a web service. The response can consist of
+ * nothing more than a text-based IP address, can be a JSON object that holds the IP address in one of its fields, or
+ * can be any text from which the IP address is extracted using a regular expression.
+ *
+ * Instances are immutable.
+ *
+ * @author Guus der Kinderen, guus@goodbytes.nl
+ */
+public final class ResponseFormat
+{
+    /**
+     * A response that consists of nothing more than a text-based IP address (optionally surrounded by whitespace).
+     */
+    public static final ResponseFormat PLAIN = new ResponseFormat( "plain", null );
+
+    private final String description;
+    private final Pattern pattern;
+
+    private ResponseFormat( String description, Pattern pattern )
+    {
+        this.description = description;
+        this.pattern = pattern;
+    }
+
+    /**
+     * Returns a format of a JSON response, which holds the IP address as the string value of a field with the provided
+     * name, for example <tt>{"ip":"192.0.2.1"}</tt>.
+     *
+     * The response is not parsed as JSON: the field is found by a pattern match, which has these limits.
+     * <ul>
+     *     <li>The first field with that name is used, irrespective of the object in which it is nested. A response
+     *     with a field of that name in a nested object that precedes the intended one yields the wrong value.</li>
+     *     <li>The name is matched literally: a name that is written using escape sequences is not found.</li>
+     *     <li>The value must be a string without escape sequences. Other values, such as numbers, arrays or strings
+     *     that contain an escaped character, do not match.</li>
+     * </ul>
+     * Text inside string values is not mistaken for a field, as a field must follow the opening brace of an object
+     * or a comma. Web services that respond with more complex documents can be described using {@link #regex(String)}.
+     *
+     * @param field The name of the field (cannot be null or empty).
+     * @return A response format (never null).
+     */
+    public static ResponseFormat jsonField( String field )
+    {
+        if ( field == null || field.isEmpty() )
+        {
+            throw new IllegalArgumentException( "Argument 'field' cannot be null or empty." );
+        }
+        final String name = "\"" + Pattern.quote( field ) + "\"";
+        final Pattern pattern = Pattern.compile( "[{,]\\s*" + name + "\\s*:\\s*\"([^\"\\\\]*)\"" );
+        return new ResponseFormat( "json(" + field + ")", pattern );
+    }
+
+    /**
+     * Returns a format of a text-based response, from which the IP address is extracted using a regular expression.
+     * The IP address is taken from the first capturing group of the first match or, when the expression has no
+     * capturing groups, from the entire match.
+     *
+     * @param regex The regular expression (cannot be null).
+     * @return A response format (never null).
+     * @throws IllegalArgumentException When the provided value is not a valid regular expression.
+     */
+    public static ResponseFormat regex( String regex )
+    {
+        if ( regex == null )
+        {
+            throw new IllegalArgumentException( "Argument 'regex' cannot be null." );
+        }
+        try
+        {
+            return new ResponseFormat( "regex(" + regex + ")", Pattern.compile( regex ) );
+        }
+        catch ( PatternSyntaxException e )
+        {
+            throw new IllegalArgumentException( "Argument 'regex' is not a valid regular expression: " + regex, e );
+        }
+    }
+
+    /**
+     * Parses a web service response into an IP address.
+     *
+     * @param content The (raw) web service response (cannot be null).
+     * @return An IP address (never null).
+     * @throws ParseException When the provided content does not contain an IP address in this format.
+     */
+    InetAddress parse( byte[] content ) throws ParseException
+    {
+        if ( pattern == null )
+        {
+            return InetAddressParser.parse( content, 0, content.length );
+        }
+
+        final Matcher matcher = pattern.matcher( new String( content, StandardCharsets.UTF_8 ) );
+        if ( !matcher.find() )
+        {
+            throw new ParseException( "Web service response does not match format " + description + "." );
+        }
+        return InetAddressParser.parse( matcher.groupCount() > 0 ? matcher.group( 1 ) : matcher.group() );
+    }
+
+    @Override
+    public String toString()
+    {
+        return description;
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2017 Guus der Kinderen. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.goodbytes.network.utility.eip.impl;
+
+import nl.goodbytes.network.utility.eip.AddressFamily;
+import nl.goodbytes.network.utility.eip.ParseException;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A Service Provider that sends a STUN Binding request (as defined in RFC 5389) to a STUN server, which reports the
+ * address from which the request originated. By default, the server at stun.l.google.com:19302 is used.
+ *
+ * The address is taken from the XOR-MAPPED-ADDRESS attribute of the response, or, when that is absent (as is the case
+ * with servers that implement the older RFC 3489 only), from the MAPPED-ADDRESS attribute.
+ *
+ * @author Guus der Kinderen, guus@goodbytes.nl
+ */
+public class StunResolver extends DatagramResolver
+{
+    private static final int HEADER_LENGTH = 20;
+    private static final int MAGIC_COOKIE = 0x2112A442;
+    private static final int BINDING_REQUEST = 0x0001;
+    private static final int BINDING_SUCCESS_RESPONSE = 0x0101;
+    private static final int BINDING_ERROR_RESPONSE = 0x0111;
+    private static final int MAPPED_ADDRESS = 0x0001;
+    private static final int XOR_MAPPED_ADDRESS = 0x0020;
+
+    /**
+     * Creates a new instance that uses the default STUN server.
+     */
+    public StunResolver()
+    {
+        this( "stun.l.google.com", 19302 );
+    }
+
+    /**
+     * Creates a new instance that uses the STUN server at the provided address.
+     *
+     * @param host The host name or IP address of the STUN server (cannot be null).
+     * @param port The UDP port of the STUN server.
+     */
+    public StunResolver( String host, int port )
+    {
+        super( host, port );
+    }
+
+    @Override
+    byte[] createRequest( AddressFamily family )
+    {
+        final byte[] request = new byte[ HEADER_LENGTH ];
+        writeShort( request, 0, BINDING_REQUEST );
+        writeShort( request, 2, 0 ); // No attributes.
+        writeInt( request, 4, MAGIC_COOKIE );
+
+        final byte[] transactionId = new byte[ 12 ];
+        ThreadLocalRandom.current().nextBytes( transactionId );
+        System.arraycopy( transactionId, 0, request, 8, transactionId.length );
+        return request;
+    }
+
+    @Override
+    InetAddress parse( byte[] request, byte[] response, int length ) throws ParseException
+    {
+        if ( length < HEADER_LENGTH || !regionEquals( request, response, 4, 16 ) )
+        {
+            return null; // Not a response to this request (the magic cookie or transaction ID differs).
+        }
+
+        final int type = readShort( response, 0 );
+        if ( type == BINDING_ERROR_RESPONSE )
+        {
+            throw new ParseException( "STUN server responded with an error." );
+        }
+        if ( type != BINDING_SUCCESS_RESPONSE )
+        {
+            return null;
+        }
+
+        final int end = HEADER_LENGTH + readShort( response, 2 );
+        if ( end > length )
+        {
+            throw new ParseException( "STUN response is truncated." );
+        }
+
+        InetAddress mapped = null;
+        int offset = HEADER_LENGTH;
+        while ( offset + 4 <= end )
+        {
+            final int attributeType = readShort( response, offset );
+            final int attributeLength = readShort( response, offset + 2 );
+            final int value = offset + 4;
+            if ( value + attributeLength > end )
+            {
+                throw new ParseException( "STUN response contains a truncated attribute." );
+            }
+
+            if ( attributeType == XOR_MAPPED_ADDRESS )
+            {
+                return readAddress( response, value, attributeLength, true );
+            }
+            if ( attributeType == MAPPED_ADDRESS && mapped == null )
+            {
+                mapped = readAddress( response, value, attributeLength, false );
+            }
+            offset = value + ( ( attributeLength + 3 ) & ~3 ); // Attributes are padded to a multiple of four bytes.
+        }
+
+        if ( mapped == null )
+        {
+            throw new ParseException( "STUN response does not contain a mapped address." );
+        }
+        return mapped;
+    }
+
+    /**
+     * Reads the address from a (XOR-)MAPPED-ADDRESS attribute value.
+     *
+     * @param response The response (cannot be null).
+     * @param offset   The offset of the attribute value in the response.
+     * @param length   The length of the attribute value.
+     * @param xor      Whether the address is obfuscated, as is the case in a XOR-MAPPED-ADDRESS attribute.
+     * @return The address (never null).
+     * @throws ParseException When the attribute value cannot be parsed.
+     */
+    private static InetAddress readAddress( byte[] response, int offset, int length, boolean xor )
+        throws ParseException
+    {
+        // One reserved byte, the family, the port (two bytes) and the address.
+        final int family = response[ offset + 1 ] & 0xFF;
+        final int addressLength = family == 0x01 ? 4 : family == 0x02 ? 16 : -1;
+        if ( addressLength < 0 || length < 4 + addressLength )
+        {
+            throw new ParseException( "STUN response contains a malformed address attribute." );
+        }
+
+        final byte[] address = new byte[ addressLength ];
+        for ( int i = 0; i < addressLength; i++ )
+        {
+            address[ i ] = response[ offset + 4 + i ];
+            if ( xor )
+            {
+                // XOR-ed with the magic cookie, followed by the transaction ID (both start at offset 4 of the header).
+                address[ i ] ^= response[ 4 + i ];
+            }
+        }
+
+        try
+        {
+            return InetAddress.getByAddress( address );
+        }
+        catch ( UnknownHostException e )
+        {
+            throw new ParseException( "STUN response contains a malformed address attribute.", e );
+        }
+    }
+
+    private static boolean regionEquals( byte[] a, byte[] b, int offset, int length )
+    {
+        for ( int i = offset; i < offset + length; i++ )
+        {
+            if ( a[ i ] != b[ i ] )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int readShort( byte[] buffer, int offset )
+    {
+        return ( ( buffer[ offset ] & 0xFF ) << 8 ) | ( buffer[ offset + 1 ] & 0xFF );
+    }
+
+    private static void writeShort( byte[] buffer, int offset, int value )
+    {
+        buffer[ offset ] = (byte) ( value >>> 8 );
+        buffer[ offset + 1 ] = (byte) value;
+    }
+
+    private static void writeInt( byte[] buffer, int offset, int value )
+    {
+        writeShort( buffer, offset, value >>> 16 );
+        writeShort( buffer, offset + 2, value );
+    }
+}
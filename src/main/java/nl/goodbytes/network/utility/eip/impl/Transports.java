@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) 2017 Guus der Kinderen. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.goodbytes.network.utility.eip.impl;
+
+/**
+ * Creates the transport that is shared by all {@link URLResolver} instances.
+ *
+ * This implementation is used on JVMs prior to Java 11. The multi-release JAR of this library contains a replacement
+ * that is used on later versions.
+ *
+ * @author Guus der Kinderen, guus@goodbytes.nl
+ */
+final class Transports
+{
+    private Transports()
+    {
+    }
+
+    /**
+     * Creates the transport that is to be used by {@link URLResolver} instances.
+     *
+     * @return A transport (never null).
+     */
+    static HttpTransport createDefault()
+    {
+        return new KeepAliveHttpTransport( new URLConnectionTransport() );
+    }
+}
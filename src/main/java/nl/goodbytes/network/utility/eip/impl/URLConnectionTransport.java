@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2017 Guus der Kinderen. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.goodbytes.network.utility.eip.impl;
+
+import nl.goodbytes.network.utility.eip.AddressFamily;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A transport that uses the {@link URLConnection} implementation of the JVM. This supports all protocols, proxies and
+ * redirects that the JVM supports.
+ *
+ * The response is read to its end and closed, which allows the JVM to reuse the underlying connection.
+ *
+ * This implementation cannot be instructed to connect over a specific IP version.
+ *
+ * A URLConnection applies its timeouts to each blocking operation, but does not bound the total duration of a request.
+ * An HTTP request that has not completed by its deadline is therefore aborted by disconnecting it, from a thread that
+ * is shared by all requests.
+ *
+ * @author Guus der Kinderen, guus@goodbytes.nl
+ */
+final class URLConnectionTransport implements HttpTransport
+{
+    private static final ScheduledThreadPoolExecutor watchdog = new ScheduledThreadPoolExecutor( 1, new ThreadFactory()
+    {
+        @Override
+        public Thread newThread( Runnable task )
+        {
+            final Thread thread = new Thread( task, "external-ip-check-request-watchdog" );
+            thread.setDaemon( true );
+            return thread;
+        }
+    } );
+
+    static
+    {
+        watchdog.setRemoveOnCancelPolicy( true );
+    }
+
+    @Override
+    public byte[] get( URL url, AddressFamily family, int connectTimeout, int readTimeout, long deadline )
+        throws IOException
+    {
+        if ( family != null )
+        {
+            throw new IOException( "Unable to request '" + url + "' over a specific IP version." );
+        }
+
+        final URLConnection connection = url.openConnection();
+        connection.setConnectTimeout( HttpTransport.remaining( deadline, connectTimeout ) );
+        connection.setReadTimeout( HttpTransport.remaining( deadline, readTimeout ) );
+        connection.setUseCaches( false );
+
+        final ScheduledFuture<?> abort = connection instanceof HttpURLConnection
+            ? watchdog.schedule( new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    ( (HttpURLConnection) connection ).disconnect();
+                }
+            }, deadline - System.nanoTime(), TimeUnit.NANOSECONDS )
+            : null;
+
+        try ( final InputStream in = connection.getInputStream() )
+        {
+            final ByteArrayOutputStream body = new ByteArrayOutputStream( 64 );
+            final byte[] buffer = new byte[ 64 ];
+
+            int length;
+            while ( ( length = in.read( buffer ) ) != -1 )
+            {
+                if ( body.size() + length > MAXIMUM_BODY_SIZE )
+                {
+                    throw new IOException( "Response body exceeds " + MAXIMUM_BODY_SIZE + " bytes." );
+                }
+                body.write( buffer, 0, length );
+            }
+            return body.toByteArray();
+        }
+        catch ( IOException e )
+        {
+            if ( !( e instanceof SocketTimeoutException ) && System.nanoTime() - deadline >= 0 )
+            {
+                // Most likely caused by the disconnect. Reported as a timeout, which is what it is.
+                final SocketTimeoutException timeout =
+                    new SocketTimeoutException( "Request to '" + url + "' did not complete before its deadline." );
+                timeout.initCause( e );
+                throw timeout;
+            }
+            throw e;
+        }
+        finally
+        {
+            if ( abort != null )
+            {
+                abort.cancel( false );
+            }
+        }
+    }
+}
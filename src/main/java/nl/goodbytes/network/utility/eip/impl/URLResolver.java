@@ -16,28 +16,39 @@
 
 package nl.goodbytes.network.utility.eip.impl;
 
+import nl.goodbytes.network.utility.eip.AddressFamily;
 import nl.goodbytes.network.utility.eip.ParseException;
-import nl.goodbytes.network.utility.eip.spi.Resolver;
 
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.net.InetAddress;
 import java.net.URL;
-import java.util.ArrayDeque;
-import java.util.Queue;
+import java.util.concurrent.TimeUnit;
 
 /**
  * An abstract service provider that uses a webservice referenced to by a URL.
  *
- * This implementation takes responsibility for making the request to the webservice and does bookkeeping to track
- * average duration and number of requests. Subclasses are responsible for parsing the webservice response.
+ * This implementation takes responsibility for making the request to the webservice. Subclasses are responsible for
+ * parsing the webservice response.
+ *
+ * Both establishing a connection and waiting for data are subject to a timeout, which can be configured per instance.
+ * The timeout that is provided by the caller bounds the total duration of the request, including both.
+ *
+ * On Java 11 and later, requests are made by the HttpClient of the JVM, which pools connections. Requests that it
+ * cannot make, as well as all requests on older JVMs, are made as follows: plain HTTP requests are made over
+ * connections that are kept open after use, so that subsequent requests to the same web service do not need to
+ * establish a new connection. Other requests use the URLConnection implementation of the JVM.
+ *
+ * Requests can be made over a specific IP version, which causes the web service to report the address of that family.
+ * This is supported only for plain HTTP web services that do not redirect, and that are not reached through a proxy.
  *
  * @author Guus der Kinderen, guus@goodbytes.nl
  */
-public abstract class URLResolver implements Resolver
+public abstract class URLResolver extends AbstractResolver
 {
-    private long successfulExecutions = 0;
-    private Queue<Long> mostRecentExecutionDurations = new ArrayDeque<>( 10 );
+    private static final HttpTransport transport = Transports.createDefault();
+
+    private volatile int connectTimeout = 5000;
+    private volatile int readTimeout = 5000;
 
     /**
      * The URL of the web service that is to be invoked.
@@ -49,61 +60,77 @@ public abstract class URLResolver implements Resolver
     /**
      * Parses a webservice response into an IP address.
      *
-     * @param content The webservice response (can be null).
+     * @param content The (raw) webservice response (cannot be null).
      * @return An IP address (cannot be null).
      * @throws ParseException When the provided content cannot be parsed.
      */
-    abstract InetAddress parse( String content ) throws ParseException;
+    abstract InetAddress parse( byte[] content ) throws ParseException;
 
     @Override
     public InetAddress resolveAddress() throws IOException, ParseException
     {
-        final long start = System.currentTimeMillis();
-
-        String content;
-        try ( final InputStreamReader reader = new InputStreamReader( getServiceAddress().openStream() ) )
-        {
-            char[] buffer = new char[ 39 ]; // IPv6 hex representation length.
-            final StringBuilder sb = new StringBuilder( buffer.length );
-
-            int length;
-            while ( ( length = reader.read( buffer ) ) != -1 )
-            {
-                sb.append( buffer, 0, length );
-            }
-
-            content = sb.toString();
-        }
+        return resolveAddress( connectTimeout + readTimeout, TimeUnit.MILLISECONDS );
+    }
 
-        final InetAddress result = parse( content );
+    @Override
+    InetAddress query( AddressFamily family, long budget ) throws IOException, ParseException
+    {
+        final long duration = TimeUnit.MILLISECONDS.toNanos( Math.min( budget, Integer.MAX_VALUE ) );
+        final long deadline = System.nanoTime() + duration;
+        return parse( transport.get( getServiceAddress(), family, connectTimeout, readTimeout, deadline ) );
+    }
 
-        final long duration = System.currentTimeMillis() - start;
+    /**
+     * Returns the maximum duration of establishing a connection to the web service.
+     *
+     * @param timeUnit The unit in which the returned value is expressed (cannot be null).
+     * @return The connect timeout, positive.
+     */
+    public long getConnectTimeout( TimeUnit timeUnit )
+    {
+        return timeUnit.convert( connectTimeout, TimeUnit.MILLISECONDS );
+    }
 
-        synchronized ( this )
-        {
-            mostRecentExecutionDurations.add( duration );
-            while ( mostRecentExecutionDurations.size() > 10 )
-            {
-                mostRecentExecutionDurations.remove();
-            }
-            successfulExecutions++;
-        }
+    /**
+     * Defines the maximum duration of establishing a connection to the web service.
+     *
+     * @param timeout  The connect timeout. Must be at least one millisecond.
+     * @param timeUnit The unit in which timeout is expressed (cannot be null).
+     */
+    public void setConnectTimeout( long timeout, TimeUnit timeUnit )
+    {
+        this.connectTimeout = toTimeoutMillis( timeout, timeUnit );
+    }
 
-        return result;
+    /**
+     * Returns the maximum duration of waiting for data from the web service.
+     *
+     * @param timeUnit The unit in which the returned value is expressed (cannot be null).
+     * @return The read timeout, positive.
+     */
+    public long getReadTimeout( TimeUnit timeUnit )
+    {
+        return timeUnit.convert( readTimeout, TimeUnit.MILLISECONDS );
     }
 
-    public synchronized long getSuccessfulExecutionCount()
+    /**
+     * Defines the maximum duration of waiting for data from the web service.
+     *
+     * @param timeout  The read timeout. Must be at least one millisecond.
+     * @param timeUnit The unit in which timeout is expressed (cannot be null).
+     */
+    public void setReadTimeout( long timeout, TimeUnit timeUnit )
     {
-        return successfulExecutions;
+        this.readTimeout = toTimeoutMillis( timeout, timeUnit );
     }
 
-    public synchronized long getAverageDuration()
+    private static int toTimeoutMillis( long timeout, TimeUnit timeUnit )
     {
-        long total = 0;
-        for ( final Long mostRecentExecutionDuration : mostRecentExecutionDurations )
+        final long millis = timeUnit.toMillis( timeout );
+        if ( millis < 1 )
         {
-            total += mostRecentExecutionDuration;
+            throw new IllegalArgumentException( "Argument 'timeout' must be at least one millisecond." );
         }
-        return total;
+        return (int) Math.min( Integer.MAX_VALUE, millis );
     }
 }
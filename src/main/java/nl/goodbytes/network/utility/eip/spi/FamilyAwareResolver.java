@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2017 Guus der Kinderen. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.goodbytes.network.utility.eip.spi;
+
+import nl.goodbytes.network.utility.eip.AddressFamily;
+import nl.goodbytes.network.utility.eip.ParseException;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A service provider that can be instructed to communicate with its external entity over a specific IP version, so that
+ * the external entity reports back the address of that family.
+ *
+ * @author Guus der Kinderen, guus@goodbytes.nl
+ */
+public interface FamilyAwareResolver extends Resolver
+{
+    /**
+     * Returns the IP address of the provided family as reported by the external entity, spending no more than
+     * (approximately) the provided duration.
+     *
+     * @param family   The family of the IP address to obtain (cannot be null).
+     * @param timeout  The maximum duration of the execution. Must be positive.
+     * @param timeUnit The unit in which timeout is expressed (cannot be null).
+     * @return The IP address, of the requested family (never null).
+     * @throws IOException    When communication with the external entity fails or times out, or when the external
+     *                        entity cannot be reached using the requested IP version.
+     * @throws ParseException When the response of the external entity cannot be parsed as an IP address of the
+     *                        requested family.
+     */
+    InetAddress resolveAddress( AddressFamily family, long timeout, TimeUnit timeUnit )
+        throws IOException, ParseException;
+}
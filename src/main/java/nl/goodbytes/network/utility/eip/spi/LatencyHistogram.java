@@ -0,0 +1,250 @@
+/*
+ * Copyright (c) 2017 Guus der Kinderen. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.goodbytes.network.utility.eip.spi;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Records the outcome and duration of executions of a service provider.
+ *
+ * Durations of successful executions are counted in buckets of exponentially increasing width: each power of two (in
+ * microseconds) is divided in eight buckets. A percentile is reported as the largest value of its bucket (but not
+ * larger than the maximum), which is never lower than the exact value, and at most 12.5% higher. Durations of up to
+ * 2^36 microseconds (about nineteen hours) are tracked, longer durations are counted in the last bucket.
+ *
+ * Recording does not allocate and does not acquire locks, which makes instances cheap to update from many threads.
+ * Values that are read while other threads are recording are not guaranteed to be consistent with each other.
+ *
+ * @author Guus der Kinderen, guus@goodbytes.nl
+ */
+public final class LatencyHistogram
+{
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAXIMUM_EXPONENT = 36;
+    private static final int BUCKET_COUNT = ( MAXIMUM_EXPONENT - SUB_BUCKET_BITS + 2 ) * SUB_BUCKETS;
+
+    /**
+     * The number of most recent successful executions over which {@link #getRecentAverage(TimeUnit)} is calculated.
+     */
+    private static final int RECENT_SIZE = 10;
+
+    private final AtomicLongArray buckets = new AtomicLongArray( BUCKET_COUNT );
+    private final AtomicLong successes = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong maximum = new AtomicLong();
+    private final AtomicLongArray recent = new AtomicLongArray( RECENT_SIZE );
+
+    /**
+     * Records a successful execution.
+     *
+     * @param duration The duration of the execution, in nanoseconds.
+     */
+    public void recordSuccess( long duration )
+    {
+        final long nanos = Math.max( 0, duration );
+        buckets.incrementAndGet( indexOf( TimeUnit.NANOSECONDS.toMicros( nanos ) ) );
+        total.addAndGet( nanos );
+
+        long max;
+        while ( nanos > ( max = maximum.get() ) && !maximum.compareAndSet( max, nanos ) )
+        {
+            // Retry until the maximum is at least as large as this duration.
+        }
+
+        final long count = successes.getAndIncrement();
+        recent.set( (int) ( count % RECENT_SIZE ), nanos );
+    }
+
+    /**
+     * Records an execution that failed for a reason other than a timeout.
+     */
+    public void recordFailure()
+    {
+        failures.incrementAndGet();
+    }
+
+    /**
+     * Records an execution that failed because it timed out.
+     */
+    public void recordTimeout()
+    {
+        timeouts.incrementAndGet();
+    }
+
+    /**
+     * Returns the number of successful executions.
+     *
+     * @return An execution count, zero or positive.
+     */
+    public long getSuccessCount()
+    {
+        return successes.get();
+    }
+
+    /**
+     * Returns the number of executions that failed for a reason other than a timeout.
+     *
+     * @return An execution count, zero or positive.
+     */
+    public long getFailureCount()
+    {
+        return failures.get();
+    }
+
+    /**
+     * Returns the number of executions that timed out.
+     *
+     * @return An execution count, zero or positive.
+     */
+    public long getTimeoutCount()
+    {
+        return timeouts.get();
+    }
+
+    /**
+     * Returns the longest duration of all successful executions.
+     *
+     * @param timeUnit The unit in which the returned value is expressed (cannot be null).
+     * @return A duration. Zero when no successful executions have occurred.
+     */
+    public long getMaximum( TimeUnit timeUnit )
+    {
+        return timeUnit.convert( maximum.get(), TimeUnit.NANOSECONDS );
+    }
+
+    /**
+     * Returns the average duration of all successful executions.
+     *
+     * @param timeUnit The unit in which the returned value is expressed (cannot be null).
+     * @return A duration. Zero when no successful executions have occurred.
+     */
+    public long getMean( TimeUnit timeUnit )
+    {
+        final long count = successes.get();
+        return count == 0 ? 0 : timeUnit.convert( total.get() / count, TimeUnit.NANOSECONDS );
+    }
+
+    /**
+     * Returns the average duration of the ten most recent successful executions.
+     *
+     * @param timeUnit The unit in which the returned value is expressed (cannot be null).
+     * @return A duration. Zero when no successful executions have occurred.
+     */
+    public long getRecentAverage( TimeUnit timeUnit )
+    {
+        final int count = (int) Math.min( RECENT_SIZE, successes.get() );
+        if ( count == 0 )
+        {
+            return 0;
+        }
+
+        long sum = 0;
+        for ( int i = 0; i < count; i++ )
+        {
+            sum += recent.get( i );
+        }
+        return timeUnit.convert( sum / count, TimeUnit.NANOSECONDS );
+    }
+
+    /**
+     * Returns the duration below which the provided percentage of all successful executions completed, for example the
+     * median (50), or the 99th percentile (99).
+     *
+     * @param percentile The percentile. Must be larger than zero, and not larger than 100.
+     * @param timeUnit   The unit in which the returned value is expressed (cannot be null).
+     * @return A duration. Zero when no successful executions have occurred.
+     */
+    public long getPercentile( double percentile, TimeUnit timeUnit )
+    {
+        if ( percentile <= 0 || percentile > 100 )
+        {
+            throw new IllegalArgumentException( "Argument 'percentile' must be in the range (0, 100]." );
+        }
+
+        long count = 0;
+        for ( int i = 0; i < BUCKET_COUNT; i++ )
+        {
+            count += buckets.get( i );
+        }
+        if ( count == 0 )
+        {
+            return 0;
+        }
+
+        final long rank = (long) Math.ceil( count * percentile / 100 );
+        long cumulative = 0;
+        int index = 0;
+        for ( ; index < BUCKET_COUNT - 1; index++ )
+        {
+            cumulative += buckets.get( index );
+            if ( cumulative >= rank )
+            {
+                break;
+            }
+        }
+
+        final long nanos = Math.min( TimeUnit.MICROSECONDS.toNanos( upperBoundOf( index ) ), maximum.get() );
+        return timeUnit.convert( nanos, TimeUnit.NANOSECONDS );
+    }
+
+    /**
+     * Returns the index of the bucket in which a value is counted.
+     *
+     * @param micros A duration in microseconds, zero or positive.
+     * @return A bucket index.
+     */
+    private static int indexOf( long micros )
+    {
+        if ( micros < SUB_BUCKETS )
+        {
+            return (int) micros;
+        }
+
+        final int exponent = 63 - Long.numberOfLeadingZeros( micros );
+        if ( exponent > MAXIMUM_EXPONENT )
+        {
+            return BUCKET_COUNT - 1;
+        }
+
+        final int subBucket = (int) ( micros >>> ( exponent - SUB_BUCKET_BITS ) ) & ( SUB_BUCKETS - 1 );
+        return ( exponent - SUB_BUCKET_BITS + 1 ) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * Returns the largest value that is counted in a bucket.
+     *
+     * @param index A bucket index.
+     * @return A duration in microseconds.
+     */
+    private static long upperBoundOf( int index )
+    {
+        if ( index < SUB_BUCKETS )
+        {
+            return index;
+        }
+
+        final int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        final int subBucket = index % SUB_BUCKETS;
+        final int shift = exponent - SUB_BUCKET_BITS;
+        return ( ( (long) SUB_BUCKETS + subBucket ) << shift ) + ( 1L << shift ) - 1;
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2017 Guus der Kinderen. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.goodbytes.network.utility.eip.spi;
+
+import nl.goodbytes.network.utility.eip.RateLimit;
+
+/**
+ * A service provider that defines the rate at which it is to be invoked, for example to respect the fair-use policy of
+ * the external entity that it uses.
+ *
+ * The rate limit of a service provider takes precedence over the rate limit that a
+ * {@link nl.goodbytes.network.utility.eip.ResolverService} applies to its class, or by default. A rate limit that is
+ * configured for the individual service provider in the service takes precedence over this one.
+ *
+ * @author Guus der Kinderen, guus@goodbytes.nl
+ */
+public interface RateLimitedResolver extends Resolver
+{
+    /**
+     * Returns the rate limit of this service provider.
+     *
+     * @return The rate limit, or null to leave it to the service.
+     */
+    RateLimit getRateLimit();
+}
@@ -20,6 +20,7 @@ import nl.goodbytes.network.utility.eip.ParseException;
 
 import java.io.IOException;
 import java.net.InetAddress;
+import java.util.concurrent.TimeUnit;
 
 /**
  * A service provider interface for a service that uses an external entity to report back the IP address of the host
@@ -38,6 +39,24 @@ public interface Resolver
      */
     InetAddress resolveAddress() throws IOException, ParseException;
 
+    /**
+     * Returns the IP address as reported by the external entity, spending no more than (approximately) the provided
+     * duration.
+     *
+     * The default implementation does not limit the duration: it invokes {@link #resolveAddress()}. Implementations
+     * are expected to override this method, as the service relies on it to complete resolutions within their deadline.
+     *
+     * @param timeout  The maximum duration of the execution. Must be positive.
+     * @param timeUnit The unit in which timeout is expressed (cannot be null).
+     * @return The IP address (never null).
+     * @throws IOException    When communication with the external entity fails or times out.
+     * @throws ParseException When the response of the external entity cannot be parsed as an IP address.
+     */
+    default InetAddress resolveAddress( long timeout, TimeUnit timeUnit ) throws IOException, ParseException
+    {
+        return resolveAddress();
+    }
+
     /**
      * Returns a count of successful responses from the external entity since the instance was created.
      *
@@ -52,4 +71,17 @@ public interface Resolver
      * @return an (average) duration in milliseconds. Zero when no successful executions have occurred.
      */
     long getAverageDuration();
+
+    /**
+     * Returns the statistics of all executions since the instance was created: success, failure and timeout counts,
+     * and the distribution of the duration of successful executions.
+     *
+     * The default implementation returns an empty histogram, for implementations that do not keep these statistics.
+     *
+     * @return A histogram (never null).
+     */
+    default LatencyHistogram getLatencyHistogram()
+    {
+        return new LatencyHistogram();
+    }
 }
@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2017 Guus der Kinderen. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.goodbytes.network.utility.eip.spi;
+
+/**
+ * A service provider that carries a weight, which expresses how strongly it is to be preferred over others.
+ *
+ * When service providers are ordered by their expected cost, the expected cost of a provider is divided by its weight.
+ * A provider with a weight of 4 is therefore preferred over a provider with the default weight of 1, as long as its
+ * expected cost is less than four times that of the other provider. Providers of equal cost, such as those that have
+ * not been invoked yet, are ordered by descending weight. This allows, for example, a nearby external entity to be
+ * preferred from the start, rather than only after enough executions have been measured to establish that it responds
+ * faster.
+ *
+ * @author Guus der Kinderen, guus@goodbytes.nl
+ */
+public interface WeightedResolver extends Resolver
+{
+    /**
+     * Returns the weight of this service provider.
+     *
+     * @return The weight, a positive value.
+     */
+    double getWeight();
+}
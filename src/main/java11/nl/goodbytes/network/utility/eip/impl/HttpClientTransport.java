@@ -0,0 +1,242 @@
+/*
+ * Copyright (c) 2017 Guus der Kinderen. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.goodbytes.network.utility.eip.impl;
+
+import nl.goodbytes.network.utility.eip.AddressFamily;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.ProxySelector;
+import java.net.SocketTimeoutException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A transport that uses the {@link HttpClient} of the JVM. Connections are pooled by the client, and are shared by
+ * concurrent requests when a web service supports HTTP/2. Redirects are followed and the default proxy selector of the
+ * JVM is used.
+ *
+ * The client cannot be instructed to connect over a specific IP version: such requests, as well as requests that use
+ * a protocol other than 'http' or 'https', are delegated to a fallback transport.
+ *
+ * The connect and read timeouts of a request are combined into one timeout, that applies until the response headers
+ * have been received. That timeout does not extend beyond the deadline of the request, which also bounds the receipt
+ * of the response body. Bodies that exceed the maximum size are not received beyond that size.
+ *
+ * @author Guus der Kinderen, guus@goodbytes.nl
+ */
+final class HttpClientTransport implements HttpTransport
+{
+    private final HttpTransport fallback;
+    private final HttpClient client;
+
+    HttpClientTransport( HttpTransport fallback )
+    {
+        this.fallback = fallback;
+
+        final HttpClient.Builder builder = HttpClient.newBuilder().followRedirects( HttpClient.Redirect.NORMAL );
+        final ProxySelector proxySelector = ProxySelector.getDefault();
+        if ( proxySelector != null )
+        {
+            builder.proxy( proxySelector );
+        }
+        this.client = builder.build();
+    }
+
+    @Override
+    public byte[] get( URL url, AddressFamily family, int connectTimeout, int readTimeout, long deadline )
+        throws IOException
+    {
+        final String protocol = url.getProtocol();
+        if ( family != null || !( "http".equalsIgnoreCase( protocol ) || "https".equalsIgnoreCase( protocol ) ) )
+        {
+            return fallback.get( url, family, connectTimeout, readTimeout, deadline );
+        }
+
+        final int budget = HttpTransport.remaining( deadline, (long) connectTimeout + readTimeout );
+        final HttpRequest request;
+        try
+        {
+            request = HttpRequest.newBuilder( url.toURI() )
+                .timeout( Duration.ofMillis( budget ) )
+                .header( "User-Agent", "external-ip-check" )
+                .header( "Accept", "text/plain, */*" )
+                .GET()
+                .build();
+        }
+        catch ( URISyntaxException | IllegalArgumentException e )
+        {
+            throw new IOException( "Unable to request '" + url + "'.", e );
+        }
+
+        final LimitedBodyHandler handler = new LimitedBodyHandler();
+        final CompletableFuture<HttpResponse<byte[]>> pending = client.sendAsync( request, handler );
+        final HttpResponse<byte[]> response;
+        try
+        {
+            response = pending.get( HttpTransport.remaining( deadline, budget ), TimeUnit.MILLISECONDS );
+        }
+        catch ( TimeoutException e )
+        {
+            pending.cancel( true );
+            handler.cancel();
+            throw new SocketTimeoutException( "Request to '" + url + "' did not complete before its deadline." );
+        }
+        catch ( ExecutionException e )
+        {
+            final Throwable cause = e.getCause();
+            if ( cause instanceof HttpTimeoutException )
+            {
+                // Reported as a socket timeout, which is how timeouts are recognized by the bookkeeping of resolvers.
+                final SocketTimeoutException timeout = new SocketTimeoutException( cause.getMessage() );
+                timeout.initCause( cause );
+                throw timeout;
+            }
+            if ( cause instanceof IOException )
+            {
+                throw (IOException) cause;
+            }
+            throw new IOException( "Unable to request '" + url + "'.", cause );
+        }
+        catch ( InterruptedException e )
+        {
+            pending.cancel( true );
+            handler.cancel();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException( "Interrupted while requesting '" + url + "'." );
+        }
+
+        if ( response.statusCode() < 200 || response.statusCode() > 299 )
+        {
+            throw new IOException( "Web service responded with HTTP status: " + response.statusCode() );
+        }
+        return response.body();
+    }
+
+    /**
+     * Collects the body of a successful response. The bodies of other responses are discarded.
+     */
+    private static final class LimitedBodyHandler implements HttpResponse.BodyHandler<byte[]>
+    {
+        private volatile LimitedBodySubscriber subscriber;
+
+        @Override
+        public HttpResponse.BodySubscriber<byte[]> apply( HttpResponse.ResponseInfo info )
+        {
+            if ( info.statusCode() < 200 || info.statusCode() > 299 )
+            {
+                return HttpResponse.BodySubscribers.replacing( null );
+            }
+            subscriber = new LimitedBodySubscriber();
+            return subscriber;
+        }
+
+        /**
+         * Stops receiving the body of the response, if that is being received.
+         */
+        void cancel()
+        {
+            final LimitedBodySubscriber current = subscriber;
+            if ( current != null )
+            {
+                current.cancel();
+            }
+        }
+    }
+
+    /**
+     * Collects a response body of up to {@link HttpTransport#MAXIMUM_BODY_SIZE} bytes. Receiving a larger body is
+     * stopped as soon as the limit is exceeded.
+     */
+    private static final class LimitedBodySubscriber implements HttpResponse.BodySubscriber<byte[]>
+    {
+        private final CompletableFuture<byte[]> body = new CompletableFuture<>();
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream( 64 );
+        private volatile Flow.Subscription subscription;
+
+        @Override
+        public CompletionStage<byte[]> getBody()
+        {
+            return body;
+        }
+
+        @Override
+        public void onSubscribe( Flow.Subscription subscription )
+        {
+            this.subscription = subscription;
+            subscription.request( 1 );
+        }
+
+        @Override
+        public void onNext( List<ByteBuffer> items )
+        {
+            if ( body.isDone() )
+            {
+                return;
+            }
+            for ( final ByteBuffer item : items )
+            {
+                if ( buffer.size() + item.remaining() > MAXIMUM_BODY_SIZE )
+                {
+                    subscription.cancel();
+                    body.completeExceptionally(
+                        new IOException( "Response body exceeds " + MAXIMUM_BODY_SIZE + " bytes." ) );
+                    return;
+                }
+                final byte[] bytes = new byte[ item.remaining() ];
+                item.get( bytes );
+                buffer.write( bytes, 0, bytes.length );
+            }
+            subscription.request( 1 );
+        }
+
+        @Override
+        public void onError( Throwable throwable )
+        {
+            body.completeExceptionally( throwable );
+        }
+
+        @Override
+        public void onComplete()
+        {
+            body.complete( buffer.toByteArray() );
+        }
+
+        void cancel()
+        {
+            final Flow.Subscription current = subscription;
+            if ( current != null )
+            {
+                current.cancel();
+            }
+            body.cancel( false );
+        }
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2017 Guus der Kinderen. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.goodbytes.network.utility.eip.impl;
+
+/**
+ * Creates the transport that is shared by all {@link URLResolver} instances.
+ *
+ * This implementation is used on Java 11 and later. Requests are made by the HTTP client of the JVM, which pools
+ * connections and supports HTTP/2. Requests that it cannot make (those over a specific IP version) are made by the
+ * keep-alive transport instead.
+ *
+ * @author Guus der Kinderen, guus@goodbytes.nl
+ */
+final class Transports
+{
+    private Transports()
+    {
+    }
+
+    /**
+     * Creates the transport that is to be used by {@link URLResolver} instances.
+     *
+     * @return A transport (never null).
+     */
+    static HttpTransport createDefault()
+    {
+        return new HttpClientTransport( new KeepAliveHttpTransport( new URLConnectionTransport() ) );
+    }
+}
@@ -0,0 +1,256 @@
+/*
+ * Copyright (c) 2017 Guus der Kinderen. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.goodbytes.network.utility.eip;
+
+import nl.goodbytes.network.utility.eip.spi.Resolver;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Verifies the order in which {@link ResolverService} notifies address change listeners.
+ *
+ * @author Guus der Kinderen, guus@goodbytes.nl
+ */
+public class AddressChangeNotificationTest
+{
+    private ResolverService service;
+    private List<Resolution[]> events;
+    private AddressChangeListener recorder;
+    private AddressChangeListener republisher;
+    private ExecutorService notifier;
+
+    @Before
+    public void setUp()
+    {
+        service = new ResolverService( Collections.<Resolver>emptyList() );
+        events = Collections.synchronizedList( new ArrayList<Resolution[]>() );
+        recorder = new AddressChangeListener()
+        {
+            @Override
+            public void addressChanged( Resolution previous, Resolution current )
+            {
+                events.add( new Resolution[] { previous, current } );
+            }
+        };
+    }
+
+    @After
+    public void tearDown()
+    {
+        service.removeAddressChangeListener( recorder );
+        if ( republisher != null )
+        {
+            service.removeAddressChangeListener( republisher );
+        }
+        if ( notifier != null )
+        {
+            notifier.shutdownNow();
+        }
+        service.close();
+    }
+
+    private static Resolution resolution( String address ) throws Exception
+    {
+        return new Resolution( InetAddress.getByName( address ), System.currentTimeMillis(), "test" );
+    }
+
+    @Test
+    public void testChangeCausedByListenerIsDeliveredAfterwards() throws Exception
+    {
+        // Setup test fixture: a listener that publishes another change when it is first notified.
+        final Resolution first = resolution( "192.0.2.1" );
+        final Resolution second = resolution( "192.0.2.2" );
+        republisher = new AddressChangeListener()
+        {
+            @Override
+            public void addressChanged( Resolution previous, Resolution current )
+            {
+                if ( current == first )
+                {
+                    service.update( second );
+                }
+            }
+        };
+        service.addAddressChangeListener( republisher );
+        service.addAddressChangeListener( recorder );
+
+        // Execute system under test.
+        service.update( first );
+
+        // Verify results.
+        assertEquals( 2, events.size() );
+        assertNull( events.get( 0 )[ 0 ] );
+        assertEquals( first, events.get( 0 )[ 1 ] );
+        assertEquals( first, events.get( 1 )[ 0 ] );
+        assertEquals( second, events.get( 1 )[ 1 ] );
+    }
+
+    @Test( timeout = 60000 )
+    public void testConcurrentChangesAreDeliveredInOrder() throws Exception
+    {
+        // Setup test fixture.
+        service.addAddressChangeListener( recorder );
+        final Resolution[] resolutions = {
+            resolution( "192.0.2.1" ), resolution( "192.0.2.2" ), resolution( "192.0.2.3" )
+        };
+        final ExecutorService threads = Executors.newFixedThreadPool( 8 );
+        final CountDownLatch start = new CountDownLatch( 1 );
+
+        // Execute system under test.
+        for ( int t = 0; t < 8; t++ )
+        {
+            threads.execute( new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    final Random random = new Random();
+                    try
+                    {
+                        start.await();
+                    }
+                    catch ( InterruptedException e )
+                    {
+                        return;
+                    }
+                    for ( int i = 0; i < 5000; i++ )
+                    {
+                        service.update( resolutions[ random.nextInt( resolutions.length ) ] );
+                    }
+                }
+            } );
+        }
+        start.countDown();
+        threads.shutdown();
+        assertTrue( threads.awaitTermination( 50, TimeUnit.SECONDS ) );
+
+        // Verify results: every notification continues where the previous one left off.
+        assertTrue( events.size() > 1 );
+        for ( int i = 1; i < events.size(); i++ )
+        {
+            final Resolution[] event = events.get( i );
+            assertEquals( events.get( i - 1 )[ 1 ].getAddress(), event[ 0 ].getAddress() );
+            assertNotEquals( event[ 0 ].getAddress(), event[ 1 ].getAddress() );
+        }
+        assertEquals( service.getCachedResolution().getAddress(), events.get( events.size() - 1 )[ 1 ].getAddress() );
+    }
+
+    @Test( timeout = 60000 )
+    public void testMultiThreadedExecutorDeliversOneAtATimeInOrder() throws Exception
+    {
+        // Setup test fixture: a listener that detects overlapping notifications.
+        notifier = Executors.newFixedThreadPool( 4 );
+        final AtomicInteger active = new AtomicInteger();
+        final AtomicBoolean overlapped = new AtomicBoolean();
+        recorder = new AddressChangeListener()
+        {
+            @Override
+            public void addressChanged( Resolution previous, Resolution current )
+            {
+                if ( active.incrementAndGet() > 1 )
+                {
+                    overlapped.set( true );
+                }
+                events.add( new Resolution[] { previous, current } );
+                Thread.yield();
+                active.decrementAndGet();
+            }
+        };
+        service.addAddressChangeListener( recorder, notifier );
+        final Resolution[] resolutions = { resolution( "192.0.2.1" ), resolution( "192.0.2.2" ) };
+
+        // Execute system under test.
+        for ( int i = 0; i < 1000; i++ )
+        {
+            service.update( resolutions[ i % 2 ] );
+        }
+        while ( events.size() < 1000 )
+        {
+            Thread.sleep( 10 );
+        }
+
+        // Verify results.
+        assertFalse( overlapped.get() );
+        assertNull( events.get( 0 )[ 0 ] );
+        for ( int i = 1; i < events.size(); i++ )
+        {
+            assertEquals( events.get( i - 1 )[ 1 ], events.get( i )[ 0 ] );
+        }
+    }
+
+    @Test
+    public void testRejectedNotificationIsDeliveredByPublishingThread() throws Exception
+    {
+        // Setup test fixture.
+        final Executor rejecting = new Executor()
+        {
+            @Override
+            public void execute( Runnable command )
+            {
+                throw new RejectedExecutionException( "Saturated." );
+            }
+        };
+        service.addAddressChangeListener( recorder, rejecting );
+        final Resolution first = resolution( "192.0.2.1" );
+        final Resolution second = resolution( "192.0.2.2" );
+
+        // Execute system under test.
+        service.update( first );
+        service.update( second );
+
+        // Verify results.
+        assertEquals( 2, events.size() );
+        assertEquals( first, events.get( 0 )[ 1 ] );
+        assertEquals( first, events.get( 1 )[ 0 ] );
+        assertEquals( second, events.get( 1 )[ 1 ] );
+    }
+
+    @Test
+    public void testRemovedListenerIsNotNotified() throws Exception
+    {
+        // Setup test fixture.
+        service.addAddressChangeListener( recorder );
+        service.removeAddressChangeListener( recorder );
+
+        // Execute system under test.
+        service.update( resolution( "192.0.2.1" ) );
+
+        // Verify results.
+        assertTrue( events.isEmpty() );
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) 2017 Guus der Kinderen. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package nl.goodbytes.network.utility.eip;
+
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Verifies the state transitions of {@link CircuitBreaker}, and that {@link ResolverService} honors them.
+ *
+ * @author Guus der Kinderen, guus@goodbytes.nl
+ */
+public class CircuitBreakerTest
+{
+    /**
+     * A backoff period that has passed by the time that the breaker is next checked.
+     */
+    private static final long EXPIRED = 1;
+
+    @Test
+    public void testOpensAfterTwoConsecutiveFailures() throws Exception
+    {
+        // Setup test fixture.
+        final CircuitBreaker breaker = new CircuitBreaker();
+
+        // Execute system under test.
+        assertTrue( breaker.tryAcquire() );
+        breaker.onFailure();
+        final CircuitBreakerState afterFirst = breaker.getState();
+        assertTrue( breaker.tryAcquire() );
+        breaker.onFailure();
+
+        // Verify results.
+        assertEquals( CircuitBreakerState.CLOSED, afterFirst );
+        assertEquals( CircuitBreakerState.OPEN, breaker.getState() );
+        assertFalse( breaker.isCallPermitted() );
+        assertFalse( breaker.tryAcquire() );
+    }
+
+    @Test
+    public void testSuccessResetsFailureCount() throws Exception
+    {
+        // Setup test fixture.
+        final CircuitBreaker breaker = new CircuitBreaker();
+
+        // Execute system under test.
+        breaker.onFailure();
+        breaker.onSuccess();
+        breaker.onFailure();
+
+        // Verify results.
+        assertEquals( CircuitBreakerState.CLOSED, breaker.getState() );
+    }
+
+    @Test
+    public void testCancellationIsNotFailure() throws Exception
+    {
+        // Setup test fixture.
+        final CircuitBreaker breaker = new CircuitBreaker();
+
+        // Execute system under test.
+        breaker.onFailure();
+        breaker.onCancelled();
+        breaker.onCancelled();
+
+        // Verify results.
+        assertEquals( CircuitBreakerState.CLOSED, breaker.getState() );
+    }
+
+    @Test
+    public void testOneProbeIsPermittedAfterBackoff() throws Exception
+    {
+        // Setup test fixture.
+        final CircuitBreaker breaker = new CircuitBreaker( EXPIRED );
+        breaker.onFailure();
+        breaker.onFailure();
+
+        // Execute system under test.
+        final boolean probe = breaker.tryAcquire();
+        final boolean concurrent = breaker.tryAcquire();
+
+        // Verify results.
+        assertTrue( probe );
+        assertFalse( concurrent );
+        assertEquals( CircuitBreakerState.HALF_OPEN, breaker.getState() );
+    }
+
+    @Test
+    public void testSuccessfulProbeCloses() throws Exception
+    {
+        // Setup test fixture.
+        final CircuitBreaker breaker = new CircuitBreaker( EXPIRED );
+        breaker.onFailure();
+        breaker.onFailure();
+        assertTrue( breaker.tryAcquire() );
+
+        // Execute system under test.
+        breaker.onSuccess();
+
+        // Verify results.
+        assertEquals( CircuitBreakerState.CLOSED, breaker.getState() );
+        assertTrue( breaker.tryAcquire() );
+    }
+
+    @Test
+    public void testFailedProbeReopens() throws Exception
+    {
+        // Setup test fixture.
+        final CircuitBreaker breaker = new CircuitBreaker( EXPIRED );
+        breaker.onFailure();
+        breaker.onFailure();
+        assertTrue( breaker.tryAcquire() );
+
+        // Execute system under test.
+        breaker.onFailure();
+
+        // Verify results.
+        assertEquals( CircuitBreakerState.OPEN, breaker.getState() );
+    }
+
+    @Test
+    public void testCancelledProbeReopensWithoutExtendingBackoff() throws Exception
+    {
+        // Setup test fixture.
+        final CircuitBreaker breaker = new CircuitBreaker( EXPIRED );
+        breaker.onFailure();
+        breaker.onFailure();
+        assertTrue( breaker.tryAcquire() );
+
+        // Execute system under test.
+        breaker.onCancelled();
+
+        // Verify results.
+        assertEquals( CircuitBreakerState.OPEN, breaker.getState() );
+        assertTrue( "The next invocation should probe again.", breaker.tryAcquire() );
+        assertEquals( CircuitBreakerState.HALF_OPEN, breaker.getState() );
+    }
+
+    @Test( expected = IllegalArgumentException.class )
+    public void testBackoffMustBePositive() throws Exception
+    {
+        // Execute system under test.
+        new CircuitBreaker( 0 );
+    }
+
+    @Test( timeout = 10000 )
+    public void testOpenBreakerSkipsProvider() throws Exception
+    {
+        // Setup test fixture.
+        final StubResolver resolver = StubResolver.failing();
+        final ResolverService service = ResolverService.builder()
+            .addResolver( resolver )
+            .defaultRateLimit( RateLimit.NONE )
+            .build();
+        try
+        {
+            service.resolve( 0, TimeUnit.MILLISECONDS );
+            service.resolve( 0, TimeUnit.MILLISECONDS );
+
+            // Execute system under test.
+            final InetAddress result = service.resolve( 0, TimeUnit.MILLISECONDS );
+
+            // Verify results.
+            assertNull( result );
+            assertEquals( CircuitBreakerState.OPEN, service.getCircuitBreakerStates().get( resolver ) );
+            assertEquals( 2, resolver.getInvocationCount() );
+        }
+        finally
+        {
+            service.close();
+        }
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2017 Guus der Kinderen. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package nl.goodbytes.network.utility.eip;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Verifies that concurrent callers of {@link ResolverService} share one resolution, rather than each invoking the
+ * service providers.
+ *
+ * @author Guus der Kinderen, guus@goodbytes.nl
+ */
+public class ConcurrentResolutionTest
+{
+    private static final int CALLERS = 8;
+
+    private StubResolver resolver;
+    private ResolverService service;
+    private ExecutorService callers;
+
+    @Before
+    public void setUp()
+    {
+        resolver = new StubResolver( "192.0.2.1" ).blocking();
+        service = ResolverService.builder().addResolver( resolver ).defaultRateLimit( RateLimit.NONE ).build();
+        callers = Executors.newFixedThreadPool( CALLERS );
+    }
+
+    @After
+    public void tearDown()
+    {
+        resolver.release();
+        callers.shutdownNow();
+        service.close();
+    }
+
+    @Test( timeout = 10000 )
+    public void testConcurrentCallersShareOneInvocation() throws Exception
+    {
+        // Setup test fixture.
+        final List<Thread> threads = new ArrayList<>();
+        final List<Future<InetAddress>> results = new ArrayList<>();
+        for ( int i = 0; i < CALLERS; i++ )
+        {
+            results.add( callers.submit( new Callable<InetAddress>()
+            {
+                @Override
+                public InetAddress call()
+                {
+                    synchronized ( threads )
+                    {
+                        threads.add( Thread.currentThread() );
+                    }
+                    return service.resolve( 0, TimeUnit.MILLISECONDS );
+                }
+            } ) );
+        }
+
+        // Execute system under test. (Release the provider only after all callers are waiting for a resolution.)
+        assertTrue( resolver.awaitInvocation( 5, TimeUnit.SECONDS ) );
+        awaitAllWaiting( threads );
+        resolver.release();
+
+        // Verify results.
+        for ( final Future<InetAddress> result : results )
+        {
+            assertEquals( InetAddress.getByName( "192.0.2.1" ), result.get( 5, TimeUnit.SECONDS ) );
+        }
+        assertEquals( 1, resolver.getInvocationCount() );
+    }
+
+    @Test( timeout = 10000 )
+    public void testCompletedResolutionIsNotShared() throws Exception
+    {
+        // Setup test fixture.
+        resolver.release();
+        service.resolve( 0, TimeUnit.MILLISECONDS );
+
+        // Execute system under test.
+        service.resolve( 0, TimeUnit.MILLISECONDS );
+
+        // Verify results.
+        assertEquals( 2, resolver.getInvocationCount() );
+    }
+
+    /**
+     * Waits until all callers have started, and are blocked in a timed wait: either in the provider (the one caller
+     * that started the resolution) or for the result of that resolution (all other callers).
+     */
+    private static void awaitAllWaiting( List<Thread> threads ) throws InterruptedException
+    {
+        while ( true )
+        {
+            synchronized ( threads )
+            {
+                boolean waiting = threads.size() == CALLERS;
+                for ( final Thread thread : threads )
+                {
+                    waiting &= thread.getState() == Thread.State.TIMED_WAITING;
+                }
+                if ( waiting )
+                {
+                    return;
+                }
+            }
+            Thread.sleep( 10 );
+        }
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2017 Guus der Kinderen. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package nl.goodbytes.network.utility.eip;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Verifies the resolution of an IP address by {@link ResolverService} in {@link ResolutionMode#HEDGED} mode, using
+ * service providers that do not make network requests.
+ *
+ * @author Guus der Kinderen, guus@goodbytes.nl
+ */
+public class HedgedResolutionTest
+{
+    private final List<StubResolver> resolvers = new ArrayList<>();
+    private ResolverService service;
+
+    @After
+    public void tearDown()
+    {
+        for ( final StubResolver resolver : resolvers )
+        {
+            resolver.release();
+        }
+        if ( service != null )
+        {
+            service.close();
+        }
+    }
+
+    /**
+     * Creates a service that invokes the provided resolvers in order, all of them concurrently when needed.
+     */
+    private ResolverService createService( long hedgeDelay, StubResolver... stubs )
+    {
+        final ResolverServiceBuilder builder = ResolverService.builder()
+            .resolutionMode( ResolutionMode.HEDGED )
+            .providerOrdering( ProviderOrdering.AS_CONFIGURED )
+            .defaultRateLimit( RateLimit.NONE )
+            .hedgeDelay( hedgeDelay, TimeUnit.MILLISECONDS )
+            .maximumFanOut( stubs.length );
+        for ( final StubResolver stub : stubs )
+        {
+            resolvers.add( stub );
+            builder.addResolver( stub );
+        }
+        return builder.build();
+    }
+
+    @Test( timeout = 10000 )
+    public void testFirstSuccessIsReturned() throws Exception
+    {
+        // Setup test fixture.
+        final StubResolver slow = new StubResolver( "192.0.2.1" ).blocking();
+        final StubResolver fast = new StubResolver( "192.0.2.2" );
+        service = createService( 20, slow, fast );
+
+        // Execute system under test.
+        final InetAddress result = service.resolve( 0, TimeUnit.MILLISECONDS );
+
+        // Verify results.
+        assertEquals( InetAddress.getByName( "192.0.2.2" ), result );
+        assertEquals( 1, slow.getInvocationCount() );
+        assertEquals( 1, fast.getInvocationCount() );
+    }
+
+    @Test( timeout = 10000 )
+    public void testLosersAreCancelled() throws Exception
+    {
+        // Setup test fixture.
+        final StubResolver first = new StubResolver( "192.0.2.1" ).blocking();
+        final StubResolver second = new StubResolver( "192.0.2.2" ).blocking();
+        final StubResolver third = new StubResolver( "192.0.2.3" );
+        service = createService( 20, first, second, third );
+
+        // Execute system under test.
+        final InetAddress result = service.resolve( 0, TimeUnit.MILLISECONDS );
+
+        // Verify results.
+        assertEquals( InetAddress.getByName( "192.0.2.3" ), result );
+        assertTrue( first.awaitInterruption( 5, TimeUnit.SECONDS ) );
+        assertTrue( second.awaitInterruption( 5, TimeUnit.SECONDS ) );
+    }
+
+    @Test( timeout = 10000 )
+    public void testCancellationIsNotRecordedAsFailure() throws Exception
+    {
+        // Setup test fixture.
+        final StubResolver slow = new StubResolver( "192.0.2.1" ).blocking();
+        service = createService( 20, slow, new StubResolver( "192.0.2.2" ) );
+
+        // Execute system under test. (More often than the number of failures that opens a circuit breaker.)
+        for ( int i = 0; i < 3; i++ )
+        {
+            service.resolve( 0, TimeUnit.MILLISECONDS );
+        }
+
+        // Verify results.
+        assertTrue( slow.awaitInterruption( 5, TimeUnit.SECONDS ) );
+        assertEquals( CircuitBreakerState.CLOSED, service.getCircuitBreakerStates().get( slow ) );
+    }
+
+    @Test( timeout = 10000 )
+    public void testFailureInvokesNextProviderWithoutWaitingForHedgeDelay() throws Exception
+    {
+        // Setup test fixture.
+        final StubResolver failing = StubResolver.failing();
+        final StubResolver next = new StubResolver( "192.0.2.2" );
+        service = createService( TimeUnit.MINUTES.toMillis( 1 ), failing, next );
+
+        // Execute system under test.
+        final InetAddress result = service.resolve( 0, TimeUnit.MILLISECONDS );
+
+        // Verify results.
+        assertEquals( InetAddress.getByName( "192.0.2.2" ), result );
+        assertEquals( 1, failing.getInvocationCount() );
+    }
+
+    @Test( timeout = 10000 )
+    public void testNoHedgeWhenFirstProviderRespondsWithinDelay() throws Exception
+    {
+        // Setup test fixture.
+        final StubResolver first = new StubResolver( "192.0.2.1" );
+        final StubResolver second = new StubResolver( "192.0.2.2" );
+        service = createService( TimeUnit.MINUTES.toMillis( 1 ), first, second );
+
+        // Execute system under test.
+        final InetAddress result = service.resolve( 0, TimeUnit.MILLISECONDS );
+
+        // Verify results.
+        assertEquals( InetAddress.getByName( "192.0.2.1" ), result );
+        assertEquals( 0, second.getInvocationCount() );
+    }
+}
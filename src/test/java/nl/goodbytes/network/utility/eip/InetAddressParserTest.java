@@ -0,0 +1,210 @@
+/*
+ * Copyright (c) 2017 Guus der Kinderen. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.goodbytes.network.utility.eip;
+
+import org.junit.Test;
+
+import java.net.Inet4Address;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Verifies the implementation of {@link InetAddressParser}.
+ *
+ * @author Guus der Kinderen, guus@goodbytes.nl
+ */
+public class InetAddressParserTest
+{
+    /**
+     * Asserts that text is parsed into the address that is expressed by the provided bytes.
+     */
+    private static void assertParses( String text, int... expected ) throws Exception
+    {
+        final byte[] address = new byte[ expected.length ];
+        for ( int i = 0; i < expected.length; i++ )
+        {
+            address[ i ] = (byte) expected[ i ];
+        }
+        assertEquals( "Parsing '" + text + "'", InetAddress.getByAddress( address ), InetAddressParser.parse( text ) );
+    }
+
+    /**
+     * Asserts that text is rejected, by both the text and the byte array variant of the parser.
+     */
+    private static void assertRejects( String text )
+    {
+        try
+        {
+            InetAddressParser.parse( text );
+            fail( "Text '" + text + "' should not be accepted as an IP address." );
+        }
+        catch ( ParseException e )
+        {
+            // Expected.
+        }
+
+        final byte[] bytes = text.getBytes( StandardCharsets.UTF_8 );
+        try
+        {
+            InetAddressParser.parse( bytes, 0, bytes.length );
+            fail( "Bytes of '" + text + "' should not be accepted as an IP address." );
+        }
+        catch ( ParseException e )
+        {
+            // Expected.
+        }
+    }
+
+    @Test
+    public void testIPv4() throws Exception
+    {
+        assertParses( "192.0.2.1", 192, 0, 2, 1 );
+        assertParses( "0.0.0.0", 0, 0, 0, 0 );
+        assertParses( "255.255.255.255", 255, 255, 255, 255 );
+        assertParses( "010.001.000.009", 10, 1, 0, 9 );
+    }
+
+    @Test
+    public void testIPv4IsInet4Address() throws Exception
+    {
+        assertTrue( InetAddressParser.parse( "192.0.2.1" ) instanceof Inet4Address );
+    }
+
+    @Test
+    public void testWhitespaceIsIgnored() throws Exception
+    {
+        assertParses( " 192.0.2.1\r\n", 192, 0, 2, 1 );
+        assertParses( "\t2001:db8::1\n", 0x20, 0x01, 0x0d, 0xb8, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1 );
+    }
+
+    @Test
+    public void testIPv4Invalid()
+    {
+        assertRejects( "256.0.0.1" );
+        assertRejects( "192.0.2" );
+        assertRejects( "192.0.2.1.5" );
+        assertRejects( "192.0.2." );
+        assertRejects( ".192.0.2" );
+        assertRejects( "192..2.1" );
+        assertRejects( "1921.0.2.1" );
+        assertRejects( "192.0.2.1x" );
+        assertRejects( "192.0.2.-1" );
+        assertRejects( "192.0.2.1:80" );
+        assertRejects( "192.0.2 .1" );
+    }
+
+    @Test
+    public void testIPv6() throws Exception
+    {
+        assertParses( "2001:db8:0:1234:0:567:8:1",
+                      0x20, 0x01, 0x0d, 0xb8, 0, 0, 0x12, 0x34, 0, 0, 0x05, 0x67, 0, 8, 0, 1 );
+        assertParses( "2001:DB8:0:0:0:0:0:FFFF", 0x20, 0x01, 0x0d, 0xb8, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0xff, 0xff );
+        assertParses( "0000:0000:0000:0000:0000:0000:0000:0001", 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1 );
+    }
+
+    @Test
+    public void testIPv6IsInet6Address() throws Exception
+    {
+        assertTrue( InetAddressParser.parse( "2001:db8::1" ) instanceof Inet6Address );
+    }
+
+    @Test
+    public void testIPv6Compression() throws Exception
+    {
+        assertParses( "::", 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0 );
+        assertParses( "::1", 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1 );
+        assertParses( "1::", 0, 1, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0 );
+        assertParses( "2001:db8::1", 0x20, 0x01, 0x0d, 0xb8, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1 );
+        assertParses( "1:2::7:8", 0, 1, 0, 2, 0, 0, 0, 0, 0, 0, 0, 0, 0, 7, 0, 8 );
+        assertParses( "1:2:3:4:5:6:7::", 0, 1, 0, 2, 0, 3, 0, 4, 0, 5, 0, 6, 0, 7, 0, 0 );
+        assertParses( "::2:3:4:5:6:7:8", 0, 0, 0, 2, 0, 3, 0, 4, 0, 5, 0, 6, 0, 7, 0, 8 );
+    }
+
+    @Test
+    public void testIPv6EmbeddedIPv4() throws Exception
+    {
+        assertParses( "::192.0.2.1", 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 192, 0, 2, 1 );
+        assertParses( "64:ff9b::192.0.2.1", 0, 0x64, 0xff, 0x9b, 0, 0, 0, 0, 0, 0, 0, 0, 192, 0, 2, 1 );
+        assertParses( "1:2:3:4:5:6:192.0.2.1", 0, 1, 0, 2, 0, 3, 0, 4, 0, 5, 0, 6, 192, 0, 2, 1 );
+    }
+
+    @Test
+    public void testIPv4MappedIPv6() throws Exception
+    {
+        // As with InetAddress, an IPv4-mapped IPv6 address yields the IPv4 address.
+        final InetAddress result = InetAddressParser.parse( "::ffff:192.0.2.1" );
+        assertTrue( result instanceof Inet4Address );
+        assertEquals( InetAddress.getByAddress( new byte[] { (byte) 192, 0, 2, 1 } ), result );
+    }
+
+    @Test
+    public void testIPv6Invalid()
+    {
+        assertRejects( ":" );
+        assertRejects( ":::" );
+        assertRejects( ":1" );
+        assertRejects( "1:" );
+        assertRejects( "1::2::3" );
+        assertRejects( "1:::2" );
+        assertRejects( "1:2:3:4:5:6:7" );
+        assertRejects( "1:2:3:4:5:6:7:8:9" );
+        assertRejects( "1:2:3:4::5:6:7:8" );
+        assertRejects( "12345::" );
+        assertRejects( "2001:db8::g" );
+        assertRejects( "::1.2.3" );
+        assertRejects( "::256.0.0.1" );
+        assertRejects( "1:2:3:4:5:6:7:192.0.2.1" );
+        assertRejects( "::192.0.2.1:1" );
+        assertRejects( "fe80::1%eth0" );
+        assertRejects( "[::1]" );
+    }
+
+    @Test
+    public void testNoLiteral()
+    {
+        assertRejects( "" );
+        assertRejects( " \r\n" );
+        assertRejects( "example.org" );
+        assertRejects( "localhost" );
+        assertRejects( "192.0.2.1 192.0.2.2" );
+        assertRejects( "\u00b9\u0b69\u0b68.0.2.1" ); // Digits, but not ASCII digits.
+    }
+
+    @Test( expected = ParseException.class )
+    public void testNull() throws Exception
+    {
+        InetAddressParser.parse( (CharSequence) null );
+    }
+
+    @Test
+    public void testBytesWithOffset() throws Exception
+    {
+        // Setup test fixture.
+        final byte[] content = "ip=192.0.2.1;".getBytes( StandardCharsets.US_ASCII );
+
+        // Execute system under test.
+        final InetAddress result = InetAddressParser.parse( content, 3, 9 );
+
+        // Verify results.
+        assertEquals( InetAddress.getByAddress( new byte[] { (byte) 192, 0, 2, 1 } ), result );
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2017 Guus der Kinderen. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package nl.goodbytes.network.utility.eip;
+
+import org.junit.Test;
+
+import java.net.InetAddress;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Verifies which addresses {@link LocalAddresses} considers to be globally routable, at the boundaries of each range
+ * that is excluded.
+ *
+ * @author Guus der Kinderen, guus@goodbytes.nl
+ */
+public class LocalAddressesTest
+{
+    /**
+     * Excluded IPv4 ranges: the first and last address of each, followed by the addresses just outside of it.
+     */
+    private static final String[][] IPV4_EXCLUDED = {
+        { "0.0.0.0", "0.255.255.255", null, "1.0.0.0" },                               // "this" network
+        { "10.0.0.0", "10.255.255.255", "9.255.255.255", "11.0.0.0" },                 // private
+        { "100.64.0.0", "100.127.255.255", "100.63.255.255", "100.128.0.0" },          // shared
+        { "127.0.0.0", "127.255.255.255", "126.255.255.255", "128.0.0.0" },            // loopback
+        { "169.254.0.0", "169.254.255.255", "169.253.255.255", "169.255.0.0" },        // link-local
+        { "172.16.0.0", "172.31.255.255", "172.15.255.255", "172.32.0.0" },            // private
+        { "192.0.0.0", "192.0.0.255", "191.255.255.255", "192.0.1.0" },                // protocol assignments
+        { "192.0.2.0", "192.0.2.255", "192.0.1.255", "192.0.3.0" },                    // documentation
+        { "192.88.99.0", "192.88.99.255", "192.88.98.255", "192.88.100.0" },           // 6to4 relay anycast
+        { "192.168.0.0", "192.168.255.255", "192.167.255.255", "192.169.0.0" },        // private
+        { "198.18.0.0", "198.19.255.255", "198.17.255.255", "198.20.0.0" },            // benchmarking
+        { "198.51.100.0", "198.51.100.255", "198.51.99.255", "198.51.101.0" },         // documentation
+        { "203.0.113.0", "203.0.113.255", "203.0.112.255", "203.0.114.0" },            // documentation
+        { "224.0.0.0", "255.255.255.255", "223.255.255.255", null },                   // multicast, reserved
+    };
+
+    /**
+     * Excluded IPv6 ranges: the first and last address of each, followed by the addresses just outside of it.
+     */
+    private static final String[][] IPV6_EXCLUDED = {
+        { "::", "1fff:ffff:ffff:ffff:ffff:ffff:ffff:ffff", null, "2000::" },           // below global unicast
+        { "2001::", "2001:0:ffff:ffff:ffff:ffff:ffff:ffff",                            // Teredo
+            "2000:ffff:ffff:ffff:ffff:ffff:ffff:ffff", "2001:1::" },
+        { "2001:db8::", "2001:db8:ffff:ffff:ffff:ffff:ffff:ffff",                      // documentation
+            "2001:db7:ffff:ffff:ffff:ffff:ffff:ffff", "2001:db9::" },
+        { "4000::", "ffff:ffff:ffff:ffff:ffff:ffff:ffff:ffff",                         // above global unicast
+            "3fff:ffff:ffff:ffff:ffff:ffff:ffff:ffff", null },
+    };
+
+    @Test
+    public void testIPv4Boundaries() throws Exception
+    {
+        verify( IPV4_EXCLUDED );
+    }
+
+    @Test
+    public void testIPv6Boundaries() throws Exception
+    {
+        verify( IPV6_EXCLUDED );
+    }
+
+    @Test
+    public void testIPv6SpecialPurposeAddresses() throws Exception
+    {
+        assertNotRoutable( "::1" );         // loopback
+        assertNotRoutable( "fe80::1" );     // link-local
+        assertNotRoutable( "fc00::1" );     // unique local
+        assertNotRoutable( "ff02::1" );     // multicast
+        assertRoutable( "2a00:1450::1" );   // global unicast
+    }
+
+    private static void verify( String[][] ranges ) throws Exception
+    {
+        for ( final String[] range : ranges )
+        {
+            assertNotRoutable( range[ 0 ] );
+            assertNotRoutable( range[ 1 ] );
+            if ( range[ 2 ] != null )
+            {
+                assertRoutable( range[ 2 ] );
+            }
+            if ( range[ 3 ] != null )
+            {
+                assertRoutable( range[ 3 ] );
+            }
+        }
+    }
+
+    private static void assertRoutable( String address ) throws Exception
+    {
+        assertTrue( address, LocalAddresses.isGloballyRoutable( InetAddress.getByName( address ) ) );
+    }
+
+    private static void assertNotRoutable( String address ) throws Exception
+    {
+        assertFalse( address, LocalAddresses.isGloballyRoutable( InetAddress.getByName( address ) ) );
+    }
+}
@@ -0,0 +1,305 @@
+/*
+ * Copyright (c) 2017 Guus der Kinderen. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package nl.goodbytes.network.utility.eip;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.URI;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Verifies that {@link PersistentCache} restores what it stored, and ignores files that it cannot interpret.
+ *
+ * @author Guus der Kinderen, guus@goodbytes.nl
+ */
+public class PersistentCacheTest
+{
+    /**
+     * The offset of the version in the file (after the magic number).
+     */
+    private static final int VERSION_OFFSET = 4;
+
+    /**
+     * The offset of the length of the address in the file (after the magic number, version and timestamp).
+     */
+    private static final int ADDRESS_LENGTH_OFFSET = 13;
+
+    private Path directory;
+    private Path file;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        directory = Files.createTempDirectory( "persistent-cache" );
+        file = directory.resolve( "address.cache" );
+    }
+
+    @After
+    public void tearDown() throws Exception
+    {
+        delete( directory );
+    }
+
+    private static void delete( Path path ) throws IOException
+    {
+        if ( Files.isDirectory( path ) )
+        {
+            try ( final DirectoryStream<Path> children = Files.newDirectoryStream( path ) )
+            {
+                for ( final Path child : children )
+                {
+                    delete( child );
+                }
+            }
+        }
+        Files.deleteIfExists( path );
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception
+    {
+        // Setup test fixture.
+        final PersistentCache cache = new PersistentCache( file );
+        final Resolution resolution = new Resolution( InetAddress.getByName( "192.0.2.1" ), 1234567890123L, "test" );
+
+        // Execute system under test.
+        cache.write( resolution );
+        final Resolution result = new PersistentCache( file ).read();
+
+        // Verify results.
+        assertEquals( resolution.getAddress(), result.getAddress() );
+        assertEquals( resolution.getTimestamp(), result.getTimestamp() );
+        assertEquals( resolution.getSource(), result.getSource() );
+    }
+
+    @Test
+    public void testRoundTripIPv6() throws Exception
+    {
+        // Setup test fixture.
+        final PersistentCache cache = new PersistentCache( file );
+        final Resolution resolution = new Resolution( InetAddress.getByName( "2001:db8::1" ), 42, "source \u00e9" );
+
+        // Execute system under test.
+        cache.write( resolution );
+        final Resolution result = cache.read();
+
+        // Verify results.
+        assertEquals( resolution.getAddress(), result.getAddress() );
+        assertEquals( 16, result.getAddress().getAddress().length );
+        assertEquals( resolution.getTimestamp(), result.getTimestamp() );
+        assertEquals( resolution.getSource(), result.getSource() );
+    }
+
+    @Test
+    public void testWriteReplacesPreviousValueWithoutLeavingTemporaryFiles() throws Exception
+    {
+        // Setup test fixture.
+        final PersistentCache cache = new PersistentCache( file );
+        cache.write( new Resolution( InetAddress.getByName( "192.0.2.1" ), 1, "first" ) );
+
+        // Execute system under test.
+        cache.write( new Resolution( InetAddress.getByName( "192.0.2.2" ), 2, "second" ) );
+
+        // Verify results.
+        assertEquals( InetAddress.getByName( "192.0.2.2" ), cache.read().getAddress() );
+        try ( final DirectoryStream<Path> children = Files.newDirectoryStream( directory ) )
+        {
+            int count = 0;
+            for ( final Path ignored : children )
+            {
+                count++;
+            }
+            assertEquals( 1, count );
+        }
+    }
+
+    @Test
+    public void testFallsBackWhenAtomicMoveCannotReplace() throws Exception
+    {
+        // Setup test fixture. (The zip file system does not replace existing files when moving atomically.)
+        final Path zip = directory.resolve( "cache.zip" );
+        final URI uri = URI.create( "jar:" + zip.toUri() );
+        final Map<String, String> environment = Collections.singletonMap( "create", "true" );
+        try ( final FileSystem zipFileSystem = FileSystems.newFileSystem( uri, environment ) )
+        {
+            final PersistentCache cache = new PersistentCache( zipFileSystem.getPath( "/address.cache" ) );
+            cache.write( new Resolution( InetAddress.getByName( "192.0.2.1" ), 1, "first" ) );
+
+            // Execute system under test.
+            cache.write( new Resolution( InetAddress.getByName( "192.0.2.2" ), 2, "second" ) );
+
+            // Verify results.
+            assertEquals( InetAddress.getByName( "192.0.2.2" ), cache.read().getAddress() );
+        }
+    }
+
+    @Test
+    public void testMissingFileIsIgnored() throws Exception
+    {
+        // Execute system under test.
+        final Resolution result = new PersistentCache( file ).read();
+
+        // Verify results.
+        assertNull( result );
+    }
+
+    @Test
+    public void testDirectoryIsIgnored() throws Exception
+    {
+        // Setup test fixture.
+        Files.createDirectory( file );
+
+        // Execute system under test.
+        final Resolution result = new PersistentCache( file ).read();
+
+        // Verify results.
+        assertNull( result );
+    }
+
+    @Test
+    public void testWrongMagicIsIgnored() throws Exception
+    {
+        // Setup test fixture.
+        final byte[] content = validContent();
+        content[ 0 ] ^= (byte) 0xFF;
+        Files.write( file, content );
+
+        // Execute system under test.
+        final Resolution result = new PersistentCache( file ).read();
+
+        // Verify results.
+        assertNull( result );
+    }
+
+    @Test
+    public void testWrongVersionIsIgnored() throws Exception
+    {
+        // Setup test fixture.
+        final byte[] content = validContent();
+        content[ VERSION_OFFSET ]++;
+        Files.write( file, content );
+
+        // Execute system under test.
+        final Resolution result = new PersistentCache( file ).read();
+
+        // Verify results.
+        assertNull( result );
+    }
+
+    @Test
+    public void testTruncatedFileIsIgnored() throws Exception
+    {
+        final byte[] content = validContent();
+        for ( int length = 0; length < content.length; length++ )
+        {
+            // Setup test fixture.
+            Files.write( file, Arrays.copyOf( content, length ) );
+
+            // Execute system under test.
+            final Resolution result = new PersistentCache( file ).read();
+
+            // Verify results.
+            assertNull( "Truncated to " + length + " bytes", result );
+        }
+    }
+
+    @Test
+    public void testInvalidAddressLengthIsIgnored() throws Exception
+    {
+        // Setup test fixture.
+        final byte[] content = validContent();
+        content[ ADDRESS_LENGTH_OFFSET ] = 3;
+        Files.write( file, content );
+
+        // Execute system under test.
+        final Resolution result = new PersistentCache( file ).read();
+
+        // Verify results.
+        assertNull( result );
+    }
+
+    @Test
+    public void testMalformedSourceIsIgnored() throws Exception
+    {
+        // Setup test fixture. (0xFF does not occur in modified UTF-8.)
+        final byte[] content = validContent();
+        content[ content.length - 1 ] = (byte) 0xFF;
+        Files.write( file, content );
+
+        // Execute system under test.
+        final Resolution result = new PersistentCache( file ).read();
+
+        // Verify results.
+        assertNull( result );
+    }
+
+    @Test
+    public void testForeignFileIsIgnored() throws Exception
+    {
+        // Setup test fixture.
+        final byte[] content = new byte[ 4096 ];
+        Arrays.fill( content, (byte) 'x' );
+        Files.write( file, content );
+
+        // Execute system under test.
+        final Resolution result = new PersistentCache( file ).read();
+
+        // Verify results.
+        assertNull( result );
+    }
+
+    @Test
+    public void testUnwritableLocationIsIgnored() throws Exception
+    {
+        // Setup test fixture. (A regular file cannot be the parent directory of the cache file.)
+        Files.createFile( file );
+        final PersistentCache cache = new PersistentCache( file.resolve( "address.cache" ) );
+
+        // Execute system under test.
+        cache.write( new Resolution( InetAddress.getByName( "192.0.2.1" ), 1, "test" ) );
+
+        // Verify results.
+        assertNull( cache.read() );
+    }
+
+    /**
+     * Returns the content of a file to which a valid value was written.
+     */
+    private byte[] validContent() throws Exception
+    {
+        new PersistentCache( file ).write( new Resolution( InetAddress.getByName( "192.0.2.1" ), 1, "test" ) );
+        final byte[] content = Files.readAllBytes( file );
+        assertNotNull( new PersistentCache( file ).read() );
+        return content;
+    }
+}
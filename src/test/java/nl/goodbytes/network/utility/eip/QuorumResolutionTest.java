@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2017 Guus der Kinderen. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package nl.goodbytes.network.utility.eip;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Verifies the resolution of an IP address by {@link ResolverService} in {@link ResolutionMode#QUORUM} mode, using
+ * service providers that do not make network requests.
+ *
+ * @author Guus der Kinderen, guus@goodbytes.nl
+ */
+public class QuorumResolutionTest
+{
+    private final List<StubResolver> resolvers = new ArrayList<>();
+    private final List<InetAddress> agreements = new CopyOnWriteArrayList<>();
+    private final List<List<Resolution>> disagreements = new CopyOnWriteArrayList<>();
+    private ResolverService service;
+
+    @After
+    public void tearDown()
+    {
+        for ( final StubResolver resolver : resolvers )
+        {
+            resolver.release();
+        }
+        if ( service != null )
+        {
+            service.close();
+        }
+    }
+
+    /**
+     * Creates a service that requires two out of the provided resolvers to agree, invoking all of them concurrently.
+     */
+    private ResolverService createService( StubResolver... stubs )
+    {
+        final ResolverServiceBuilder builder = ResolverService.builder()
+            .resolutionMode( ResolutionMode.QUORUM )
+            .providerOrdering( ProviderOrdering.AS_CONFIGURED )
+            .defaultRateLimit( RateLimit.NONE )
+            .maximumFanOut( stubs.length )
+            .quorum( 2 );
+        for ( final StubResolver stub : stubs )
+        {
+            resolvers.add( stub );
+            builder.addResolver( stub );
+        }
+        final ResolverService result = builder.build();
+        result.addQuorumListener( new QuorumListener()
+        {
+            @Override
+            public void disagreementDetected( List<Resolution> responses, InetAddress agreed )
+            {
+                disagreements.add( responses );
+                agreements.add( agreed );
+            }
+        } );
+        return result;
+    }
+
+    @Test( timeout = 10000 )
+    public void testAgreementIsReturned() throws Exception
+    {
+        // Setup test fixture.
+        service = createService( new StubResolver( "192.0.2.1" ),
+                                 new StubResolver( "192.0.2.1" ),
+                                 new StubResolver( "192.0.2.1" ) );
+
+        // Execute system under test.
+        final InetAddress result = service.resolve( 0, TimeUnit.MILLISECONDS );
+
+        // Verify results.
+        assertEquals( InetAddress.getByName( "192.0.2.1" ), result );
+        assertEquals( InetAddress.getByName( "192.0.2.1" ), service.getCachedResolution().getAddress() );
+        assertTrue( disagreements.isEmpty() );
+    }
+
+    @Test( timeout = 10000 )
+    public void testDissenterIsReportedToListener() throws Exception
+    {
+        // Setup test fixture.
+        service = createService( new StubResolver( "192.0.2.1" ),
+                                 new StubResolver( "192.0.2.2" ),
+                                 new StubResolver( "192.0.2.1" ).delay( 200 ) );
+
+        // Execute system under test.
+        final InetAddress result = service.resolve( 0, TimeUnit.MILLISECONDS );
+
+        // Verify results.
+        assertEquals( InetAddress.getByName( "192.0.2.1" ), result );
+        assertEquals( 1, disagreements.size() );
+        assertEquals( InetAddress.getByName( "192.0.2.1" ), agreements.get( 0 ) );
+
+        final List<InetAddress> reported = new ArrayList<>();
+        for ( final Resolution response : disagreements.get( 0 ) )
+        {
+            reported.add( response.getAddress() );
+        }
+        assertEquals( 3, reported.size() );
+        assertTrue( reported.contains( InetAddress.getByName( "192.0.2.2" ) ) );
+    }
+
+    @Test( timeout = 10000 )
+    public void testDisagreementWithoutQuorumKeepsCachedValue() throws Exception
+    {
+        // Setup test fixture.
+        service = createService( new StubResolver( "192.0.2.1" ), new StubResolver( "192.0.2.2" ) );
+        final Resolution cached = new Resolution( InetAddress.getByName( "192.0.2.9" ), 0, "test" );
+        service.update( cached );
+
+        // Execute system under test.
+        final InetAddress result = service.resolve( 0, TimeUnit.MILLISECONDS );
+
+        // Verify results.
+        assertEquals( cached.getAddress(), result );
+        assertEquals( cached.getAddress(), service.getCachedResolution().getAddress() );
+        assertEquals( 1, disagreements.size() );
+        assertNull( agreements.get( 0 ) );
+    }
+
+    @Test( timeout = 10000 )
+    public void testNoQuorumBeforeDeadlineKeepsCachedValue() throws Exception
+    {
+        // Setup test fixture.
+        final StubResolver slow = new StubResolver( "192.0.2.1" ).blocking();
+        service = createService( new StubResolver( "192.0.2.1" ), slow );
+        final Resolution cached = new Resolution( InetAddress.getByName( "192.0.2.9" ), 0, "test" );
+        service.update( cached );
+
+        // Execute system under test.
+        final InetAddress result = service.resolve( 0, TimeUnit.MILLISECONDS, 200, TimeUnit.MILLISECONDS );
+
+        // Verify results.
+        assertEquals( cached.getAddress(), result );
+        assertEquals( cached.getAddress(), service.getCachedResolution().getAddress() );
+        assertEquals( 1, slow.getInvocationCount() );
+        assertTrue( disagreements.isEmpty() );
+    }
+}
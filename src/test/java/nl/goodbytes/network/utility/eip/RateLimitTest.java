@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2017 Guus der Kinderen. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package nl.goodbytes.network.utility.eip;
+
+import nl.goodbytes.network.utility.eip.spi.RateLimitedResolver;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Verifies which {@link RateLimit} applies to a service provider of {@link ResolverService}: one configured for the
+ * provider takes precedence over the one that the provider defines itself, which takes precedence over one configured
+ * for its class, which takes precedence over the default.
+ *
+ * @author Guus der Kinderen, guus@goodbytes.nl
+ */
+public class RateLimitTest
+{
+    private static final RateLimit DEFAULT = RateLimit.of( 1, 1, TimeUnit.SECONDS );
+    private static final RateLimit PER_CLASS = RateLimit.of( 2, 1, TimeUnit.SECONDS );
+    private static final RateLimit DEFINED = RateLimit.of( 3, 1, TimeUnit.SECONDS );
+    private static final RateLimit PER_INSTANCE = RateLimit.of( 4, 1, TimeUnit.SECONDS );
+
+    private ResolverService service;
+
+    @After
+    public void tearDown()
+    {
+        if ( service != null )
+        {
+            service.close();
+        }
+    }
+
+    /**
+     * A service provider that defines its own rate limit.
+     */
+    private static class LimitedStubResolver extends StubResolver implements RateLimitedResolver
+    {
+        LimitedStubResolver()
+        {
+            super( "192.0.2.1" );
+        }
+
+        @Override
+        public RateLimit getRateLimit()
+        {
+            return DEFINED;
+        }
+    }
+
+    @Test
+    public void testDefaultApplies() throws Exception
+    {
+        // Setup test fixture.
+        final StubResolver resolver = new StubResolver( "192.0.2.1" );
+        service = ResolverService.builder().addResolver( resolver ).defaultRateLimit( DEFAULT ).build();
+
+        // Execute system under test.
+        final RateLimit result = service.getRateLimit( resolver );
+
+        // Verify results.
+        assertEquals( DEFAULT, result );
+    }
+
+    @Test
+    public void testPerClassOverridesDefault() throws Exception
+    {
+        // Setup test fixture.
+        final StubResolver resolver = new StubResolver( "192.0.2.1" );
+        service = ResolverService.builder()
+            .addResolver( resolver )
+            .defaultRateLimit( DEFAULT )
+            .rateLimit( StubResolver.class, PER_CLASS )
+            .build();
+
+        // Execute system under test.
+        final RateLimit result = service.getRateLimit( resolver );
+
+        // Verify results.
+        assertEquals( PER_CLASS, result );
+    }
+
+    @Test
+    public void testDefinedByProviderOverridesPerClass() throws Exception
+    {
+        // Setup test fixture.
+        final LimitedStubResolver resolver = new LimitedStubResolver();
+        service = ResolverService.builder()
+            .addResolver( resolver )
+            .defaultRateLimit( DEFAULT )
+            .rateLimit( LimitedStubResolver.class, PER_CLASS )
+            .build();
+
+        // Execute system under test.
+        final RateLimit result = service.getRateLimit( resolver );
+
+        // Verify results.
+        assertEquals( DEFINED, result );
+    }
+
+    @Test
+    public void testPerInstanceOverridesAll() throws Exception
+    {
+        // Setup test fixture.
+        final LimitedStubResolver resolver = new LimitedStubResolver();
+        service = ResolverService.builder()
+            .addResolver( resolver )
+            .defaultRateLimit( DEFAULT )
+            .rateLimit( LimitedStubResolver.class, PER_CLASS )
+            .rateLimit( resolver, PER_INSTANCE )
+            .build();
+
+        // Execute system under test.
+        final RateLimit result = service.getRateLimit( resolver );
+
+        // Verify results.
+        assertEquals( PER_INSTANCE, result );
+    }
+
+    @Test
+    public void testRemovingOverrideRestoresPrecedence() throws Exception
+    {
+        // Setup test fixture.
+        final StubResolver resolver = new StubResolver( "192.0.2.1" );
+        service = ResolverService.builder()
+            .addResolver( resolver )
+            .defaultRateLimit( DEFAULT )
+            .rateLimit( StubResolver.class, PER_CLASS )
+            .rateLimit( resolver, PER_INSTANCE )
+            .build();
+
+        // Execute system under test.
+        service.setRateLimit( resolver, null );
+        final RateLimit afterInstance = service.getRateLimit( resolver );
+        service.setRateLimit( StubResolver.class, null );
+        final RateLimit afterClass = service.getRateLimit( resolver );
+
+        // Verify results.
+        assertEquals( PER_CLASS, afterInstance );
+        assertEquals( DEFAULT, afterClass );
+    }
+
+    @Test( timeout = 10000 )
+    public void testRateLimitIsEnforced() throws Exception
+    {
+        // Setup test fixture.
+        final StubResolver resolver = new StubResolver( "192.0.2.1" );
+        service = ResolverService.builder()
+            .addResolver( resolver )
+            .defaultRateLimit( RateLimit.NONE )
+            .rateLimit( resolver, RateLimit.of( 1, 1, TimeUnit.HOURS ) )
+            .build();
+
+        // Execute system under test.
+        service.resolve( 0, TimeUnit.MILLISECONDS );
+        service.resolve( 0, TimeUnit.MILLISECONDS );
+
+        // Verify results.
+        assertEquals( 1, resolver.getInvocationCount() );
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2017 Guus der Kinderen. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package nl.goodbytes.network.utility.eip;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Verifies the lifecycle of {@link ResolverService} instances.
+ *
+ * @author Guus der Kinderen, guus@goodbytes.nl
+ */
+public class ResolverServiceTest
+{
+    private StubResolver resolver;
+    private ExecutorService provided;
+
+    @Before
+    public void setUp()
+    {
+        resolver = new StubResolver( "192.0.2.1" );
+        provided = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    public void tearDown()
+    {
+        provided.shutdownNow();
+    }
+
+    @Test
+    public void testClosedServiceDoesNotInvokeProviders() throws Exception
+    {
+        // Setup test fixture.
+        final ResolverService service = ResolverService.builder().addResolver( resolver ).build();
+
+        // Execute system under test.
+        service.close();
+        final InetAddress result = service.resolve( 0, TimeUnit.MILLISECONDS );
+
+        // Verify results.
+        assertNull( result );
+        assertEquals( 0, resolver.getInvocationCount() );
+        assertTrue( service.isClosed() );
+    }
+
+    @Test
+    public void testClosedServiceReturnsCachedValue() throws Exception
+    {
+        // Setup test fixture.
+        final ResolverService service = ResolverService.builder().addResolver( resolver ).build();
+        final InetAddress cached = service.resolve( 0, TimeUnit.MILLISECONDS );
+
+        // Execute system under test.
+        service.close();
+        final InetAddress result = service.resolve( 0, TimeUnit.MILLISECONDS );
+
+        // Verify results.
+        assertEquals( InetAddress.getByName( "192.0.2.1" ), cached );
+        assertEquals( cached, result );
+        assertEquals( 1, resolver.getInvocationCount() );
+    }
+
+    @Test
+    public void testCloseShutsDownOwnExecutor() throws Exception
+    {
+        // Setup test fixture.
+        final ResolverService service = ResolverService.builder().addResolver( resolver ).build();
+
+        // Execute system under test.
+        service.close();
+
+        // Verify results.
+        assertTrue( ( (ExecutorService) service.getExecutor() ).isShutdown() );
+    }
+
+    @Test
+    public void testCloseDoesNotShutDownProvidedExecutor() throws Exception
+    {
+        // Setup test fixture.
+        final ResolverService service = ResolverService.builder().addResolver( resolver ).executor( provided ).build();
+
+        // Execute system under test.
+        service.close();
+
+        // Verify results.
+        assertFalse( provided.isShutdown() );
+    }
+
+    @Test
+    public void testCloseRemovesAddressChangeListeners() throws Exception
+    {
+        // Setup test fixture.
+        // A provider that fails cannot cause a change to be notified before the service is closed.
+        final ResolverService service = ResolverService.builder().addResolver( StubResolver.failing() ).build();
+        final boolean[] notified = { false };
+        service.addAddressChangeListener( new AddressChangeListener()
+        {
+            @Override
+            public void addressChanged( Resolution previous, Resolution current )
+            {
+                notified[ 0 ] = true;
+            }
+        } );
+
+        // Execute system under test.
+        service.close();
+        service.update( new Resolution( InetAddress.getByName( "192.0.2.2" ), System.currentTimeMillis(), "test" ) );
+
+        // Verify results.
+        assertFalse( notified[ 0 ] );
+    }
+
+    @Test
+    public void testCloseIsIdempotent() throws Exception
+    {
+        // Setup test fixture.
+        final ResolverService service = ResolverService.builder().addResolver( resolver ).build();
+
+        // Execute system under test.
+        service.close();
+        service.close();
+
+        // Verify results.
+        assertTrue( service.isClosed() );
+    }
+
+    @Test( expected = IllegalStateException.class )
+    public void testAddListenerToClosedServiceIsRejected() throws Exception
+    {
+        // Setup test fixture.
+        final ResolverService service = ResolverService.builder().addResolver( resolver ).build();
+        service.close();
+
+        // Execute system under test.
+        service.addAddressChangeListener( new AddressChangeListener()
+        {
+            @Override
+            public void addressChanged( Resolution previous, Resolution current )
+            {
+            }
+        } );
+    }
+
+    @Test( expected = IllegalStateException.class )
+    public void testBackgroundRefreshOfClosedServiceIsRejected() throws Exception
+    {
+        // Setup test fixture.
+        final ResolverService service = ResolverService.builder().addResolver( resolver ).build();
+        service.close();
+
+        // Execute system under test.
+        service.startBackgroundRefresh( 1, TimeUnit.MINUTES );
+    }
+}
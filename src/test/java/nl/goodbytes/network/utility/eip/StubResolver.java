@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) 2017 Guus der Kinderen. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.goodbytes.network.utility.eip;
+
+import nl.goodbytes.network.utility.eip.spi.Resolver;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A service provider that is used in tests in place of one that makes network requests. It reports a fixed address,
+ * or fails, optionally after a delay or after being released explicitly. It counts its invocations, and records
+ * whether an invocation was interrupted (which is how the service cancels an invocation).
+ *
+ * @author Guus der Kinderen, guus@goodbytes.nl
+ */
+public class StubResolver implements Resolver
+{
+    private final InetAddress address;
+    private final AtomicInteger invocations = new AtomicInteger();
+    private final CountDownLatch invoked = new CountDownLatch( 1 );
+    private final CountDownLatch interrupted = new CountDownLatch( 1 );
+    private volatile long delay;
+    private volatile CountDownLatch release;
+
+    /**
+     * Creates an instance that reports the provided address.
+     *
+     * @param address The address to report, or null to fail every invocation.
+     */
+    public StubResolver( String address )
+    {
+        try
+        {
+            this.address = address == null ? null : InetAddress.getByName( address );
+        }
+        catch ( UnknownHostException e )
+        {
+            throw new IllegalArgumentException( "Argument 'address' must be an IP address literal.", e );
+        }
+    }
+
+    /**
+     * Creates an instance that fails every invocation.
+     *
+     * @return A new instance (never null).
+     */
+    public static StubResolver failing()
+    {
+        return new StubResolver( null );
+    }
+
+    /**
+     * Delays every invocation by the provided duration.
+     *
+     * @param millis The delay, in milliseconds.
+     * @return This instance.
+     */
+    public StubResolver delay( long millis )
+    {
+        this.delay = millis;
+        return this;
+    }
+
+    /**
+     * Blocks every invocation until {@link #release()} is invoked, the invocation times out, or the invoking thread is
+     * interrupted.
+     *
+     * @return This instance.
+     */
+    public StubResolver blocking()
+    {
+        this.release = new CountDownLatch( 1 );
+        return this;
+    }
+
+    /**
+     * Lets all blocked invocations, and all future invocations, proceed.
+     */
+    public void release()
+    {
+        final CountDownLatch latch = release;
+        if ( latch != null )
+        {
+            latch.countDown();
+        }
+    }
+
+    /**
+     * Returns the number of times that this instance was invoked.
+     *
+     * @return An invocation count, zero or positive.
+     */
+    public int getInvocationCount()
+    {
+        return invocations.get();
+    }
+
+    /**
+     * Waits until this instance has been invoked at least once.
+     *
+     * @param timeout  The maximum duration to wait.
+     * @param timeUnit The unit in which timeout is expressed (cannot be null).
+     * @return true if this instance was invoked, otherwise false.
+     * @throws InterruptedException When interrupted while waiting.
+     */
+    public boolean awaitInvocation( long timeout, TimeUnit timeUnit ) throws InterruptedException
+    {
+        return invoked.await( timeout, timeUnit );
+    }
+
+    /**
+     * Waits until an invocation of this instance has been interrupted.
+     *
+     * @param timeout  The maximum duration to wait.
+     * @param timeUnit The unit in which timeout is expressed (cannot be null).
+     * @return true if an invocation was interrupted, otherwise false.
+     * @throws InterruptedException When interrupted while waiting.
+     */
+    public boolean awaitInterruption( long timeout, TimeUnit timeUnit ) throws InterruptedException
+    {
+        return interrupted.await( timeout, timeUnit );
+    }
+
+    @Override
+    public InetAddress resolveAddress() throws IOException
+    {
+        return resolveAddress( 30, TimeUnit.SECONDS );
+    }
+
+    @Override
+    public InetAddress resolveAddress( long timeout, TimeUnit timeUnit ) throws IOException
+    {
+        invocations.incrementAndGet();
+        invoked.countDown();
+        try
+        {
+            if ( delay > 0 )
+            {
+                Thread.sleep( delay );
+            }
+            final CountDownLatch latch = release;
+            if ( latch != null && !latch.await( timeout, timeUnit ) )
+            {
+                throw new IOException( "Stub was not released within the timeout." );
+            }
+        }
+        catch ( InterruptedException e )
+        {
+            interrupted.countDown();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException( "Stub was interrupted." );
+        }
+
+        if ( address == null )
+        {
+            throw new IOException( "Stub failure." );
+        }
+        return address;
+    }
+
+    @Override
+    public long getSuccessfulExecutionCount()
+    {
+        return 0;
+    }
+
+    @Override
+    public long getAverageDuration()
+    {
+        return 0;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "StubResolver{" + address + '}';
+    }
+}
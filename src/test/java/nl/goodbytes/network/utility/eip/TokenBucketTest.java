@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2017 Guus der Kinderen. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package nl.goodbytes.network.utility.eip;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Verifies that {@link TokenBucket} permits no more invocations than its rate limit allows.
+ *
+ * @author Guus der Kinderen, guus@goodbytes.nl
+ */
+public class TokenBucketTest
+{
+    @Test
+    public void testUnlimitedAlwaysPermits() throws Exception
+    {
+        // Setup test fixture.
+        final TokenBucket bucket = new TokenBucket();
+
+        // Execute system under test.
+        for ( int i = 0; i < 1000; i++ )
+        {
+            assertTrue( bucket.tryAcquire( RateLimit.NONE ) );
+        }
+
+        // Verify results.
+        assertEquals( 0, bucket.getRejectionCount() );
+    }
+
+    @Test
+    public void testRejectsWhenEmpty() throws Exception
+    {
+        // Setup test fixture.
+        final TokenBucket bucket = new TokenBucket();
+        final RateLimit limit = RateLimit.of( 3, 1, TimeUnit.HOURS );
+
+        // Execute system under test.
+        final boolean first = bucket.tryAcquire( limit );
+        final boolean second = bucket.tryAcquire( limit );
+        final boolean third = bucket.tryAcquire( limit );
+        final boolean fourth = bucket.tryAcquire( limit );
+
+        // Verify results.
+        assertTrue( first );
+        assertTrue( second );
+        assertTrue( third );
+        assertFalse( fourth );
+        assertEquals( 1, bucket.getRejectionCount() );
+    }
+
+    @Test
+    public void testRefillsOverTime() throws Exception
+    {
+        // Setup test fixture.
+        final TokenBucket bucket = new TokenBucket();
+        final RateLimit limit = RateLimit.of( 1, 50, TimeUnit.MILLISECONDS );
+        assertTrue( bucket.tryAcquire( limit ) );
+        assertFalse( bucket.tryAcquire( limit ) );
+
+        // Execute system under test.
+        Thread.sleep( 100 );
+        final boolean refilled = bucket.tryAcquire( limit );
+        final boolean exceeded = bucket.tryAcquire( limit );
+
+        // Verify results. (No more than the capacity of the bucket is refilled, however long the wait.)
+        assertTrue( refilled );
+        assertFalse( exceeded );
+    }
+
+    @Test
+    public void testRefundedTokenCanBeTakenAgain() throws Exception
+    {
+        // Setup test fixture.
+        final TokenBucket bucket = new TokenBucket();
+        final RateLimit limit = RateLimit.of( 1, 1, TimeUnit.HOURS );
+        assertTrue( bucket.tryAcquire( limit ) );
+
+        // Execute system under test.
+        bucket.refund( limit );
+
+        // Verify results.
+        assertTrue( bucket.tryAcquire( limit ) );
+        assertFalse( bucket.tryAcquire( limit ) );
+    }
+
+    @Test
+    public void testRefundDoesNotExceedCapacity() throws Exception
+    {
+        // Setup test fixture.
+        final TokenBucket bucket = new TokenBucket();
+        final RateLimit limit = RateLimit.of( 2, 1, TimeUnit.HOURS );
+
+        // Execute system under test.
+        bucket.refund( limit );
+        bucket.refund( limit );
+        bucket.refund( limit );
+
+        // Verify results.
+        assertTrue( bucket.tryAcquire( limit ) );
+        assertTrue( bucket.tryAcquire( limit ) );
+        assertFalse( bucket.tryAcquire( limit ) );
+    }
+
+    @Test( timeout = 10000 )
+    public void testConcurrentCallersTakeNoMoreThanCapacity() throws Exception
+    {
+        // Setup test fixture.
+        final int threads = 8;
+        final int attempts = 100;
+        final RateLimit limit = RateLimit.of( 250, 1, TimeUnit.HOURS );
+        final TokenBucket bucket = new TokenBucket();
+        final CountDownLatch start = new CountDownLatch( 1 );
+        final ExecutorService executor = Executors.newFixedThreadPool( threads );
+        try
+        {
+            final List<Future<Integer>> results = new ArrayList<>();
+            for ( int i = 0; i < threads; i++ )
+            {
+                results.add( executor.submit( new Callable<Integer>()
+                {
+                    @Override
+                    public Integer call() throws Exception
+                    {
+                        start.await();
+                        int acquired = 0;
+                        for ( int j = 0; j < attempts; j++ )
+                        {
+                            if ( bucket.tryAcquire( limit ) )
+                            {
+                                acquired++;
+                            }
+                        }
+                        return acquired;
+                    }
+                } ) );
+            }
+
+            // Execute system under test.
+            start.countDown();
+            int acquired = 0;
+            for ( final Future<Integer> result : results )
+            {
+                acquired += result.get();
+            }
+
+            // Verify results.
+            assertEquals( 250, acquired );
+            assertEquals( threads * attempts - 250, bucket.getRejectionCount() );
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,284 @@
+/*
+ * Copyright (c) 2017 Guus der Kinderen. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.goodbytes.network.utility.eip.impl;
+
+import nl.goodbytes.network.utility.eip.AddressFamily;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Verifies the implementation of HTTP/1.1 in {@link KeepAliveHttpTransport}, using a local stand-in for a web service.
+ *
+ * @author Guus der Kinderen, guus@goodbytes.nl
+ */
+public class KeepAliveHttpTransportTest
+{
+    private static final int TIMEOUT = 5000;
+
+    private ScriptedHttpServer server;
+    private RecordingTransport fallback;
+    private KeepAliveHttpTransport transport;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        server = new ScriptedHttpServer();
+        fallback = new RecordingTransport();
+        transport = new KeepAliveHttpTransport( fallback );
+    }
+
+    @After
+    public void tearDown() throws Exception
+    {
+        server.close();
+    }
+
+    private byte[] get( URL url ) throws IOException
+    {
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos( TIMEOUT );
+        return transport.get( url, null, TIMEOUT, TIMEOUT, deadline );
+    }
+
+    private static String text( byte[] body )
+    {
+        return new String( body, StandardCharsets.US_ASCII );
+    }
+
+    @Test
+    public void testContentLength() throws Exception
+    {
+        // Setup test fixture.
+        server.respond( "HTTP/1.1 200 OK\r\nContent-Type: text/plain\r\nContent-Length: 9\r\n\r\n192.0.2.1" );
+
+        // Execute system under test.
+        final byte[] result = get( server.url( "/ip" ) );
+
+        // Verify results.
+        assertEquals( "192.0.2.1", text( result ) );
+        assertEquals( "GET /ip HTTP/1.1", server.getRequests().get( 0 ) );
+    }
+
+    @Test
+    public void testChunked() throws Exception
+    {
+        // Setup test fixture.
+        server.respond( "HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\n\r\n"
+                            + "4;name=value\r\n192.\r\n"
+                            + "5\r\n0.2.1\r\n"
+                            + "0\r\nX-Trailer: ignored\r\n\r\n" );
+        server.respond( "HTTP/1.1 200 OK\r\nContent-Length: 9\r\n\r\n192.0.2.2" );
+
+        // Execute system under test.
+        final byte[] first = get( server.url( "/" ) );
+        final byte[] second = get( server.url( "/" ) );
+
+        // Verify results.
+        assertEquals( "192.0.2.1", text( first ) );
+        assertEquals( "The trailer should have been consumed, leaving the connection usable.",
+                      "192.0.2.2", text( second ) );
+        assertEquals( 1, server.getConnectionCount() );
+    }
+
+    @Test
+    public void testReadToEnd() throws Exception
+    {
+        // Setup test fixture.
+        server.respondAndClose( "HTTP/1.1 200 OK\r\n\r\n192.0.2.1" );
+        server.respond( "HTTP/1.1 200 OK\r\nContent-Length: 9\r\n\r\n192.0.2.2" );
+
+        // Execute system under test.
+        final byte[] first = get( server.url( "/" ) );
+        final byte[] second = get( server.url( "/" ) );
+
+        // Verify results.
+        assertEquals( "192.0.2.1", text( first ) );
+        assertEquals( "192.0.2.2", text( second ) );
+        assertEquals( 2, server.getConnectionCount() );
+    }
+
+    @Test
+    public void testReusesConnection() throws Exception
+    {
+        // Setup test fixture.
+        server.respond( "HTTP/1.1 200 OK\r\nContent-Length: 9\r\n\r\n192.0.2.1" );
+        server.respond( "HTTP/1.1 200 OK\r\nContent-Length: 9\r\n\r\n192.0.2.2" );
+
+        // Execute system under test.
+        get( server.url( "/" ) );
+        final byte[] result = get( server.url( "/" ) );
+
+        // Verify results.
+        assertEquals( "192.0.2.2", text( result ) );
+        assertEquals( 1, server.getConnectionCount() );
+        assertEquals( 2, server.getRequests().size() );
+    }
+
+    @Test
+    public void testConnectionCloseIsNotReused() throws Exception
+    {
+        // Setup test fixture.
+        server.respond( "HTTP/1.1 200 OK\r\nConnection: close\r\nContent-Length: 9\r\n\r\n192.0.2.1" );
+        server.respond( "HTTP/1.1 200 OK\r\nContent-Length: 9\r\n\r\n192.0.2.2" );
+
+        // Execute system under test.
+        get( server.url( "/" ) );
+        final byte[] result = get( server.url( "/" ) );
+
+        // Verify results.
+        assertEquals( "192.0.2.2", text( result ) );
+        assertEquals( 2, server.getConnectionCount() );
+    }
+
+    @Test
+    public void testStalePooledConnectionIsRetried() throws Exception
+    {
+        // Setup test fixture: the web service closes the connection without announcing it.
+        server.respondAndClose( "HTTP/1.1 200 OK\r\nContent-Length: 9\r\n\r\n192.0.2.1" );
+        server.respond( "HTTP/1.1 200 OK\r\nContent-Length: 9\r\n\r\n192.0.2.2" );
+        get( server.url( "/" ) );
+        Thread.sleep( 100 ); // Let the close arrive.
+
+        // Execute system under test.
+        final byte[] result = get( server.url( "/" ) );
+
+        // Verify results.
+        assertEquals( "192.0.2.2", text( result ) );
+        assertEquals( 2, server.getConnectionCount() );
+    }
+
+    @Test
+    public void testRedirectIsDelegated() throws Exception
+    {
+        // Setup test fixture.
+        server.respond( "HTTP/1.1 302 Found\r\nLocation: /elsewhere\r\nContent-Length: 0\r\n\r\n" );
+
+        // Execute system under test.
+        final byte[] result = get( server.url( "/ip" ) );
+
+        // Verify results.
+        assertEquals( RecordingTransport.RESPONSE, text( result ) );
+        assertEquals( 1, fallback.urls.size() );
+        assertEquals( server.url( "/elsewhere" ), fallback.urls.get( 0 ) );
+    }
+
+    @Test( expected = IOException.class )
+    public void testRedirectWithFamilyIsRejected() throws Exception
+    {
+        // Setup test fixture.
+        server.respond( "HTTP/1.1 301 Moved Permanently\r\nLocation: http://example.org/\r\n"
+                            + "Content-Length: 0\r\n\r\n" );
+
+        // Execute system under test.
+        transport.get( server.url( "/" ), AddressFamily.IPV4, TIMEOUT, TIMEOUT,
+                       System.nanoTime() + TimeUnit.MILLISECONDS.toNanos( TIMEOUT ) );
+    }
+
+    @Test( expected = IOException.class )
+    public void testErrorStatus() throws Exception
+    {
+        // Setup test fixture.
+        server.respond( "HTTP/1.1 500 Internal Server Error\r\nContent-Length: 5\r\n\r\nerror" );
+
+        // Execute system under test.
+        get( server.url( "/" ) );
+    }
+
+    @Test( expected = IOException.class )
+    public void testOversizedBody() throws Exception
+    {
+        // Setup test fixture.
+        server.respond( "HTTP/1.1 200 OK\r\nContent-Length: " + ( HttpTransport.MAXIMUM_BODY_SIZE + 1 ) + "\r\n\r\n" );
+
+        // Execute system under test.
+        get( server.url( "/" ) );
+    }
+
+    @Test( expected = IOException.class )
+    public void testOversizedChunkedBody() throws Exception
+    {
+        // Setup test fixture.
+        server.respond( "HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\n\r\n"
+                            + Integer.toHexString( HttpTransport.MAXIMUM_BODY_SIZE + 1 ) + "\r\n" );
+
+        // Execute system under test.
+        get( server.url( "/" ) );
+    }
+
+    @Test( timeout = 3000 )
+    public void testDeadline() throws Exception
+    {
+        // Setup test fixture.
+        server.stall();
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos( 300 );
+
+        // Execute system under test.
+        try
+        {
+            transport.get( server.url( "/" ), null, TIMEOUT, TIMEOUT, deadline );
+            throw new AssertionError( "A response was returned, while none was sent." );
+        }
+        catch ( SocketTimeoutException e )
+        {
+            // Verify results.
+            assertTrue( System.nanoTime() - deadline < TimeUnit.MILLISECONDS.toNanos( 1000 ) );
+        }
+    }
+
+    @Test
+    public void testHttpsIsDelegated() throws Exception
+    {
+        // Setup test fixture.
+        final URL url = new URL( "https://example.org/" );
+
+        // Execute system under test.
+        final byte[] result = get( url );
+
+        // Verify results.
+        assertEquals( RecordingTransport.RESPONSE, text( result ) );
+        assertEquals( url, fallback.urls.get( 0 ) );
+        assertEquals( 0, server.getConnectionCount() );
+    }
+
+    /**
+     * A transport that records the URLs that it is asked to request, without requesting them.
+     */
+    private static final class RecordingTransport implements HttpTransport
+    {
+        static final String RESPONSE = "198.51.100.1";
+
+        final List<URL> urls = new ArrayList<>();
+
+        @Override
+        public byte[] get( URL url, AddressFamily family, int connectTimeout, int readTimeout, long deadline )
+        {
+            urls.add( url );
+            return RESPONSE.getBytes( StandardCharsets.US_ASCII );
+        }
+    }
+}
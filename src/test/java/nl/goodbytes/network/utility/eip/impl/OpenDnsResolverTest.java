@@ -0,0 +1,264 @@
+/*
+ * Copyright (c) 2017 Guus der Kinderen. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.goodbytes.network.utility.eip.impl;
+
+import nl.goodbytes.network.utility.eip.AddressFamily;
+import nl.goodbytes.network.utility.eip.ParseException;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.net.InetAddress;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Verifies the DNS exchange of {@link OpenDnsResolver}, using a local stand-in for a DNS server.
+ *
+ * @author Guus der Kinderen, guus@goodbytes.nl
+ */
+public class OpenDnsResolverTest
+{
+    private static final int TYPE_A = 1;
+    private static final int TYPE_CNAME = 5;
+    private static final int TYPE_AAAA = 28;
+
+    private ScriptedDatagramServer server;
+
+    @After
+    public void tearDown()
+    {
+        if ( server != null )
+        {
+            server.close();
+        }
+    }
+
+    private OpenDnsResolver start( ScriptedDatagramServer.Responder responder ) throws Exception
+    {
+        server = new ScriptedDatagramServer( InetAddress.getByName( "127.0.0.1" ), responder );
+        return new OpenDnsResolver( server.getHost(), server.getPort() );
+    }
+
+    /**
+     * Creates a response to a query, that repeats the question of the query and holds the provided answers.
+     */
+    private static byte[] response( byte[] request, int flags, byte[]... answers )
+    {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write( request, 0, 2 ); // The ID.
+        writeShort( out, flags );
+        writeShort( out, 1 );
+        writeShort( out, answers.length );
+        writeShort( out, 0 );
+        writeShort( out, 0 );
+        out.write( request, 12, request.length - 12 ); // The question.
+        for ( final byte[] answer : answers )
+        {
+            out.write( answer, 0, answer.length );
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Creates a resource record for the name of the question, which is referenced using compression.
+     */
+    private static byte[] answer( int type, byte[] data )
+    {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeShort( out, 0xC00C ); // A pointer to the name in the question.
+        writeShort( out, type );
+        writeShort( out, 1 ); // IN
+        writeShort( out, 0 ); // TTL
+        writeShort( out, 60 );
+        writeShort( out, data.length );
+        out.write( data, 0, data.length );
+        return out.toByteArray();
+    }
+
+    private static void writeShort( ByteArrayOutputStream out, int value )
+    {
+        out.write( value >>> 8 );
+        out.write( value );
+    }
+
+    private static int readShort( byte[] buffer, int offset )
+    {
+        return ( ( buffer[ offset ] & 0xFF ) << 8 ) | ( buffer[ offset + 1 ] & 0xFF );
+    }
+
+    @Test
+    public void testRequestIPv4() throws Exception
+    {
+        // Setup test fixture.
+        final OpenDnsResolver resolver = new OpenDnsResolver( "127.0.0.1", 53 );
+
+        // Execute system under test.
+        final byte[] request = resolver.createRequest( AddressFamily.IPV4 );
+
+        // Verify results.
+        assertEquals( 1, readShort( request, 4 ) ); // One question
+        assertEquals( 12 + 18 + 4, request.length ); // for the 18 byte encoding of 'myip.opendns.com',
+        assertEquals( TYPE_A, readShort( request, request.length - 4 ) ); // type A,
+        assertEquals( 1, readShort( request, request.length - 2 ) ); // class IN.
+    }
+
+    @Test
+    public void testRequestIPv6() throws Exception
+    {
+        // Setup test fixture.
+        final OpenDnsResolver resolver = new OpenDnsResolver( "127.0.0.1", 53 );
+
+        // Execute system under test.
+        final byte[] request = resolver.createRequest( AddressFamily.IPV6 );
+
+        // Verify results.
+        assertEquals( TYPE_AAAA, readShort( request, request.length - 4 ) );
+    }
+
+    @Test
+    public void testAnswerA() throws Exception
+    {
+        // Setup test fixture.
+        final InetAddress expected = InetAddress.getByName( "192.0.2.1" );
+        final OpenDnsResolver resolver = start( new ScriptedDatagramServer.Responder()
+        {
+            @Override
+            public byte[] respond( byte[] request, int index )
+            {
+                return response( request, 0x8180, answer( TYPE_A, expected.getAddress() ) );
+            }
+        } );
+
+        // Execute system under test.
+        final InetAddress result = resolver.resolveAddress( 5, TimeUnit.SECONDS );
+
+        // Verify results.
+        assertEquals( expected, result );
+        assertEquals( 1, resolver.getLatencyHistogram().getSuccessCount() );
+    }
+
+    @Test
+    public void testAnswerAAAA() throws Exception
+    {
+        // Setup test fixture.
+        final InetAddress expected = InetAddress.getByName( "2001:db8::1" );
+        final OpenDnsResolver resolver = new OpenDnsResolver( "::1", 53 );
+        final byte[] request = resolver.createRequest( AddressFamily.IPV6 );
+        final byte[] response = response( request, 0x8180, answer( TYPE_AAAA, expected.getAddress() ) );
+
+        // Execute system under test.
+        final InetAddress result = resolver.parse( request, response, response.length );
+
+        // Verify results.
+        assertEquals( expected, result );
+    }
+
+    @Test
+    public void testOtherRecordsAreSkipped() throws Exception
+    {
+        // Setup test fixture: a CNAME record, with an uncompressed name, and a record of the type that was not queried.
+        final InetAddress expected = InetAddress.getByName( "192.0.2.1" );
+        final byte[] cname = { 4, 'm', 'y', 'i', 'p', 7, 'e', 'x', 'a', 'm', 'p', 'l', 'e', 0 };
+        final OpenDnsResolver resolver = start( new ScriptedDatagramServer.Responder()
+        {
+            @Override
+            public byte[] respond( byte[] request, int index )
+            {
+                return response( request, 0x8180, answer( TYPE_CNAME, cname ),
+                                 answer( TYPE_AAAA, new byte[ 16 ] ), answer( TYPE_A, expected.getAddress() ) );
+            }
+        } );
+
+        // Execute system under test.
+        final InetAddress result = resolver.resolveAddress( 5, TimeUnit.SECONDS );
+
+        // Verify results.
+        assertEquals( expected, result );
+    }
+
+    @Test
+    public void testUnrelatedResponseIsIgnored() throws Exception
+    {
+        // Setup test fixture.
+        final OpenDnsResolver resolver = new OpenDnsResolver( "127.0.0.1", 53 );
+        final byte[] request = resolver.createRequest( AddressFamily.IPV4 );
+        final byte[] response = response( request, 0x8180, answer( TYPE_A, new byte[] { (byte) 192, 0, 2, 1 } ) );
+        response[ 1 ] ^= 0x01; // Alter the ID.
+
+        // Execute system under test.
+        final InetAddress result = resolver.parse( request, response, response.length );
+
+        // Verify results.
+        assertNull( result );
+    }
+
+    @Test( expected = ParseException.class )
+    public void testErrorCode() throws Exception
+    {
+        // Setup test fixture.
+        final OpenDnsResolver resolver = start( new ScriptedDatagramServer.Responder()
+        {
+            @Override
+            public byte[] respond( byte[] request, int index )
+            {
+                return response( request, 0x8183 ); // NXDOMAIN
+            }
+        } );
+
+        // Execute system under test.
+        resolver.resolveAddress( 5, TimeUnit.SECONDS );
+    }
+
+    @Test( expected = ParseException.class )
+    public void testTruncated() throws Exception
+    {
+        // Setup test fixture.
+        final OpenDnsResolver resolver = new OpenDnsResolver( "127.0.0.1", 53 );
+        final byte[] request = resolver.createRequest( AddressFamily.IPV4 );
+        final byte[] response = response( request, 0x8380 );
+
+        // Execute system under test.
+        resolver.parse( request, response, response.length );
+    }
+
+    @Test( expected = ParseException.class )
+    public void testNoAnswer() throws Exception
+    {
+        // Setup test fixture.
+        final OpenDnsResolver resolver = new OpenDnsResolver( "127.0.0.1", 53 );
+        final byte[] request = resolver.createRequest( AddressFamily.IPV4 );
+        final byte[] response = response( request, 0x8180 );
+
+        // Execute system under test.
+        resolver.parse( request, response, response.length );
+    }
+
+    @Test( expected = ParseException.class )
+    public void testMalformedAnswer() throws Exception
+    {
+        // Setup test fixture.
+        final OpenDnsResolver resolver = new OpenDnsResolver( "127.0.0.1", 53 );
+        final byte[] request = resolver.createRequest( AddressFamily.IPV4 );
+        final byte[] response = response( request, 0x8180, answer( TYPE_A, new byte[] { (byte) 192, 0, 2, 1 } ) );
+
+        // Execute system under test.
+        resolver.parse( request, response, response.length - 2 ); // The record data exceeds the message.
+    }
+}
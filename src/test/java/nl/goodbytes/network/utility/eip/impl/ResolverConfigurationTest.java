@@ -0,0 +1,298 @@
+/*
+ * Copyright (c) 2017 Guus der Kinderen. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package nl.goodbytes.network.utility.eip.impl;
+
+import nl.goodbytes.network.utility.eip.RateLimit;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Verifies the creation of service providers from a declarative configuration by {@link ResolverConfiguration}.
+ *
+ * @author Guus der Kinderen, guus@goodbytes.nl
+ */
+public class ResolverConfigurationTest
+{
+    private static Properties properties( String... lines ) throws Exception
+    {
+        final StringBuilder text = new StringBuilder();
+        for ( final String line : lines )
+        {
+            text.append( line ).append( '\n' );
+        }
+        final Properties result = new Properties();
+        result.load( new StringReader( text.toString() ) );
+        return result;
+    }
+
+    /**
+     * Asserts that a configuration is rejected with a message that contains the provided text.
+     */
+    private static void assertRejects( String expected, String... lines ) throws Exception
+    {
+        final Properties properties = properties( lines );
+        try
+        {
+            ResolverConfiguration.load( properties );
+            fail( "Configuration " + Arrays.toString( lines ) + " should have been rejected." );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            assertTrue( "Unexpected message: " + e.getMessage(), e.getMessage().contains( expected ) );
+        }
+    }
+
+    @Test
+    public void testMinimalDefinition() throws Exception
+    {
+        // Setup test fixture.
+        final Properties properties = properties( "resolver.office.url = http://ip.example.com/" );
+
+        // Execute system under test.
+        final List<ConfiguredResolver> result = ResolverConfiguration.load( properties );
+
+        // Verify results.
+        assertEquals( 1, result.size() );
+        final ConfiguredResolver resolver = result.get( 0 );
+        assertEquals( new URL( "http://ip.example.com/" ), resolver.getServiceAddress() );
+        assertEquals( ResponseFormat.PLAIN, resolver.getResponseFormat() );
+        assertEquals( 1, resolver.getWeight(), 0 );
+        assertNull( resolver.getRateLimit() );
+    }
+
+    @Test
+    public void testCompleteDefinition() throws Exception
+    {
+        // Setup test fixture.
+        final Properties properties = properties( "resolver.dc.url = https://ip.example.com/api",
+                                                  "resolver.dc.format = json",
+                                                  "resolver.dc.field = address",
+                                                  "resolver.dc.timeout = 500",
+                                                  "resolver.dc.weight = 2.5",
+                                                  "resolver.dc.rateLimit = 60/minute" );
+
+        // Execute system under test.
+        final ConfiguredResolver resolver = ResolverConfiguration.load( properties ).get( 0 );
+
+        // Verify results.
+        assertEquals( "json(address)", resolver.getResponseFormat().toString() );
+        assertEquals( 500, resolver.getConnectTimeout( TimeUnit.MILLISECONDS ) );
+        assertEquals( 500, resolver.getReadTimeout( TimeUnit.MILLISECONDS ) );
+        assertEquals( 2.5, resolver.getWeight(), 0 );
+        assertEquals( RateLimit.of( 60, 1, TimeUnit.MINUTES ), resolver.getRateLimit() );
+    }
+
+    @Test
+    public void testRegexDefinition() throws Exception
+    {
+        // Setup test fixture.
+        final Properties properties = properties( "resolver.html.url = http://ip.example.com/",
+                                                  "resolver.html.format = REGEX",
+                                                  "resolver.html.pattern = Address: (\\\\S+)" );
+
+        // Execute system under test.
+        final ConfiguredResolver resolver = ResolverConfiguration.load( properties ).get( 0 );
+
+        // Verify results.
+        assertEquals( "regex(Address: (\\S+))", resolver.getResponseFormat().toString() );
+    }
+
+    @Test
+    public void testRateLimits() throws Exception
+    {
+        // Setup test fixture.
+        final Properties properties = properties( "resolver.a.url = http://a.example.com/",
+                                                  "resolver.a.rateLimit = none",
+                                                  "resolver.b.url = http://b.example.com/",
+                                                  "resolver.b.rateLimit = 1 / Second",
+                                                  "resolver.c.url = http://c.example.com/",
+                                                  "resolver.c.rateLimit = 10/hour",
+                                                  "resolver.d.url = http://d.example.com/",
+                                                  "resolver.d.rateLimit = 100/day" );
+
+        // Execute system under test.
+        final List<ConfiguredResolver> result = ResolverConfiguration.load( properties );
+
+        // Verify results.
+        assertEquals( RateLimit.NONE, result.get( 0 ).getRateLimit() );
+        assertEquals( RateLimit.of( 1, 1, TimeUnit.SECONDS ), result.get( 1 ).getRateLimit() );
+        assertEquals( RateLimit.of( 10, 1, TimeUnit.HOURS ), result.get( 2 ).getRateLimit() );
+        assertEquals( RateLimit.of( 100, 1, TimeUnit.DAYS ), result.get( 3 ).getRateLimit() );
+    }
+
+    @Test
+    public void testResolversAreOrderedByIdentifier() throws Exception
+    {
+        // Setup test fixture.
+        final Properties properties = properties( "resolver.zulu.url = http://z.example.com/",
+                                                  "resolver.alpha.url = http://a.example.com/",
+                                                  "resolver.mike.url = http://m.example.com/" );
+
+        // Execute system under test.
+        final List<ConfiguredResolver> result = ResolverConfiguration.load( properties );
+
+        // Verify results.
+        assertEquals( "a.example.com", result.get( 0 ).getServiceAddress().getHost() );
+        assertEquals( "m.example.com", result.get( 1 ).getServiceAddress().getHost() );
+        assertEquals( "z.example.com", result.get( 2 ).getServiceAddress().getHost() );
+    }
+
+    @Test
+    public void testEmptyConfiguration() throws Exception
+    {
+        assertTrue( ResolverConfiguration.load( new Properties() ).isEmpty() );
+    }
+
+    @Test
+    public void testLoadFromFile() throws Exception
+    {
+        // Setup test fixture.
+        final Path file = Files.createTempFile( "resolvers", ".properties" );
+        try
+        {
+            final String content = "resolver.office.url = http://ip.example.com/\n";
+            Files.write( file, content.getBytes( StandardCharsets.ISO_8859_1 ) );
+
+            // Execute system under test.
+            final List<ConfiguredResolver> result = ResolverConfiguration.load( file );
+
+            // Verify results.
+            assertEquals( 1, result.size() );
+        }
+        finally
+        {
+            Files.delete( file );
+        }
+    }
+
+    @Test
+    public void testMissingUrl() throws Exception
+    {
+        assertRejects( "property 'url' is missing", "resolver.office.timeout = 500" );
+    }
+
+    @Test
+    public void testInvalidUrl() throws Exception
+    {
+        assertRejects( "not a valid URL", "resolver.office.url = not a url" );
+    }
+
+    @Test
+    public void testMissingField() throws Exception
+    {
+        assertRejects( "property 'field' is required",
+                       "resolver.dc.url = http://ip.example.com/", "resolver.dc.format = json" );
+    }
+
+    @Test
+    public void testMissingPattern() throws Exception
+    {
+        assertRejects( "property 'pattern' is required",
+                       "resolver.dc.url = http://ip.example.com/", "resolver.dc.format = regex" );
+    }
+
+    @Test
+    public void testInvalidPattern() throws Exception
+    {
+        assertRejects( "not a valid regular expression",
+                       "resolver.dc.url = http://ip.example.com/", "resolver.dc.format = regex",
+                       "resolver.dc.pattern = (unbalanced" );
+    }
+
+    @Test
+    public void testUnknownFormat() throws Exception
+    {
+        assertRejects( "unknown format 'xml'", "resolver.dc.url = http://ip.example.com/", "resolver.dc.format = xml" );
+    }
+
+    @Test
+    public void testPropertiesThatDoNotApplyToFormat() throws Exception
+    {
+        assertRejects( "property 'field' only applies to format 'json'",
+                       "resolver.dc.url = http://ip.example.com/", "resolver.dc.field = ip" );
+        assertRejects( "property 'pattern' only applies to format 'regex'",
+                       "resolver.dc.url = http://ip.example.com/", "resolver.dc.format = plain",
+                       "resolver.dc.pattern = (.*)" );
+        assertRejects( "property 'pattern' only applies to format 'regex'",
+                       "resolver.dc.url = http://ip.example.com/", "resolver.dc.format = json",
+                       "resolver.dc.field = ip", "resolver.dc.pattern = (.*)" );
+        assertRejects( "property 'field' only applies to format 'json'",
+                       "resolver.dc.url = http://ip.example.com/", "resolver.dc.format = regex",
+                       "resolver.dc.pattern = (.*)", "resolver.dc.field = ip" );
+    }
+
+    @Test
+    public void testUnknownProperties() throws Exception
+    {
+        assertRejects( "unknown property 'timout'",
+                       "resolver.office.url = http://ip.example.com/", "resolver.office.timout = 500" );
+        assertRejects( "Unknown property 'office.url'", "office.url = http://ip.example.com/" );
+        assertRejects( "Unknown property 'resolver.url'", "resolver.url = http://ip.example.com/" );
+    }
+
+    @Test
+    public void testInvalidTimeout() throws Exception
+    {
+        assertRejects( "at least one millisecond",
+                       "resolver.office.url = http://ip.example.com/", "resolver.office.timeout = 0" );
+        assertRejects( "not a whole number",
+                       "resolver.office.url = http://ip.example.com/", "resolver.office.timeout = 1.5" );
+        assertRejects( "not a whole number",
+                       "resolver.office.url = http://ip.example.com/", "resolver.office.timeout = soon" );
+    }
+
+    @Test
+    public void testInvalidWeight() throws Exception
+    {
+        for ( final String weight : new String[] { "0", "-1", "Infinity", "NaN" } )
+        {
+            assertRejects( "must be a positive number",
+                           "resolver.office.url = http://ip.example.com/", "resolver.office.weight = " + weight );
+        }
+        assertRejects( "is not a number",
+                       "resolver.office.url = http://ip.example.com/", "resolver.office.weight = heavy" );
+    }
+
+    @Test
+    public void testInvalidRateLimit() throws Exception
+    {
+        for ( final String rateLimit : new String[] { "60", "60/fortnight", "60/", "/minute" } )
+        {
+            assertRejects( "property 'rateLimit' is not",
+                           "resolver.office.url = http://ip.example.com/", "resolver.office.rateLimit = " + rateLimit );
+        }
+        assertRejects( "must allow at least one invocation",
+                       "resolver.office.url = http://ip.example.com/", "resolver.office.rateLimit = 0/minute" );
+        assertRejects( "not a whole number",
+                       "resolver.office.url = http://ip.example.com/", "resolver.office.rateLimit = many/minute" );
+    }
+}
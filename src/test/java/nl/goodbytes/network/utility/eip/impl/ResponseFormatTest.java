@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2017 Guus der Kinderen. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package nl.goodbytes.network.utility.eip.impl;
+
+import nl.goodbytes.network.utility.eip.ParseException;
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Verifies the extraction of IP addresses from web service responses by {@link ResponseFormat}.
+ *
+ * @author Guus der Kinderen, guus@goodbytes.nl
+ */
+public class ResponseFormatTest
+{
+    private static InetAddress parse( ResponseFormat format, String response ) throws ParseException
+    {
+        return format.parse( response.getBytes( StandardCharsets.UTF_8 ) );
+    }
+
+    private static void assertRejects( ResponseFormat format, String response )
+    {
+        try
+        {
+            parse( format, response );
+            fail( "Response '" + response + "' should not be accepted by format " + format + "." );
+        }
+        catch ( ParseException e )
+        {
+            // Expected.
+        }
+    }
+
+    @Test
+    public void testPlain() throws Exception
+    {
+        assertEquals( InetAddress.getByName( "192.0.2.1" ), parse( ResponseFormat.PLAIN, "192.0.2.1" ) );
+        assertEquals( InetAddress.getByName( "192.0.2.1" ), parse( ResponseFormat.PLAIN, " 192.0.2.1\n" ) );
+        assertEquals( InetAddress.getByName( "2001:db8::1" ), parse( ResponseFormat.PLAIN, "2001:db8::1\r\n" ) );
+    }
+
+    @Test
+    public void testPlainRejectsOtherContent() throws Exception
+    {
+        assertRejects( ResponseFormat.PLAIN, "" );
+        assertRejects( ResponseFormat.PLAIN, "<html>192.0.2.1</html>" );
+        assertRejects( ResponseFormat.PLAIN, "{\"ip\":\"192.0.2.1\"}" );
+    }
+
+    @Test
+    public void testJsonField() throws Exception
+    {
+        // Setup test fixture.
+        final ResponseFormat format = ResponseFormat.jsonField( "ip" );
+
+        // Execute system under test & verify results.
+        assertEquals( InetAddress.getByName( "192.0.2.1" ), parse( format, "{\"ip\":\"192.0.2.1\"}" ) );
+        assertEquals( InetAddress.getByName( "192.0.2.1" ), parse( format, "{ \"ip\" : \"192.0.2.1\" }" ) );
+        assertEquals( InetAddress.getByName( "2001:db8::1" ),
+                      parse( format, "{\"country\":\"NL\",\n  \"ip\":\"2001:db8::1\"}" ) );
+    }
+
+    @Test
+    public void testJsonFieldIgnoresOtherFields() throws Exception
+    {
+        // Setup test fixture.
+        final ResponseFormat format = ResponseFormat.jsonField( "ip" );
+
+        // Execute system under test.
+        final InetAddress result = parse( format, "{\"client_ip\":\"192.0.2.9\",\"ip\":\"192.0.2.1\"}" );
+
+        // Verify results.
+        assertEquals( InetAddress.getByName( "192.0.2.1" ), result );
+    }
+
+    @Test
+    public void testJsonFieldIgnoresNameInsideStringValue() throws Exception
+    {
+        // Setup test fixture.
+        final ResponseFormat format = ResponseFormat.jsonField( "ip" );
+
+        // Execute system under test.
+        final String response = "{\"note\":\"{\\\"ip\\\":\\\"192.0.2.9\\\"}\",\"ip\":\"192.0.2.1\"}";
+        final InetAddress result = parse( format, response );
+
+        // Verify results.
+        assertEquals( InetAddress.getByName( "192.0.2.1" ), result );
+    }
+
+    @Test
+    public void testJsonFieldUsesFirstMatchAtAnyDepth() throws Exception
+    {
+        // Setup test fixture.
+        final ResponseFormat format = ResponseFormat.jsonField( "ip" );
+
+        // Execute system under test.
+        final InetAddress result = parse( format, "{\"proxy\":{\"ip\":\"192.0.2.9\"},\"ip\":\"192.0.2.1\"}" );
+
+        // Verify results: a documented limitation.
+        assertEquals( InetAddress.getByName( "192.0.2.9" ), result );
+    }
+
+    @Test
+    public void testJsonFieldRejectsUnsupportedValues() throws Exception
+    {
+        // Setup test fixture.
+        final ResponseFormat format = ResponseFormat.jsonField( "ip" );
+
+        // Execute system under test & verify results.
+        assertRejects( format, "{\"address\":\"192.0.2.1\"}" );
+        assertRejects( format, "{\"ip\":3221225985}" );
+        assertRejects( format, "{\"ip\":[\"192.0.2.1\"]}" );
+        assertRejects( format, "{\"ip\":\"192.0.2.1\\\"\"}" );
+        assertRejects( format, "{\"ip\":\"not an address\"}" );
+    }
+
+    @Test( expected = IllegalArgumentException.class )
+    public void testJsonFieldRequiresName() throws Exception
+    {
+        ResponseFormat.jsonField( "" );
+    }
+
+    @Test
+    public void testJsonFieldNameIsLiteral() throws Exception
+    {
+        // Setup test fixture.
+        final ResponseFormat format = ResponseFormat.jsonField( "a.b" );
+
+        // Execute system under test & verify results.
+        assertRejects( format, "{\"axb\":\"192.0.2.1\"}" );
+        assertEquals( InetAddress.getByName( "192.0.2.1" ), parse( format, "{\"a.b\":\"192.0.2.1\"}" ) );
+    }
+
+    @Test
+    public void testRegexWithCapturingGroup() throws Exception
+    {
+        // Setup test fixture.
+        final ResponseFormat format = ResponseFormat.regex( "Current IP Address: ([0-9a-f.:]+)" );
+
+        // Execute system under test.
+        final InetAddress result = parse( format, "<html><body>Current IP Address: 192.0.2.1</body></html>" );
+
+        // Verify results.
+        assertEquals( InetAddress.getByName( "192.0.2.1" ), result );
+    }
+
+    @Test
+    public void testRegexWithoutCapturingGroup() throws Exception
+    {
+        // Setup test fixture.
+        final ResponseFormat format = ResponseFormat.regex( "\\d+\\.\\d+\\.\\d+\\.\\d+" );
+
+        // Execute system under test.
+        final InetAddress result = parse( format, "Your address is 192.0.2.1, probably." );
+
+        // Verify results.
+        assertEquals( InetAddress.getByName( "192.0.2.1" ), result );
+    }
+
+    @Test
+    public void testRegexRejectsResponseWithoutMatch() throws Exception
+    {
+        // Setup test fixture.
+        final ResponseFormat format = ResponseFormat.regex( "IP: (\\S+)" );
+
+        // Execute system under test & verify results.
+        assertRejects( format, "Nothing to see here." );
+        assertRejects( format, "IP: unknown" );
+    }
+
+    @Test( expected = IllegalArgumentException.class )
+    public void testRegexRejectsInvalidExpression() throws Exception
+    {
+        ResponseFormat.regex( "(unbalanced" );
+    }
+}
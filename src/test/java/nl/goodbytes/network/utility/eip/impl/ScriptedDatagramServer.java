@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2017 Guus der Kinderen. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.goodbytes.network.utility.eip.impl;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * A local stand-in for an external entity that is queried over UDP, that answers each datagram with the response that
+ * is produced by a {@link Responder}.
+ *
+ * @author Guus der Kinderen, guus@goodbytes.nl
+ */
+final class ScriptedDatagramServer implements Closeable
+{
+    /**
+     * Produces the response to a request.
+     */
+    interface Responder
+    {
+        /**
+         * Produces the response to a request.
+         *
+         * @param request The request (never null).
+         * @param index   The index of the request, counting all requests that were received, starting at zero.
+         * @return The response, or null to leave the request unanswered.
+         */
+        byte[] respond( byte[] request, int index );
+    }
+
+    private final DatagramSocket socket;
+    private final List<byte[]> requests = new CopyOnWriteArrayList<>();
+
+    /**
+     * Starts a new server on a free port of a local address.
+     *
+     * @param address   The local address on which to receive datagrams (cannot be null).
+     * @param responder Produces the responses (cannot be null).
+     * @throws IOException When the server cannot be started.
+     */
+    ScriptedDatagramServer( InetAddress address, final Responder responder ) throws IOException
+    {
+        socket = new DatagramSocket( new InetSocketAddress( address, 0 ) );
+        final Thread thread = new Thread( new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                final byte[] buffer = new byte[ 1500 ];
+                while ( !socket.isClosed() )
+                {
+                    try
+                    {
+                        final DatagramPacket packet = new DatagramPacket( buffer, buffer.length );
+                        socket.receive( packet );
+                        final byte[] request = Arrays.copyOf( packet.getData(), packet.getLength() );
+                        requests.add( request );
+                        final byte[] response = responder.respond( request, requests.size() - 1 );
+                        if ( response != null )
+                        {
+                            socket.send( new DatagramPacket( response, response.length, packet.getSocketAddress() ) );
+                        }
+                    }
+                    catch ( IOException e )
+                    {
+                        // Closed.
+                    }
+                }
+            }
+        }, "scripted-datagram-server" );
+        thread.setDaemon( true );
+        thread.start();
+    }
+
+    /**
+     * Returns the host on which this server receives datagrams.
+     *
+     * @return An IP address literal (never null).
+     */
+    String getHost()
+    {
+        return socket.getLocalAddress().getHostAddress();
+    }
+
+    /**
+     * Returns the port on which this server receives datagrams.
+     *
+     * @return A UDP port.
+     */
+    int getPort()
+    {
+        return socket.getLocalPort();
+    }
+
+    /**
+     * Returns every request that was received, in order of receipt.
+     *
+     * @return Requests (never null).
+     */
+    List<byte[]> getRequests()
+    {
+        return requests;
+    }
+
+    @Override
+    public void close()
+    {
+        socket.close();
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright (c) 2017 Guus der Kinderen. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.goodbytes.network.utility.eip.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.MalformedURLException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A local stand-in for a web server, that answers each request with the next of a series of scripted responses. The
+ * responses are written verbatim, which allows the framing of responses and the handling of connections to be
+ * controlled exactly.
+ *
+ * @author Guus der Kinderen, guus@goodbytes.nl
+ */
+final class ScriptedHttpServer implements Closeable
+{
+    private final ServerSocket serverSocket;
+    private final Queue<Scripted> script = new ConcurrentLinkedQueue<>();
+    private final List<String> requests = new CopyOnWriteArrayList<>();
+    private final AtomicInteger connections = new AtomicInteger();
+
+    /**
+     * Starts a new server on a free port of the loopback interface.
+     *
+     * @throws IOException When the server cannot be started.
+     */
+    ScriptedHttpServer() throws IOException
+    {
+        serverSocket = new ServerSocket();
+        serverSocket.bind( new InetSocketAddress( InetAddress.getLoopbackAddress(), 0 ) );
+        start( new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                while ( !serverSocket.isClosed() )
+                {
+                    try
+                    {
+                        final Socket client = serverSocket.accept();
+                        connections.incrementAndGet();
+                        start( new Runnable()
+                        {
+                            @Override
+                            public void run()
+                            {
+                                serve( client );
+                            }
+                        } );
+                    }
+                    catch ( IOException e )
+                    {
+                        // Closed.
+                    }
+                }
+            }
+        } );
+    }
+
+    private static void start( Runnable task )
+    {
+        final Thread thread = new Thread( task, "scripted-http-server" );
+        thread.setDaemon( true );
+        thread.start();
+    }
+
+    /**
+     * Adds a response to the script, after which the connection is kept open.
+     *
+     * @param response The response, including the status line and headers (cannot be null).
+     */
+    void respond( String response )
+    {
+        script.add( new Scripted( response, false ) );
+    }
+
+    /**
+     * Adds a response to the script, after which the connection is closed, without announcing that in the response.
+     *
+     * @param response The response, including the status line and headers (cannot be null).
+     */
+    void respondAndClose( String response )
+    {
+        script.add( new Scripted( response, true ) );
+    }
+
+    /**
+     * Adds a step to the script in which the request is not answered, while the connection is kept open.
+     */
+    void stall()
+    {
+        script.add( new Scripted( null, false ) );
+    }
+
+    /**
+     * Returns the URL of a resource on this server.
+     *
+     * @param path The path of the resource, starting with a slash (cannot be null).
+     * @return A URL (never null).
+     */
+    URL url( String path ) throws MalformedURLException
+    {
+        return new URL( "http", "127.0.0.1", serverSocket.getLocalPort(), path );
+    }
+
+    /**
+     * Returns the request line of every request that was received, in order of receipt.
+     *
+     * @return Request lines, such as 'GET / HTTP/1.1' (never null).
+     */
+    List<String> getRequests()
+    {
+        return requests;
+    }
+
+    /**
+     * Returns the number of connections that were accepted.
+     *
+     * @return A number of connections.
+     */
+    int getConnectionCount()
+    {
+        return connections.get();
+    }
+
+    private void serve( Socket client )
+    {
+        try ( final Socket socket = client )
+        {
+            final InputStream in = socket.getInputStream();
+            final OutputStream out = socket.getOutputStream();
+            String head;
+            while ( ( head = readHead( in ) ) != null )
+            {
+                requests.add( head.substring( 0, head.indexOf( "\r\n" ) ) );
+                final Scripted next = script.poll();
+                if ( next == null )
+                {
+                    return;
+                }
+                if ( next.response == null )
+                {
+                    while ( in.read() != -1 )
+                    {
+                        // Wait for the client to give up.
+                    }
+                    return;
+                }
+                out.write( next.response.getBytes( StandardCharsets.US_ASCII ) );
+                out.flush();
+                if ( next.close )
+                {
+                    return;
+                }
+            }
+        }
+        catch ( IOException e )
+        {
+            // The client went away.
+        }
+    }
+
+    /**
+     * Reads the request line and headers of a request.
+     *
+     * @return The head of the request, or null when the connection was closed.
+     */
+    private static String readHead( InputStream in ) throws IOException
+    {
+        final ByteArrayOutputStream head = new ByteArrayOutputStream();
+        int b;
+        while ( ( b = in.read() ) != -1 )
+        {
+            head.write( b );
+            final String text = new String( head.toByteArray(), StandardCharsets.US_ASCII );
+            if ( text.endsWith( "\r\n\r\n" ) )
+            {
+                return text;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        serverSocket.close();
+    }
+
+    private static final class Scripted
+    {
+        final String response;
+        final boolean close;
+
+        Scripted( String response, boolean close )
+        {
+            this.response = response;
+            this.close = close;
+        }
+    }
+}
@@ -0,0 +1,332 @@
+/*
+ * Copyright (c) 2017 Guus der Kinderen. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.goodbytes.network.utility.eip.impl;
+
+import nl.goodbytes.network.utility.eip.AddressFamily;
+import nl.goodbytes.network.utility.eip.ParseException;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.net.InetAddress;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Verifies the STUN Binding exchange of {@link StunResolver}, using a local stand-in for a STUN server.
+ *
+ * @author Guus der Kinderen, guus@goodbytes.nl
+ */
+public class StunResolverTest
+{
+    private static final int MAGIC_COOKIE = 0x2112A442;
+
+    private ScriptedDatagramServer server;
+
+    @After
+    public void tearDown()
+    {
+        if ( server != null )
+        {
+            server.close();
+        }
+    }
+
+    private StunResolver start( ScriptedDatagramServer.Responder responder ) throws Exception
+    {
+        server = new ScriptedDatagramServer( InetAddress.getByName( "127.0.0.1" ), responder );
+        return new StunResolver( server.getHost(), server.getPort() );
+    }
+
+    /**
+     * Creates a Binding success response to a request, holding the provided attributes.
+     */
+    private static byte[] response( byte[] request, int type, byte[]... attributes )
+    {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int length = 0;
+        for ( final byte[] attribute : attributes )
+        {
+            length += attribute.length;
+        }
+        writeShort( out, type );
+        writeShort( out, length );
+        out.write( request, 4, 16 ); // The magic cookie and the transaction ID.
+        for ( final byte[] attribute : attributes )
+        {
+            out.write( attribute, 0, attribute.length );
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Creates a (XOR-)MAPPED-ADDRESS attribute.
+     */
+    private static byte[] addressAttribute( byte[] request, InetAddress address, int port, boolean xor )
+    {
+        final byte[] value = address.getAddress();
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeShort( out, xor ? 0x0020 : 0x0001 );
+        writeShort( out, 4 + value.length );
+        out.write( 0 );
+        out.write( value.length == 4 ? 0x01 : 0x02 );
+        writeShort( out, xor ? port ^ ( MAGIC_COOKIE >>> 16 ) : port );
+        for ( int i = 0; i < value.length; i++ )
+        {
+            // XOR-ed with the magic cookie, followed by the transaction ID.
+            out.write( xor ? value[ i ] ^ request[ 4 + i ] : value[ i ] );
+        }
+        return out.toByteArray();
+    }
+
+    private static void writeShort( ByteArrayOutputStream out, int value )
+    {
+        out.write( value >>> 8 );
+        out.write( value );
+    }
+
+    @Test
+    public void testRequest() throws Exception
+    {
+        // Setup test fixture.
+        final StunResolver resolver = new StunResolver( "127.0.0.1", 3478 );
+
+        // Execute system under test.
+        final byte[] request = resolver.createRequest( AddressFamily.IPV4 );
+
+        // Verify results.
+        assertEquals( 20, request.length );
+        assertEquals( 0x00, request[ 0 ] ); // Binding request.
+        assertEquals( 0x01, request[ 1 ] );
+        assertEquals( 0x00, request[ 2 ] ); // No attributes.
+        assertEquals( 0x00, request[ 3 ] );
+        assertEquals( (byte) 0x21, request[ 4 ] ); // Magic cookie.
+        assertEquals( (byte) 0x12, request[ 5 ] );
+        assertEquals( (byte) 0xA4, request[ 6 ] );
+        assertEquals( (byte) 0x42, request[ 7 ] );
+    }
+
+    @Test
+    public void testXorMappedAddressIPv4() throws Exception
+    {
+        // Setup test fixture.
+        final InetAddress expected = InetAddress.getByName( "192.0.2.1" );
+        final StunResolver resolver = start( new ScriptedDatagramServer.Responder()
+        {
+            @Override
+            public byte[] respond( byte[] request, int index )
+            {
+                return response( request, 0x0101, addressAttribute( request, expected, 32853, true ) );
+            }
+        } );
+
+        // Execute system under test.
+        final InetAddress result = resolver.resolveAddress( 5, TimeUnit.SECONDS );
+
+        // Verify results.
+        assertEquals( expected, result );
+        assertEquals( 1, resolver.getLatencyHistogram().getSuccessCount() );
+    }
+
+    @Test
+    public void testXorMappedAddressIPv6() throws Exception
+    {
+        // Setup test fixture.
+        final InetAddress expected = InetAddress.getByName( "2001:db8:1234:5678:11:2233:4455:6677" );
+        final StunResolver resolver = start( new ScriptedDatagramServer.Responder()
+        {
+            @Override
+            public byte[] respond( byte[] request, int index )
+            {
+                return response( request, 0x0101, addressAttribute( request, expected, 32853, true ) );
+            }
+        } );
+
+        // Execute system under test.
+        final InetAddress result = resolver.resolveAddress( 5, TimeUnit.SECONDS );
+
+        // Verify results.
+        assertEquals( expected, result );
+    }
+
+    @Test
+    public void testXorMappedAddressIsPreferred() throws Exception
+    {
+        // Setup test fixture.
+        final InetAddress mapped = InetAddress.getByName( "198.51.100.1" );
+        final InetAddress expected = InetAddress.getByName( "192.0.2.1" );
+        final StunResolver resolver = start( new ScriptedDatagramServer.Responder()
+        {
+            @Override
+            public byte[] respond( byte[] request, int index )
+            {
+                return response( request, 0x0101, addressAttribute( request, mapped, 32853, false ),
+                                 addressAttribute( request, expected, 32853, true ) );
+            }
+        } );
+
+        // Execute system under test.
+        final InetAddress result = resolver.resolveAddress( 5, TimeUnit.SECONDS );
+
+        // Verify results.
+        assertEquals( expected, result );
+    }
+
+    @Test
+    public void testMappedAddress() throws Exception
+    {
+        // Setup test fixture: a server that implements RFC 3489 only.
+        final InetAddress expected = InetAddress.getByName( "192.0.2.1" );
+        final StunResolver resolver = start( new ScriptedDatagramServer.Responder()
+        {
+            @Override
+            public byte[] respond( byte[] request, int index )
+            {
+                return response( request, 0x0101, addressAttribute( request, expected, 32853, false ) );
+            }
+        } );
+
+        // Execute system under test.
+        final InetAddress result = resolver.resolveAddress( 5, TimeUnit.SECONDS );
+
+        // Verify results.
+        assertEquals( expected, result );
+    }
+
+    @Test
+    public void testUnrelatedResponseIsIgnored() throws Exception
+    {
+        // Setup test fixture: the first response is for another transaction, the retransmission is answered properly.
+        final InetAddress expected = InetAddress.getByName( "192.0.2.1" );
+        final StunResolver resolver = start( new ScriptedDatagramServer.Responder()
+        {
+            @Override
+            public byte[] respond( byte[] request, int index )
+            {
+                final byte[] response = response( request, 0x0101, addressAttribute( request, expected, 1, true ) );
+                if ( index == 0 )
+                {
+                    response[ 19 ] ^= 0x01; // Alter the transaction ID.
+                }
+                return response;
+            }
+        } );
+
+        // Execute system under test.
+        final InetAddress result = resolver.resolveAddress( 5, TimeUnit.SECONDS );
+
+        // Verify results.
+        assertEquals( expected, result );
+        assertEquals( 2, server.getRequests().size() );
+    }
+
+    @Test
+    public void testErrorResponse() throws Exception
+    {
+        // Setup test fixture.
+        final StunResolver resolver = start( new ScriptedDatagramServer.Responder()
+        {
+            @Override
+            public byte[] respond( byte[] request, int index )
+            {
+                return response( request, 0x0111 );
+            }
+        } );
+
+        // Execute system under test.
+        try
+        {
+            resolver.resolveAddress( 5, TimeUnit.SECONDS );
+            fail( "An error response should not yield an address." );
+        }
+        catch ( ParseException e )
+        {
+            // Verify results.
+            assertEquals( 1, resolver.getLatencyHistogram().getFailureCount() );
+        }
+    }
+
+    @Test( expected = ParseException.class )
+    public void testTruncatedAttribute() throws Exception
+    {
+        // Setup test fixture.
+        final InetAddress address = InetAddress.getByName( "192.0.2.1" );
+        final StunResolver resolver = start( new ScriptedDatagramServer.Responder()
+        {
+            @Override
+            public byte[] respond( byte[] request, int index )
+            {
+                final byte[] response = response( request, 0x0101, addressAttribute( request, address, 1, true ) );
+                response[ 23 ] = 0x20; // An attribute length that exceeds the message.
+                return response;
+            }
+        } );
+
+        // Execute system under test.
+        resolver.resolveAddress( 5, TimeUnit.SECONDS );
+    }
+
+    @Test( expected = ParseException.class )
+    public void testWrongFamily() throws Exception
+    {
+        // Setup test fixture.
+        final InetAddress reported = InetAddress.getByName( "2001:db8::1" );
+        final StunResolver resolver = start( new ScriptedDatagramServer.Responder()
+        {
+            @Override
+            public byte[] respond( byte[] request, int index )
+            {
+                return response( request, 0x0101, addressAttribute( request, reported, 1, true ) );
+            }
+        } );
+
+        // Execute system under test.
+        resolver.resolveAddress( AddressFamily.IPV4, 5, TimeUnit.SECONDS );
+    }
+
+    @Test
+    public void testTimeout() throws Exception
+    {
+        // Setup test fixture.
+        final StunResolver resolver = start( new ScriptedDatagramServer.Responder()
+        {
+            @Override
+            public byte[] respond( byte[] request, int index )
+            {
+                return null;
+            }
+        } );
+
+        // Execute system under test.
+        try
+        {
+            resolver.resolveAddress( 1200, TimeUnit.MILLISECONDS );
+            fail( "No response should yield no address." );
+        }
+        catch ( SocketTimeoutException e )
+        {
+            // Verify results.
+            assertEquals( "Expected a transmission at 0ms, and retransmissions at 500ms and 1500ms (too late).",
+                          2, server.getRequests().size() );
+            assertEquals( 1, resolver.getLatencyHistogram().getTimeoutCount() );
+            assertEquals( 0, resolver.getLatencyHistogram().getFailureCount() );
+        }
+    }
+}
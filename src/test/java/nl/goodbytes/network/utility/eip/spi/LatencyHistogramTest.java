@@ -0,0 +1,257 @@
+/*
+ * Copyright (c) 2017 Guus der Kinderen. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package nl.goodbytes.network.utility.eip.spi;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Verifies the bucketing and percentile reporting of {@link LatencyHistogram}.
+ *
+ * @author Guus der Kinderen, guus@goodbytes.nl
+ */
+public class LatencyHistogramTest
+{
+    @Test
+    public void testEmptyHistogramReportsZero() throws Exception
+    {
+        // Setup test fixture.
+        final LatencyHistogram histogram = new LatencyHistogram();
+
+        // Execute system under test.
+        final long result = histogram.getPercentile( 50, TimeUnit.NANOSECONDS );
+
+        // Verify results.
+        assertEquals( 0, result );
+        assertEquals( 0, histogram.getMean( TimeUnit.NANOSECONDS ) );
+        assertEquals( 0, histogram.getRecentAverage( TimeUnit.NANOSECONDS ) );
+    }
+
+    @Test
+    public void testBucketBoundaries() throws Exception
+    {
+        // Durations below eight microseconds each have their own bucket. Above that, each power of two is divided in
+        // eight buckets, and the largest value of the bucket is reported.
+        assertMedian( 7, 7 );
+        assertMedian( 8, 8 );
+        assertMedian( 15, 15 );
+        assertMedian( 16, 17 );
+        assertMedian( 17, 17 );
+        assertMedian( 18, 19 );
+        assertMedian( 31, 31 );
+        assertMedian( 32, 35 );
+        assertMedian( 1024, 1151 );
+        assertMedian( 1151, 1151 );
+        assertMedian( 1152, 1279 );
+    }
+
+    @Test
+    public void testErrorIsBounded() throws Exception
+    {
+        for ( long micros = 1; micros < TimeUnit.HOURS.toMicros( 1 ); micros = micros * 17 / 16 + 1 )
+        {
+            // Setup test fixture.
+            final LatencyHistogram histogram = histogramOf( micros, micros * 100 );
+
+            // Execute system under test.
+            final long result = histogram.getPercentile( 50, TimeUnit.MICROSECONDS );
+
+            // Verify results.
+            assertTrue( "Reported " + result + " for " + micros, result >= micros );
+            assertTrue( "Reported " + result + " for " + micros, result <= micros + micros / 8 );
+        }
+    }
+
+    @Test
+    public void testUniformDistribution() throws Exception
+    {
+        // Setup test fixture.
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for ( long millis = 1; millis <= 1000; millis++ )
+        {
+            histogram.recordSuccess( TimeUnit.MILLISECONDS.toNanos( millis ) );
+        }
+
+        // Execute system under test.
+        final long median = histogram.getPercentile( 50, TimeUnit.MILLISECONDS );
+        final long tail = histogram.getPercentile( 99, TimeUnit.MILLISECONDS );
+        final long all = histogram.getPercentile( 100, TimeUnit.MILLISECONDS );
+
+        // Verify results.
+        assertEquals( 524, median ); // Exact value 500, within 12.5%.
+        assertTrue( tail >= 990 && tail <= 1000 ); // Not larger than the maximum.
+        assertEquals( 1000, all );
+        assertEquals( 500, histogram.getMean( TimeUnit.MILLISECONDS ) );
+        assertEquals( 1000, histogram.getMaximum( TimeUnit.MILLISECONDS ) );
+    }
+
+    @Test
+    public void testOverflowIsCountedInLastBucket() throws Exception
+    {
+        // Setup test fixture.
+        final long overflow = 1L << 40; // Microseconds, beyond the largest tracked power of two (2^36).
+        final LatencyHistogram histogram = histogramOf( overflow, overflow * 2 );
+
+        // Execute system under test.
+        final long median = histogram.getPercentile( 50, TimeUnit.MICROSECONDS );
+
+        // Verify results. (The last bucket reports its own upper bound; the maximum is exact.)
+        assertEquals( ( 1L << 37 ) - 1, median );
+        assertEquals( overflow * 2, histogram.getMaximum( TimeUnit.MICROSECONDS ) );
+        assertEquals( 2, histogram.getSuccessCount() );
+    }
+
+    @Test
+    public void testNegativeDurationIsRecordedAsZero() throws Exception
+    {
+        // Setup test fixture.
+        final LatencyHistogram histogram = new LatencyHistogram();
+
+        // Execute system under test.
+        histogram.recordSuccess( -5 );
+
+        // Verify results.
+        assertEquals( 1, histogram.getSuccessCount() );
+        assertEquals( 0, histogram.getPercentile( 100, TimeUnit.NANOSECONDS ) );
+    }
+
+    @Test
+    public void testRecentAverage() throws Exception
+    {
+        // Setup test fixture.
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for ( int i = 0; i < 10; i++ )
+        {
+            histogram.recordSuccess( TimeUnit.MILLISECONDS.toNanos( 1000 ) );
+        }
+
+        // Execute system under test.
+        for ( int i = 0; i < 10; i++ )
+        {
+            histogram.recordSuccess( TimeUnit.MILLISECONDS.toNanos( 10 ) );
+        }
+
+        // Verify results.
+        assertEquals( 10, histogram.getRecentAverage( TimeUnit.MILLISECONDS ) );
+        assertEquals( 505, histogram.getMean( TimeUnit.MILLISECONDS ) );
+    }
+
+    @Test( expected = IllegalArgumentException.class )
+    public void testPercentileMustBePositive() throws Exception
+    {
+        // Execute system under test.
+        new LatencyHistogram().getPercentile( 0, TimeUnit.NANOSECONDS );
+    }
+
+    @Test( expected = IllegalArgumentException.class )
+    public void testPercentileCannotExceedHundred() throws Exception
+    {
+        // Execute system under test.
+        new LatencyHistogram().getPercentile( 100.1, TimeUnit.NANOSECONDS );
+    }
+
+    @Test( timeout = 10000 )
+    public void testConcurrentRecording() throws Exception
+    {
+        // Setup test fixture.
+        final int threads = 8;
+        final int recordings = 10000;
+        final LatencyHistogram histogram = new LatencyHistogram();
+        final CountDownLatch start = new CountDownLatch( 1 );
+        final ExecutorService executor = Executors.newFixedThreadPool( threads );
+        try
+        {
+            final List<Future<?>> results = new ArrayList<>();
+            for ( int i = 0; i < threads; i++ )
+            {
+                final long duration = TimeUnit.MICROSECONDS.toNanos( i + 1 );
+                results.add( executor.submit( new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        try
+                        {
+                            start.await();
+                        }
+                        catch ( InterruptedException e )
+                        {
+                            Thread.currentThread().interrupt();
+                            return;
+                        }
+                        for ( int j = 0; j < recordings; j++ )
+                        {
+                            histogram.recordSuccess( duration );
+                            histogram.recordFailure();
+                        }
+                    }
+                } ) );
+            }
+
+            // Execute system under test.
+            start.countDown();
+            for ( final Future<?> result : results )
+            {
+                result.get();
+            }
+
+            // Verify results. (Each thread recorded a distinct number of microseconds, 1 to 8.)
+            assertEquals( threads * recordings, histogram.getSuccessCount() );
+            assertEquals( threads * recordings, histogram.getFailureCount() );
+            assertEquals( 8, histogram.getMaximum( TimeUnit.MICROSECONDS ) );
+            assertEquals( 4, histogram.getPercentile( 50, TimeUnit.MICROSECONDS ) );
+            assertEquals( 4500, histogram.getMean( TimeUnit.NANOSECONDS ) );
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Creates a histogram in which the provided durations were recorded.
+     */
+    private static LatencyHistogram histogramOf( long... micros )
+    {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for ( final long duration : micros )
+        {
+            histogram.recordSuccess( TimeUnit.MICROSECONDS.toNanos( duration ) );
+        }
+        return histogram;
+    }
+
+    /**
+     * Verifies the median that is reported when one duration is recorded, along with a much larger one.
+     */
+    private static void assertMedian( long micros, long expected )
+    {
+        final LatencyHistogram histogram = histogramOf( micros, micros * 100 );
+        assertEquals( "Median for " + micros, expected, histogram.getPercentile( 50, TimeUnit.MICROSECONDS ) );
+    }
+}